@@ -100,6 +100,19 @@ function compile() {
     -classpath $CLASSES @$TARGET/sources.lst -cp $CLASSES
   echo "   done."
 }
+#
+function bundleAnimations() {
+  echo "|_ 2-1. build binary animation bundle '$TARGET/animations.bin' ..."
+  java $JAR_OPTS -cp "$CLASSES:$RESOURCES" 'fr.snapgames.demo.core.Game$AnimationBundle' \
+    /animations.properties $TARGET/animations.bin
+  echo "   done."
+}
+#
+function packAssets() {
+  echo "|_ 2-2. build asset pack '$TARGET/assets.pack' from '$RESOURCES' ..."
+  java $JAR_OPTS -cp "$CLASSES" 'fr.snapgames.demo.core.Game$AssetPack' $RESOURCES $TARGET/assets.pack
+  echo "   done."
+}
 function checkCodeStyleQA() {
   echo "check code quality against rules $CHECK_RULES"
   echo "> explore sources at : $SRC"
@@ -180,12 +193,19 @@ function wrapJar() {
   mkdir -p $BUILD
   cat $LIBS/stub.sh $TARGET/$PROGRAM_NAME-$PROGRAM_VERSION.jar >$BUILD/$PROGRAM_NAME-$PROGRAM_VERSION.run
   chmod +x $BUILD/$PROGRAM_NAME-$PROGRAM_VERSION.run
+  for f in animations.bin assets.pack; do
+    if [ -f $TARGET/$f ]; then
+      cp $TARGET/$f $BUILD/
+    fi
+  done
   echo "   |_ done."
 }
 #
 function executeJar() {
   manifest
   compile
+  bundleAnimations
+  packAssets
   createJar
   echo "|_ 5.Execute just created JAR $TARGET/$PROGRAM_NAME-$PROGRAM_VERSION.jar"
   java $JAR_OPTS -jar $TARGET/$PROGRAM_NAME-$PROGRAM_VERSION.jar "$@"
@@ -221,6 +241,7 @@ function help() {
   echo "$0 command line usage :"
   echo "---------------------------"
   echo " - a|A|all     : perform all following operations"
+  echo " - b|B|bundle  : compile, build the binary animation bundle and the asset pack"
   echo " - c|C|compile : compile all sources project"
   echo " - d|D|doc     : generate javadoc for project"
   echo " - e|E|epub    : generate *.epub file as docs for project (require pandoc : https://pandoc.org )"
@@ -243,12 +264,20 @@ function run() {
   a | A | all)
     manifest
     compile
+    bundleAnimations
+    packAssets
     checkCodeStyleQA
     executeTests
     generatedoc
     createJar
     wrapJar
     ;;
+  b | B | bundle)
+    manifest
+    compile
+    bundleAnimations
+    packAssets
+    ;;
   c | C | compile)
     manifest
     compile
@@ -1,6 +1,13 @@
 package fr.snapgames.demo.core;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
@@ -8,27 +15,66 @@ import java.awt.event.KeyListener;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.security.CodeSource;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
 import java.util.stream.Stream;
 
 /**
  * Main Game class application with all its subclasses, encapsulating services
  * and entities.
  *
+ * <p>
+ * The Game is never serialized as a Swing component: its state is saved through {@link WorldSnapshot}.
+ *
  * @author Frédéric Delorme
  * @since 1.0.0
  */
+@SuppressWarnings("serial")
 public class Game extends JPanel {
 
     /**
@@ -98,10 +144,70 @@ public class Game extends JPanel {
                 "gravity,g",
                 "define the physic gravity to apply to any entity",
                 0.981,
-                Double::valueOf);
+                Double::valueOf),
+        /**
+         * Define the memory reserved to the {@link RewindBuffer}, in megabytes, 0 to disable it.
+         */
+        REWIND_MEMORY(
+                "memory reserved to the rewind buffer",
+                "game.rewind.memory",
+                "rewind,w",
+                "define the memory in MB reserved to record the last ticks (0 to disable, max 1024)",
+                32,
+                ConfigAttribute::toRewindMemory),
+        /**
+         * Define the number of regions kept in memory around the camera target by the {@link WorldStreamer}.
+         */
+        WORLD_STREAMING_RADIUS(
+                "radius of the resident world regions",
+                "game.world.streaming.radius",
+                "streaming,sr",
+                "define the number of world regions kept in memory around the camera target",
+                1,
+                Integer::valueOf),
+        /**
+         * Define if the {@link Renderer} draws into an accelerated {@link VolatileImage} in place of a
+         * {@link BufferedImage}.
+         */
+        RENDER_ACCELERATED(
+                "accelerated render target",
+                "game.render.accelerated",
+                "accelerated,ra",
+                "draw the frames into an accelerated VolatileImage (ignored when headless)",
+                false,
+                Boolean::valueOf),
+        /**
+         * Define the {@link RenderQuality} profile of each {@link RenderLayer}.
+         */
+        RENDER_QUALITY(
+                "rendering quality profiles",
+                "game.render.quality",
+                "quality,rq",
+                "define the quality of each layer, as 'layer:profile' pairs (profile is 'pixel' or 'smooth')",
+                RenderQuality.parse("sprite:pixel,particle:pixel,shape:smooth,text:smooth"),
+                RenderQuality::parse);
 
         private final String name;
 
+        /**
+         * Maximum memory of the {@link RewindBuffer}, in MB.
+         */
+        public static final int MAX_REWIND_MEMORY = 1024;
+
+        /**
+         * Parse the rewind buffer memory in MB, clamped to [0, {@link #MAX_REWIND_MEMORY}] as the buffer is allocated
+         * as one block of at most 2GB.
+         */
+        private static Integer toRewindMemory(String value) {
+            int memory = Integer.parseInt(value);
+            int clamped = Math.max(0, Math.min(memory, MAX_REWIND_MEMORY));
+            if (clamped != memory) {
+                System.err.printf("ERROR : rewind memory %d MB out of [0, %d], clamped to %d MB%n",
+                        memory, MAX_REWIND_MEMORY, clamped);
+            }
+            return clamped;
+        }
+
         private static Dimension toDimension(String value) {
             String[] interpretedValue = value
                     .split("x");
@@ -171,6 +277,13 @@ public class Game extends JPanel {
     public static class Configuration {
         ConfigAttribute[] attributes = ConfigAttribute.values();
         private Map<ConfigAttribute, Object> configurationValues = new ConcurrentHashMap<>();
+        private volatile ConfigSnapshot snapshot;
+        private final List<ConfigurationListener> listeners = new ArrayList<>();
+        private String configFile;
+        /**
+         * The values of the external custom file, as they were last loaded or parsed.
+         */
+        private volatile Map<String, String> fileValues = new HashMap<>();
 
         /**
          * Initialize the {@link Configuration} set with the properties file values.
@@ -180,11 +293,12 @@ public class Game extends JPanel {
          * @param args the Arguments array from java Command Line Interface.
          */
         public Configuration(String file, String[] args) {
-
+            this.configFile = file;
             Arrays.stream(attributes).forEach(ca -> configurationValues.put(ca, ca.getDefaultValue()));
             parseConfigFile(file);
             parseArgs(args);
             save("backup.properties");
+            snapshot = new ConfigSnapshot(this);
         }
 
         public Configuration() {
@@ -260,7 +374,10 @@ public class Game extends JPanel {
             try {
                 externalConfigFile = getJarRootPath(pathToExternalConfigFile);
                 customConfigFile = new FileReader(externalConfigFile);
-                props.load(customConfigFile);
+                Properties custom = new Properties();
+                custom.load(customConfigFile);
+                props.putAll(custom);
+                fileValues = getFileValues(custom);
                 System.out.printf("INFO : file=%s : configuration overloaded with side part configuration file.%n",
                         externalConfigFile);
             } catch (URISyntaxException | IOException e) {
@@ -302,16 +419,94 @@ public class Game extends JPanel {
             }
         }
 
+        /**
+         * Retrieve the path of the external custom file overriding the configuration file values.
+         *
+         * @return the path to the <code>my-[config file]</code> file beside the JAR, or null if unknown.
+         */
+        public Path getExternalConfigPath() {
+            try {
+                return Optional.ofNullable(configFile).isPresent() ? Path.of(getJarRootPath(configFile)) : null;
+            } catch (URISyntaxException e) {
+                return null;
+            }
+        }
+
+        private static Map<String, String> getFileValues(Properties props) {
+            Map<String, String> values = new HashMap<>();
+            for (String key : props.stringPropertyNames()) {
+                values.put(key, props.getProperty(key).trim());
+            }
+            return values;
+        }
+
+        /**
+         * Parse a configuration properties file and extract the values changed in that file since it was last
+         * loaded or parsed, and differing from the current ones. The values not changed in the file are ignored,
+         * so the CLI arguments keep their precedence on them.
+         * This method does not change the configuration, and can be called from any thread.
+         *
+         * @param file the properties file to be parsed.
+         * @return the map of changed values.
+         */
+        public Map<ConfigAttribute, Object> parseChanges(Path file) {
+            Map<ConfigAttribute, Object> changes = new HashMap<>();
+            Properties props = new Properties();
+            try (FileReader reader = new FileReader(file.toFile())) {
+                props.load(reader);
+            } catch (IOException e) {
+                System.err.printf("ERROR : file=%s : unable to read configuration: %s%n", file, e.getMessage());
+                return changes;
+            }
+            Map<String, String> previous = fileValues;
+            fileValues = getFileValues(props);
+            for (ConfigAttribute ca : attributes) {
+                String value = fileValues.get(ca.getConfigAttributeKey());
+                if (value != null && !value.equals(previous.get(ca.getConfigAttributeKey()))) {
+                    try {
+                        Object v = ca.getAttrParser().apply(value);
+                        if (!v.equals(configurationValues.get(ca))) {
+                            changes.put(ca, v);
+                        }
+                    } catch (RuntimeException e) {
+                        System.err.printf("ERROR : file=%s : wrong value '%s' for %s%n",
+                                file, value, ca.getConfigAttributeKey());
+                    }
+                }
+            }
+            return changes;
+        }
+
+        /**
+         * Set the changed values and publish a new {@link ConfigSnapshot} with {@link Configuration#reload()}.
+         *
+         * @param changes the map of changed values.
+         */
+        public void apply(Map<ConfigAttribute, Object> changes) {
+            for (Map.Entry<ConfigAttribute, Object> e : changes.entrySet()) {
+                configurationValues.put(e.getKey(), e.getValue());
+                System.out.printf("INFO: Reload the configuration '%s' to '%s'%n", e.getKey().getName(), e.getValue());
+            }
+            reload();
+        }
+
         private String getJarRootPath(String configFile) throws URISyntaxException {
-            String jarDir;
-            String externalConfigFile;
-            CodeSource codeSource = Game.class.getProtectionDomain().getCodeSource();
-            File jarFile = new File(codeSource.getLocation().toURI().getPath());
-            jarDir = jarFile.getParentFile().getPath();
-            externalConfigFile = jarDir + File.separator + "my-"
+            return getJarSidePath("my-"
                     + (configFile.startsWith("/") || configFile.startsWith("\\") ? configFile.substring(1)
-                    : configFile);
-            return externalConfigFile;
+                    : configFile)).toString();
+        }
+
+        /**
+         * Retrieve the path of a file beside the JAR (or the classes directory).
+         *
+         * @param fileName the name of the file.
+         * @return the path to the file beside the JAR.
+         * @throws URISyntaxException if the JAR location can not be converted to a path.
+         */
+        public static Path getJarSidePath(String fileName) throws URISyntaxException {
+            CodeSource codeSource = Game.class.getProtectionDomain().getCodeSource();
+            File jarDir = new File(codeSource.getLocation().toURI().getPath()).getParentFile();
+            return jarDir.toPath().resolve(fileName);
         }
 
         /**
@@ -433,6 +628,39 @@ public class Game extends JPanel {
             return configurationValues.get(ca);
         }
 
+        /**
+         * Retrieve the current immutable {@link ConfigSnapshot} of the configuration values.
+         * Values changed since the last {@link Configuration#reload()} are not part of it.
+         *
+         * @return the current ConfigSnapshot.
+         */
+        public ConfigSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Capture a new {@link ConfigSnapshot} from the current configuration values and publish it to all the
+         * registered {@link ConfigurationListener}.
+         *
+         * @return the new ConfigSnapshot.
+         */
+        public ConfigSnapshot reload() {
+            snapshot = new ConfigSnapshot(this);
+            for (ConfigurationListener l : listeners) {
+                l.onConfigurationChange(snapshot);
+            }
+            return snapshot;
+        }
+
+        /**
+         * Add a {@link ConfigurationListener} to be notified on each {@link Configuration#reload()}.
+         *
+         * @param l the listener to be added.
+         */
+        public void addListener(ConfigurationListener l) {
+            listeners.add(l);
+        }
+
         /**
          * Save the current configuration into a backup properties file.
          *
@@ -477,6 +705,9 @@ public class Game extends JPanel {
                 case "java.awt.Dimension" -> {
                     output = ((Dimension) value).width + "x" + ((Dimension) value).width;
                 }
+                case "java.util.EnumMap" -> {
+                    output = RenderQuality.write(RenderQuality.copyOf((Map<?, ?>) value));
+                }
                 default -> {
                     output = value.toString();
                 }
@@ -485,6 +716,218 @@ public class Game extends JPanel {
         }
     }
 
+    /**
+     * The {@link ConfigSnapshot} is an immutable and typed copy of the {@link Configuration} values,
+     * to be captured once by the engines in place of a {@link Configuration#get(ConfigAttribute)} lookup and cast
+     * on each frame or for each entity.
+     * <p>
+     * A new snapshot is published to all the {@link ConfigurationListener} on each
+     * {@link Configuration#reload()}.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public static class ConfigSnapshot {
+        public final String title;
+        public final int debug;
+        public final int screenWidth;
+        public final int screenHeight;
+        public final int windowWidth;
+        public final int windowHeight;
+        public final int playAreaWidth;
+        public final int playAreaHeight;
+        public final double gravity;
+        public final int rewindMemory;
+        public final int streamingRadius;
+        public final boolean renderAccelerated;
+        /**
+         * The unmodifiable {@link RenderQuality} profile of each {@link RenderLayer}.
+         */
+        public final Map<RenderLayer, RenderQuality> renderQuality;
+
+        public ConfigSnapshot(Configuration config) {
+            this.title = (String) config.get(ConfigAttribute.TITLE);
+            this.debug = (int) config.get(ConfigAttribute.DEBUG);
+            Dimension screenResolution = (Dimension) config.get(ConfigAttribute.SCREEN_RESOLUTION);
+            Dimension windowSize = (Dimension) config.get(ConfigAttribute.WINDOW_SIZE);
+            Dimension playArea = (Dimension) config.get(ConfigAttribute.PHYSIC_PLAY_AREA);
+            this.gravity = (double) config.get(ConfigAttribute.PHYSIC_GRAVITY);
+            this.rewindMemory = (int) config.get(ConfigAttribute.REWIND_MEMORY);
+            this.streamingRadius = (int) config.get(ConfigAttribute.WORLD_STREAMING_RADIUS);
+            this.renderAccelerated = (boolean) config.get(ConfigAttribute.RENDER_ACCELERATED);
+            this.renderQuality = Collections.unmodifiableMap(
+                    RenderQuality.copyOf((Map<?, ?>) config.get(ConfigAttribute.RENDER_QUALITY)));
+            this.screenWidth = screenResolution.width;
+            this.screenHeight = screenResolution.height;
+            this.windowWidth = windowSize.width;
+            this.windowHeight = windowSize.height;
+            this.playAreaWidth = playArea.width;
+            this.playAreaHeight = playArea.height;
+        }
+
+        /**
+         * @return a new {@link Dimension} with the screen resolution.
+         */
+        public Dimension getScreenResolution() {
+            return new Dimension(screenWidth, screenHeight);
+        }
+
+        /**
+         * @return a new {@link Dimension} with the window size.
+         */
+        public Dimension getWindowSize() {
+            return new Dimension(windowWidth, windowHeight);
+        }
+
+        /**
+         * @return a new {@link Dimension} with the play area size.
+         */
+        public Dimension getPlayArea() {
+            return new Dimension(playAreaWidth, playAreaHeight);
+        }
+    }
+
+    /**
+     * The {@link ConfigurationListener} is notified with the new {@link ConfigSnapshot} each time the
+     * {@link Configuration} is reloaded.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public interface ConfigurationListener {
+        void onConfigurationChange(ConfigSnapshot snapshot);
+    }
+
+    /**
+     * The {@link HotReloader} watches external files with a NIO {@link WatchService} to reload them without
+     * restarting the game.
+     * <p>
+     * When a watched file changes, its loader is executed on the watcher thread, to parse the file off the game
+     * thread. The loader returns the action swapping the parsed values in, which is queued and executed by the game
+     * loop between two ticks with {@link HotReloader#applyPending()}.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public static class HotReloader implements Runnable {
+        /**
+         * Delay to let the editor finish writing the file before reading it.
+         */
+        static final long SETTLE_DELAY = 50;
+
+        private WatchService watchService;
+        private Thread thread;
+        private final Map<Path, Function<Path, Runnable>> loaders = new ConcurrentHashMap<>();
+        private final Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Start the watcher daemon thread.
+         *
+         * @return this HotReloader.
+         */
+        public HotReloader start() {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                thread = new Thread(this, "hot-reloader");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                System.err.printf("ERROR : unable to start the file watcher: %s%n", e.getMessage());
+            }
+            return this;
+        }
+
+        /**
+         * Watch a file, even if it does not exist yet.
+         *
+         * @param file   the file to be watched.
+         * @param loader the parser executed off the game thread on each change of the file, returning the action
+         *               to be executed by the game thread to apply the changes, or null if nothing changed.
+         * @return this HotReloader.
+         */
+        public HotReloader watch(Path file, Function<Path, Runnable> loader) {
+            if (watchService == null) {
+                return this;
+            }
+            Path abs = file.toAbsolutePath();
+            loaders.put(abs, loader);
+            Path dir = abs.getParent();
+            if (watchedDirs.add(dir)) {
+                try {
+                    dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                } catch (IOException e) {
+                    watchedDirs.remove(dir);
+                    System.err.printf("ERROR : unable to watch directory %s: %s%n", dir, e.getMessage());
+                }
+            }
+            System.out.printf("INFO : file=%s : watched for hot-reload.%n", abs);
+            return this;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                    Thread.sleep(SETTLE_DELAY);
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                Path dir = (Path) key.watchable();
+                Set<Path> changed = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path p) {
+                        changed.add(dir.resolve(p));
+                    }
+                }
+                key.reset();
+                for (Path file : changed) {
+                    Function<Path, Runnable> loader = loaders.get(file);
+                    if (loader != null && Files.exists(file)) {
+                        try {
+                            Runnable swap = loader.apply(file);
+                            if (swap != null) {
+                                pending.add(swap);
+                            }
+                        } catch (RuntimeException e) {
+                            System.err.printf("ERROR : file=%s : unable to reload: %s%n", file, e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Apply the changes parsed since the last call, to be called by the game thread between two ticks.
+         *
+         * @return the number of applied changes.
+         */
+        public int applyPending() {
+            int count = 0;
+            Runnable swap;
+            while ((swap = pending.poll()) != null) {
+                swap.run();
+                count++;
+            }
+            return count;
+        }
+
+        public void stop() {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    System.err.printf("ERROR : unable to close the file watcher: %s%n", e.getMessage());
+                }
+                thread.interrupt();
+            }
+        }
+    }
+
     /**
      * Resource management with a cache principle, avoiding accessing disk when not
      * necessary.
@@ -498,9 +941,47 @@ public class Game extends JPanel {
     public class Resources {
 
         Map<String, Object> resources;
+        AssetPack pack;
 
         public Resources() {
             resources = new ConcurrentHashMap<>();
+            openPack(AssetPack.DEFAULT_PACK_FILE);
+        }
+
+        /**
+         * Open the {@link AssetPack} built beside the JAR, if any, to read resources from it in place of the JAR.
+         *
+         * @param packFile the pack file name.
+         */
+        private void openPack(String packFile) {
+            try {
+                Path path = Configuration.getJarSidePath(packFile);
+                if (Files.exists(path)) {
+                    pack = new AssetPack(path);
+                    System.out.printf("INFO : file=%s : asset pack opened with %d entries.%n", path, pack.size());
+                }
+            } catch (URISyntaxException | IOException e) {
+                System.err.printf("ERROR : unable to open asset pack %s: %s%n", packFile, e.getMessage());
+                pack = null;
+            }
+        }
+
+        /**
+         * Open a resource from the {@link AssetPack} if it contains it, else from the classpath.
+         *
+         * @param file the classpath path of the resource.
+         * @return an InputStream on the resource content, or null if the resource does not exist.
+         */
+        public InputStream getStream(String file) {
+            AssetPack p = pack;
+            if (p != null && p.contains(file)) {
+                if (p.isCurrent(file)) {
+                    return p.open(file);
+                }
+                System.err.printf("ERROR : file=%s : the asset pack is outdated and is ignored, rebuild it.%n", file);
+                pack = null;
+            }
+            return Game.class.getResourceAsStream(file);
         }
 
         /**
@@ -514,7 +995,7 @@ public class Game extends JPanel {
             BufferedImage img = null;
             if (!resources.containsKey(file)) {
                 try {
-                    img = ImageIO.read(Game.class.getResourceAsStream(file));
+                    img = ImageIO.read(getStream(file));
                 } catch (Exception e) {
                     System.err.printf("Unable to read the image %s", file);
                 }
@@ -535,9 +1016,8 @@ public class Game extends JPanel {
             Font font = null;
 
             if (!resources.containsKey(file)) {
-                try {
-                    font = getFont(file);
-
+                try (InputStream is = getStream(file)) {
+                    font = Font.createFont(Font.TRUETYPE_FONT, is);
                 } catch (Exception e) {
                     System.err.printf("ERROR: unable to find font file %s: %s", file, e.getMessage());
                 }
@@ -640,6 +1120,11 @@ public class Game extends JPanel {
      * @since 1.0.1
      */
     public abstract class AbstractEntity<T extends Node<T>> implements Node<T> {
+        /**
+         * Range of the rendering priority, as kept in the {@link Renderer} sort keys.
+         */
+        public static final int MIN_PRIORITY = -0x800;
+        public static final int MAX_PRIORITY = 0x7ff;
         private static long index = 0;
         private long id = ++index;
         private String name = "default_" + id;
@@ -658,7 +1143,12 @@ public class Game extends JPanel {
         Color fillColor = Color.BLUE;
         int direction = 0;
         Material material = new Material("default", 1.0, 0.60, 0.998);
+        Material influenceMaterial = null;
         int contact;
+        /**
+         * Index of this entity class in the {@link Renderer} DrawPlugin dispatch table, -1 until first drawn.
+         */
+        int drawTypeId = -1;
 
         boolean relativeToParent = false;
 
@@ -670,12 +1160,23 @@ public class Game extends JPanel {
         String currentAnimation = "";
 
         List<Behavior<T>> behaviors = new ArrayList<>();
-        private boolean fixedToCamera;
+        boolean fixedToCamera;
         private boolean active = true;
+        private boolean collidable = false;
+        private boolean fast = false;
 
         private long duration = -1;
         private long live = 0;
+
+        boolean sleeping = false;
+        int restingTicks = 0;
+        double lastX, lastY;
         private PhysicType physicType = PhysicType.DYNAMIC;
+        long restoreMark = 0;
+        /**
+         * Index of this entity in the {@link RewindBuffer} table, -1 until first recorded.
+         */
+        int rewindSlot = -1;
 
         public AbstractEntity(String name, int x, int y, Color borderColor, Color fillColor) {
             this.name = name;
@@ -707,6 +1208,16 @@ public class Game extends JPanel {
             return (T) this;
         }
 
+        /**
+         * Retrieve the {@link Material} currently applied to this entity: the one overridden by an
+         * {@link Influencer} area the entity is in, or its own {@link AbstractEntity#material}.
+         *
+         * @return the current Material to be used by physic computation.
+         */
+        public Material getMaterial() {
+            return influenceMaterial != null ? influenceMaterial : material;
+        }
+
         public T setMass(double m) {
             this.mass = m;
             return (T) this;
@@ -790,7 +1301,44 @@ public class Game extends JPanel {
             return this.active;
         }
 
+        public T setCollidable(boolean c) {
+            this.collidable = c;
+            return (T) this;
+        }
+
+        public boolean isCollidable() {
+            return this.collidable;
+        }
+
+        /**
+         * Flag this entity as a fast moving one (bullet, rain drop, etc...): its move on each update is swept
+         * against the collidable entities to detect any collision it would pass through (tunnelling).
+         *
+         * @param f true to activate the continuous collision detection for this entity.
+         * @return this entity.
+         */
+        public T setFast(boolean f) {
+            this.fast = f;
+            return (T) this;
+        }
+
+        public boolean isFast() {
+            return this.fast;
+        }
+
+        /**
+         * Set the rendering priority: the entities are drawn by increasing priority. A priority out of the
+         * [{@link #MIN_PRIORITY}, {@link #MAX_PRIORITY}] range is clamped to it, with an error.
+         *
+         * @param p the rendering priority.
+         * @return this entity.
+         */
         public T setPriority(int p) {
+            if (p < MIN_PRIORITY || p > MAX_PRIORITY) {
+                System.err.printf("ERROR : entity %s : priority %d out of [%d, %d], clamped%n",
+                        name, p, MIN_PRIORITY, MAX_PRIORITY);
+                p = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, p));
+            }
             this.priority = p;
             return (T) this;
         }
@@ -804,19 +1352,38 @@ public class Game extends JPanel {
             return (T) this;
         }
 
-        public List<String> getDebugInfo() {
-            List<String> info = new ArrayList<>();
-            info.add(String.format("#%d:%s", id, name));
-            if (isRelativeToParent()) {
-                info.add(String.format("offset:%s", position));
+        /**
+         * Append the debug information lines of this entity to the reused {@link DebugInfo}.
+         *
+         * @param info the DebugInfo to be filled.
+         */
+        public void appendDebugInfo(DebugInfo info) {
+            info.line().append('#').append(id).append(':').append(name);
+            appendVector(info.line().append(isRelativeToParent() ? "offset:" : "pos:"), position);
+            StringBuilder sz = info.line().append("sz :");
+            appendFixed(sz, width, 2);
+            appendFixed(sz.append(','), height, 2);
+            appendVector(info.line().append("spd:"), velocity);
+            info.line().append("anm:").append(currentAnimation);
+            StringBuilder life = info.line().append("life:");
+            if (duration > -1) {
+                life.append(live).append('/').append(duration);
             } else {
-                info.add(String.format("pos:%s", position));
+                life.append("n/a");
             }
-            info.add(String.format("sz :%3.02f,%3.02f", width, height));
-            info.add(String.format("spd:%s", velocity));
-            info.add(String.format("anm:%s", currentAnimation));
-            info.add(String.format("life:%s", duration > -1 ? live + "/" + duration : "n/a"));
-            return info;
+        }
+
+        /**
+         * Build the debug information lines of this entity, as filled by {@link #appendDebugInfo(DebugInfo)}.
+         * <p>
+         * This allocates a new list on each call, the rendering loop uses {@link #appendDebugInfo(DebugInfo)}.
+         *
+         * @return a new list of the debug information lines.
+         */
+        public List<String> getDebugInfo() {
+            DebugInfo info = new DebugInfo();
+            appendDebugInfo(info);
+            return info.getLines();
         }
 
         public T setDuration(long d) {
@@ -827,9 +1394,30 @@ public class Game extends JPanel {
             return (T) this;
         }
 
+        public long getDuration() {
+            return this.duration;
+        }
+
+        public long getLive() {
+            return this.live;
+        }
+
+        /**
+         * Restore the life time of this entity as is, without the activation done by {@link #setDuration(long)},
+         * used by the {@link WorldSnapshot}.
+         *
+         * @param d the restored duration.
+         * @param l the restored remaining life time.
+         */
+        void setLife(long d, long l) {
+            this.duration = d;
+            this.live = l;
+        }
+
         public T setPosition(double x, double y) {
             this.position.x = x;
             this.position.y = y;
+            wake();
             return (T) this;
         }
 
@@ -858,9 +1446,38 @@ public class Game extends JPanel {
         public T setVelocity(double dx, double dy) {
             this.velocity.x = dx;
             this.velocity.y = dy;
+            wake();
+            return (T) this;
+        }
+
+        /**
+         * Wake up this entity if it was sleeping: it will be processed again by the {@link PhysicEngine}.
+         *
+         * @return this entity.
+         */
+        public T wake() {
+            this.sleeping = false;
+            this.restingTicks = 0;
+            return (T) this;
+        }
+
+        /**
+         * Put this entity asleep: its velocity is reset and the {@link PhysicEngine} will not integrate nor
+         * constrain it until it is woken up by a contact, a force or a call to {@link AbstractEntity#wake()}.
+         *
+         * @return this entity.
+         */
+        public T sleep() {
+            this.sleeping = true;
+            this.velocity.x = 0;
+            this.velocity.y = 0;
             return (T) this;
         }
 
+        public boolean isSleeping() {
+            return this.sleeping;
+        }
+
         @Override
         public T setParent(T p) {
             this.parent = p;
@@ -935,6 +1552,9 @@ public class Game extends JPanel {
      * <li><code>font</code> the {@link Font} to be used to draw text.</li>
      * </ul>
      * <p>
+     * The styled text is rendered once into a cached image, re-rendered only when the text or the style changes
+     * (see {@link TextDrawPlugin}).
+     * <p>
      * To create a {@link Particle}:
      *
      * <pre>
@@ -947,11 +1567,30 @@ public class Game extends JPanel {
         int shadowWidth = 0;
         int borderWidth = 0;
         Font font;
+        boolean glyphAtlas = false;
+
+        TextStyle cachedStyle;
+        String cachedText;
+        BufferedImage cachedImage;
+        int cachedOffsetY;
+        GlyphAtlas atlas;
 
         public TextEntity(String name, int x, int y) {
             super(name, x, y, null, null);
         }
 
+        /**
+         * Draw this text from a {@link GlyphAtlas} shared by all the {@link TextEntity} with the same style,
+         * instead of caching an image of the whole text. To be used for frequently changing text like scores.
+         *
+         * @param ga true to use the glyph atlas.
+         * @return this TextEntity.
+         */
+        public TextEntity setGlyphAtlas(boolean ga) {
+            this.glyphAtlas = ga;
+            return this;
+        }
+
         public TextEntity setText(String txt) {
             this.text = txt;
             return this;
@@ -1091,69 +1730,251 @@ public class Game extends JPanel {
 
         /**
          * Check if the {@link Entity} e is in the field of view (viewport) of the
-         * {@link Camera}.
+         * {@link Camera}: its bounding rectangle must overlap the viewport, enlarged to the circle around it when
+         * the camera is rotated. An {@link Entity} fixed to the camera is always in the FOV.
          *
          * @param e the {@link Entity} to be field of view checked.
          * @return true if {@link Entity} is in the FOV.
          */
         public boolean isInFOV(Entity e) {
-            if (e.isFixedToCamera() || e.getPhysicType().equals(PhysicType.STATIC)) {
+            if (e.isFixedToCamera()) {
                 return true;
-            } else if (e.isRelativeToParent()) {
-                return e.position.x + e.parent.position.x >= position.x && e.position.x + e.parent.position.x <= position.x + viewport.width
-                        && e.position.y + e.parent.position.y >= position.y && e.position.y + e.parent.position.y <= position.y + viewport.height;
-            } else {
-                return e.position.x >= position.x && e.position.x <= position.x + viewport.width
-                        && e.position.y >= position.y && e.position.y <= position.y + viewport.height;
             }
-
+            double x = e.position.x, y = e.position.y;
+            if (e.isRelativeToParent()) {
+                x += e.parent.position.x;
+                y += e.parent.position.y;
+            }
+            double vx = position.x, vy = position.y, vw = viewport.width, vh = viewport.height;
+            if (rotation != 0.0) {
+                double radius = Math.hypot(vw, vh);
+                vx -= (radius - vw) * 0.5;
+                vy -= (radius - vh) * 0.5;
+                vw = vh = radius;
+            }
+            return x + e.width >= vx && x <= vx + vw
+                    && y + e.height >= vy && y <= vy + vh;
         }
     }
 
     /**
-     * A future object to be used into the PhysicEngine to define new constrains,
+     * An object used into the PhysicEngine to define new constrains,
      * to apply effects on Entity intersecting with the Influencer area.
      * <p>
-     * This {@link Influencer} would be able to  apply new force (magnetic, wind, etc...) on the
+     * This {@link Influencer} is able to apply new force (magnetic, wind, etc...) on the
      * {@link Entity}, and dynamically change the default {@link Entity}'s {@link Material}.
-     *
-     * @author Frédéric Delorme
-     * @since 1.0.2
+     * <ul>
+     * <li><code>force</code> a constant force applied to any entity in the area (wind, water current),</li>
+     * <li><code>attraction</code> a force pulling entities to the area center (magnetic, when positive)
+     * or pushing them away (when negative),</li>
+     * <li><code>gravityFactor</code> a factor applied to the world gravity (low-gravity, water),</li>
+     * <li><code>overrideMaterial</code> the {@link Material} replacing the entity's one while in the area.</li>
+     * </ul>
+     * <p>
+     * An {@link Influencer} must be added to the {@link World} with {@link World#add(Influencer)}. If its position
+     * or size is changed after, {@link World#invalidateInfluencers()} must be called.
+     * <p>
+     * Some statistics are maintained on each update: the number of entities affected and the time spent
+     * to apply the influencer effects.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.2
      */
     public class Influencer extends Entity {
+        Vector2D force = new Vector2D(0, 0);
+        double attraction = 0.0;
+        double gravityFactor = 1.0;
+        Material overrideMaterial = null;
+
+        int affected = 0;
+        long timeSpent = 0;
 
         public Influencer(String name) {
             super(name);
+            ((AbstractEntity<?>) this).physicType = PhysicType.STATIC;
+            this.type = EntityType.NONE;
+        }
+
+        public Influencer setForce(double fx, double fy) {
+            this.force.setLocation(fx, fy);
+            return this;
+        }
+
+        public Influencer setAttraction(double a) {
+            this.attraction = a;
+            return this;
+        }
+
+        public Influencer setGravityFactor(double gf) {
+            this.gravityFactor = gf;
+            return this;
+        }
+
+        public Influencer setOverrideMaterial(Material m) {
+            this.overrideMaterial = m;
+            return this;
+        }
+
+        /**
+         * Check if the point (x,y) is in the area of this {@link Influencer}.
+         *
+         * @param x horizontal position to be checked
+         * @param y vertical position to be checked
+         * @return true if the point is in the area.
+         */
+        public boolean contains(double x, double y) {
+            return x >= position.x && x <= position.x + width
+                    && y >= position.y && y <= position.y + height;
+        }
+
+        /**
+         * Apply the influencer force and attraction on the {@link Entity} e.
+         *
+         * @param e    the entity to be influenced.
+         * @param time the time factor for this update.
+         */
+        void apply(Entity e, double time) {
+            long start = System.nanoTime();
+            double invMass = e.mass != 0 ? 1.0 / e.mass : 1.0;
+            e.velocity.x += force.x * time * invMass;
+            e.velocity.y += force.y * time * invMass;
+            if (attraction != 0.0) {
+                double dx = (position.x + width * 0.5) - (e.position.x + e.width * 0.5);
+                double dy = (position.y + height * 0.5) - (e.position.y + e.height * 0.5);
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if (d > 1.0) {
+                    e.velocity.x += dx / d * attraction * time * invMass;
+                    e.velocity.y += dy / d * attraction * time * invMass;
+                }
+            }
+            if (overrideMaterial != null) {
+                e.influenceMaterial = overrideMaterial;
+            }
+            affected++;
+            timeSpent += System.nanoTime() - start;
+        }
+
+        void resetStats() {
+            affected = 0;
+            timeSpent = 0;
+        }
+
+        /**
+         * @return the number of entities affected by this influencer on the last update.
+         */
+        public int getAffectedCount() {
+            return affected;
+        }
+
+        /**
+         * @return the time (in nanoseconds) spent to apply this influencer effects on the last update.
+         */
+        public long getTimeSpent() {
+            return timeSpent;
+        }
+
+        @Override
+        public void appendDebugInfo(DebugInfo info) {
+            super.appendDebugInfo(info);
+            StringBuilder inf = info.line().append("inf:").append(affected).append('/');
+            appendFixed(inf, timeSpent / 1000000.0, 3);
+            inf.append("ms");
+        }
+    }
+
+    /**
+     * The {@link AnimationClip} is the immutable definition of a sprite animation: its frames, the time each frame
+     * is displayed, and the looping attribute.
+     * <p>
+     * Frame times are prefix-summed at creation, so the frame to display for any elapsed time is found with a
+     * binary search. One clip is shared by all the {@link Animation} playing it.
+     * </p>
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class AnimationClip {
+        final BufferedImage[] frames;
+        final long[] frameTimes;
+        final long[] frameEnds;
+        final long duration;
+        final boolean loop;
+
+        public AnimationClip(BufferedImage[] f, long[] frameTimes, boolean loop) {
+            this.frames = f;
+            this.frameTimes = frameTimes;
+            this.frameEnds = new long[frameTimes.length];
+            long t = 0;
+            for (int i = 0; i < frameTimes.length; i++) {
+                t += Math.max(1, frameTimes[i]);
+                frameEnds[i] = t;
+            }
+            this.duration = t;
+            this.loop = loop;
+        }
+
+        /**
+         * Retrieve the index of the frame displayed at time <code>t</code> from the clip start.
+         *
+         * @param t the time in the clip, in ms, between 0 and the clip duration.
+         * @return the frame index.
+         */
+        public int indexAt(double t) {
+            int lo = 0;
+            int hi = frameEnds.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (frameEnds[mid] > t) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+
+        public int getFrameCount() {
+            return frames.length;
+        }
+
+        public long getDuration() {
+            return duration;
         }
     }
 
     /**
      * This {@link Animation} object set the Frames as a sprite animation.
      * <p>
-     * It contains 2 main buffers; image and time.
+     * It is a lightweight playback cursor on a shared {@link AnimationClip} containing the frames and times.
      * The {@link Animation} can be played in an infinite loop, and can end at a defined point.
      * This Animation object can be attributed to an {@link Entity}. the corresponding frame
      * will be used in place of the {@link Entity#image}
      * </p>
+     * <p>
+     * The elapsed time is carried over from one frame to the next, so the animation stays frame accurate whatever
+     * the update rate, even when several frames are elapsed in one update.
+     * </p>
      *
      * @author Frédéric Delorme
      * @since 1.0.1
      */
     public class Animation {
-        BufferedImage[] frames;
+        AnimationClip clip;
         int index = 0;
-        boolean loop = true;
+        boolean loop;
         boolean end = false;
 
         double speed = 1.0;
 
-        long animationTime = 0;
-        private long[] frameTimes;
+        double animationTime = 0;
 
-        public Animation(BufferedImage[] f, long[] frameTimes) {
-            this.frames = f;
-            this.frameTimes = frameTimes;
+        public Animation(AnimationClip clip) {
+            this.clip = clip;
+            this.loop = clip.loop;
+        }
 
+        public Animation(BufferedImage[] f, long[] frameTimes) {
+            this(new AnimationClip(f, frameTimes, true));
         }
 
         public Animation setLoop(boolean b) {
@@ -1167,53 +1988,178 @@ public class Game extends JPanel {
         }
 
         public BufferedImage getFrame() {
-            if (index < frames.length && frames[index] != null) {
-                return frames[index];
+            if (index < clip.frames.length && clip.frames[index] != null) {
+                return clip.frames[index];
             } else {
                 return null;
             }
         }
 
         public void update(long elapsed) {
+            if (end) {
+                return;
+            }
             this.animationTime += (elapsed * speed);
-            if (this.animationTime > this.frameTimes[this.index]) {
-                this.animationTime = 0;
-                if (this.index + 1 < this.frames.length) {
-                    this.index++;
+            if (this.animationTime >= clip.duration) {
+                if (this.loop) {
+                    this.animationTime %= clip.duration;
                 } else {
-                    if (this.loop) {
-                        this.index = 0;
-                    } else {
-                        this.end = true;
-                    }
+                    this.animationTime = clip.duration;
+                    this.index = clip.frames.length - 1;
+                    this.end = true;
+                    return;
                 }
             }
+            this.index = clip.indexAt(animationTime);
         }
 
         public Animation reset() {
             index = 0;
+            animationTime = 0;
+            end = false;
+            return this;
+        }
+
+        public AnimationClip getClip() {
+            return clip;
+        }
+
+        /**
+         * Replace the played clip (e.g. on a hot-reload), keeping the current playback time.
+         *
+         * @param c the new clip to be played.
+         * @return this Animation.
+         */
+        public Animation setClip(AnimationClip c) {
+            this.clip = c;
+            this.loop = c.loop;
+            if (animationTime >= c.duration) {
+                animationTime = loop ? animationTime % c.duration : c.duration;
+            }
+            this.end = !loop && animationTime >= c.duration;
+            this.index = end ? c.frames.length - 1 : c.indexAt(animationTime);
             return this;
         }
     }
 
     /**
      * The {@link Animations} class is a utility to load a bunch of animation defined into a properties file
-     * and store in a cache corresponding {@link Animation} instances.
+     * and store in a cache corresponding {@link AnimationClip} instances. Each {@link Animations#get(String)}
+     * returns a new {@link Animation} playing the cached clip, so entities never share their playback state.
      *
      * @author Frédéric Delorme
      * @since 1.0.1
      */
     public class Animations {
-        Map<String, Animation> animations = new HashMap<>();
+        Map<String, AnimationClip> animations = new HashMap<>();
+        /**
+         * The text definition of each animation, to detect the changed ones on reload.
+         */
+        Map<String, String> definitions = new ConcurrentHashMap<>();
 
         /**
-         * Initialize a bunch of animation fom the animationFile properties.
+         * Initialize a bunch of animation fom the animationFile properties, or from its binary
+         * {@link AnimationBundle} if one has been built from the same file content.
          *
          * @param animationFile the properties file defining all the animations with their frames and times.
          * @see Animations#loadFromFile(String)
+         * @see Animations#loadFromBundle(String)
          */
         public Animations(String animationFile) {
-            loadFromFile(animationFile);
+            long start = System.nanoTime();
+            boolean bundled = loadFromBundle(animationFile);
+            if (!bundled) {
+                loadFromFile(animationFile);
+            }
+            System.out.printf("INFO : file=%s : %d animations loaded from %s in %d ms%n",
+                    animationFile,
+                    animations.size(),
+                    bundled ? "bundle" : "properties",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            watchExternalFile(animationFile);
+        }
+
+        /**
+         * Override animations with the external <code>my-[animation file]</code> file beside the JAR if it exists,
+         * and watch it with the {@link HotReloader} to reload the changed animations while the game is running.
+         *
+         * @param animationFile the classpath path of the animations properties file.
+         */
+        private void watchExternalFile(String animationFile) {
+            try {
+                Path external = Configuration.getJarSidePath(
+                        "my-" + animationFile.substring(animationFile.lastIndexOf('/') + 1));
+                if (Files.exists(external)) {
+                    apply(parseChanges(external));
+                }
+                if (Optional.ofNullable(hotReloader).isPresent()) {
+                    hotReloader.watch(external, file -> {
+                        Map<String, AnimationClip> changes = parseChanges(file);
+                        return changes.isEmpty() ? null : () -> apply(changes);
+                    });
+                }
+            } catch (URISyntaxException e) {
+                System.err.printf("ERROR : file=%s : unable to locate external animations file: %s%n",
+                        animationFile, e.getMessage());
+            }
+        }
+
+        /**
+         * Parse an animations properties file and create the clips of the animations whose definition has changed.
+         * This method does not change the played animations, and can be called from any thread.
+         *
+         * @param file the animations properties file to be parsed.
+         * @return the map of new clips for the changed animations.
+         */
+        public Map<String, AnimationClip> parseChanges(Path file) {
+            Map<String, AnimationClip> changes = new HashMap<>();
+            Properties anims = new Properties();
+            try (FileReader reader = new FileReader(file.toFile())) {
+                anims.load(reader);
+            } catch (IOException e) {
+                System.err.printf("ERROR : file=%s : unable to read animations: %s%n", file, e.getMessage());
+                return changes;
+            }
+            for (Map.Entry<Object, Object> e : anims.entrySet()) {
+                String animName = (String) e.getKey();
+                String animFrames = (String) e.getValue();
+                if (!animFrames.equals(definitions.get(animName))) {
+                    try {
+                        String[] args = animFrames.split(";");
+                        changes.put(animName, loadAnimation(
+                                args[0],
+                                args[1].equals("loop"),
+                                args[2].substring("{".length(), args[2].length() - "}".length()).split("\\+")));
+                        definitions.put(animName, animFrames);
+                    } catch (RuntimeException ex) {
+                        System.err.printf("ERROR : file=%s : wrong definition for animation %s: %s%n",
+                                file, animName, ex.getMessage());
+                    }
+                }
+            }
+            return changes;
+        }
+
+        /**
+         * Replace the changed clips, in the cache and in all the entities {@link Animation} playing them,
+         * keeping their playback time.
+         *
+         * @param changes the map of new clips for the changed animations.
+         */
+        public void apply(Map<String, AnimationClip> changes) {
+            for (Map.Entry<String, AnimationClip> c : changes.entrySet()) {
+                AnimationClip old = animations.put(c.getKey(), c.getValue());
+                if (old != null) {
+                    for (Entity e : entities.values()) {
+                        for (Animation a : e.animations.values()) {
+                            if (a.clip == old) {
+                                a.setClip(c.getValue());
+                            }
+                        }
+                    }
+                }
+                System.out.printf("INFO: Reload the animation '%s'%n", c.getKey());
+            }
         }
 
         /**
@@ -1250,17 +2196,18 @@ public class Game extends JPanel {
         private void loadFromFile(String animationFile) {
             Properties anims = new Properties();
             try {
-                anims.load(this.getClass().getResourceAsStream(animationFile));
+                anims.load(resources.getStream(animationFile));
                 for (Map.Entry<Object, Object> e : anims.entrySet()) {
                     String animName = (String) e.getKey();
                     String animFrames = (String) e.getValue();
 
                     String[] args = animFrames.split(";");
-                    Animation anim = loadAnimation(
+                    AnimationClip anim = loadAnimation(
                             args[0],
                             args[1].equals("loop"),
                             args[2].substring("{".length(), args[2].length() - "}".length()).split("\\+"));
                     animations.put(animName, anim);
+                    definitions.put(animName, animFrames);
                 }
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -1269,14 +2216,73 @@ public class Game extends JPanel {
         }
 
         /**
-         * Create one {@link Animation} instance according to the prepared data.
+         * Load the animations from the memory-mapped {@link AnimationBundle} file built for the animationFile.
+         * Sprite sheets are copied from the bundle raw pixels into the {@link Resources} cache, and clip frames are
+         * sub-images of those sheets.
+         *
+         * @param animationFile the properties file the bundle has been built from.
+         * @return true if the bundle exists and is up-to-date with the properties file, else false.
+         */
+        private boolean loadFromBundle(String animationFile) {
+            try {
+                Path bundle = AnimationBundle.getBundlePath(animationFile);
+                if (!Files.exists(bundle)) {
+                    return false;
+                }
+                try (FileChannel fc = FileChannel.open(bundle, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+                    if (buffer.getInt() != AnimationBundle.MAGIC
+                            || buffer.getInt() != AnimationBundle.VERSION
+                            || buffer.getLong() != AnimationBundle.checksum(resources.getStream(animationFile))) {
+                        System.out.printf("WARNING : file=%s : animation bundle %s is outdated, ignored.%n",
+                                animationFile, bundle);
+                        return false;
+                    }
+                    BufferedImage[] sheets = new BufferedImage[buffer.getInt()];
+                    int animCount = buffer.getInt();
+                    for (int i = 0; i < sheets.length; i++) {
+                        String path = AnimationBundle.readString(buffer);
+                        int w = buffer.getInt();
+                        int h = buffer.getInt();
+                        int[] pixels = new int[w * h];
+                        IntBuffer ib = buffer.asIntBuffer();
+                        ib.get(pixels);
+                        buffer.position(buffer.position() + pixels.length * Integer.BYTES);
+                        sheets[i] = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+                        sheets[i].getRaster().setDataElements(0, 0, w, h, pixels);
+                        resources.resources.putIfAbsent(path, sheets[i]);
+                    }
+                    for (int a = 0; a < animCount; a++) {
+                        String name = AnimationBundle.readString(buffer);
+                        BufferedImage sheet = sheets[buffer.getInt()];
+                        boolean loop = buffer.get() == 1;
+                        BufferedImage[] imgs = new BufferedImage[buffer.getInt()];
+                        long[] frameTimes = new long[imgs.length];
+                        for (int f = 0; f < imgs.length; f++) {
+                            imgs[f] = sheet.getSubimage(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+                            frameTimes[f] = buffer.getInt();
+                        }
+                        animations.put(name, new AnimationClip(imgs, frameTimes, loop));
+                    }
+                }
+                return true;
+            } catch (URISyntaxException | IOException | RuntimeException e) {
+                System.err.printf("ERROR : file=%s : unable to read animation bundle: %s%n",
+                        animationFile, e.getMessage());
+                animations.clear();
+                return false;
+            }
+        }
+
+        /**
+         * Create one {@link AnimationClip} instance according to the prepared data.
          *
          * @param imageSrcPath image file where to extract frames
-         * @param loop         set the looping attribute for the {@link Animation} instance
+         * @param loop         set the looping attribute for the {@link AnimationClip} instance
          * @param framesDef    a list of frame definition <code>"x,y,w,h,t"</code>.
-         * @return the corresponding initialized {@link Animation} instance.
+         * @return the corresponding initialized {@link AnimationClip} instance.
          */
-        public Animation loadAnimation(String imageSrcPath, boolean loop, String[] framesDef) {
+        public AnimationClip loadAnimation(String imageSrcPath, boolean loop, String[] framesDef) {
             BufferedImage[] imgs = new BufferedImage[framesDef.length];
             long[] frameTimes = new long[framesDef.length];
             BufferedImage imageSource = resources.getImage(imageSrcPath);
@@ -1293,931 +2299,6293 @@ public class Game extends JPanel {
                 i++;
             }
 
-            return new Game.Animation(imgs, frameTimes).setLoop(loop);
+            return new AnimationClip(imgs, frameTimes, loop);
         }
 
         /**
-         * Retrieve a specific animation on its name from tha Animations cache.
+         * Create a new {@link Animation} playing a specific animation clip on its name from tha Animations cache.
          *
          * @param animKey the name of the animation to be retrieved.
-         * @return the corresponding initialized {@link Animation} instance.
+         * @return a new {@link Animation} instance, or null if no clip exists with this name.
          */
         public Animation get(String animKey) {
+            AnimationClip clip = animations.get(animKey);
+            return clip != null ? new Animation(clip) : null;
+        }
+
+        /**
+         * Retrieve a specific animation clip on its name from tha Animations cache.
+         *
+         * @param animKey the name of the animation clip to be retrieved.
+         * @return the corresponding shared {@link AnimationClip} instance.
+         */
+        public AnimationClip getClip(String animKey) {
             return animations.get(animKey);
         }
     }
 
-    public class UserInput implements KeyListener {
-
-        private final Game game;
-        private boolean[] keys = new boolean[65636];
-
-        private List<UserActionListener> listeners = new ArrayList<>();
+    /**
+     * The {@link AnimationBundle} is a binary, pre-sliced version of an animations properties file, built at build
+     * time (see the <code>build.sh bundle</code> step), to load animations at startup without any text parsing
+     * nor PNG decoding.
+     * <p>
+     * The bundle file is memory-mapped and contains, in big-endian order:
+     * <pre>
+     * header    : magic(int) version(int) checksum(long) sheetCount(int) animationCount(int)
+     * sheets    : { path(string) width(int) height(int) pixels(int[width*height] ARGB) }*
+     * animations: { name(string) sheet(int) loop(byte) frameCount(int) { x(int) y(int) w(int) h(int) time(int) }* }*
+     * </pre>
+     * A string is written as its length(short) and its standard UTF-8 bytes (see {@link #writeString}).
+     * The checksum is the CRC32 of the animations properties file content, so a bundle built from an outdated file
+     * is ignored, and the {@link Animations} falls back to the properties file.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public static class AnimationBundle {
+        public static final int MAGIC = 0x53474142;
+        public static final int VERSION = 2;
 
-        public UserInput(Game game) {
-            this.game = game;
+        /**
+         * Build the bundle file for an animations properties file.
+         *
+         * @param args <code>[animations properties classpath file] [bundle output file]</code>
+         * @throws IOException if the properties file, one of its images, or the bundle file can not be read or written.
+         */
+        public static void main(String[] args) throws IOException {
+            long start = System.nanoTime();
+            write(args[0], Path.of(args[1]));
+            System.out.printf("INFO : file=%s : animation bundle %s built in %d ms%n",
+                    args[0], args[1], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         }
 
-        public void add(UserActionListener kl) {
-            listeners.add(kl);
+        /**
+         * Compute the CRC32 checksum of a resource content.
+         *
+         * @param resource the stream on the resource content, closed after reading.
+         */
+        public static long checksum(InputStream resource) throws IOException {
+            try (InputStream is = resource) {
+                if (is == null) {
+                    throw new IOException("Resource not found");
+                }
+                CRC32 crc = new CRC32();
+                crc.update(is.readAllBytes());
+                return crc.getValue();
+            }
         }
 
-        @Override
-        public void keyTyped(KeyEvent e) {
-            listeners.forEach(k -> k.keyTyped(e));
+        /**
+         * Retrieve the bundle file path for an animations properties file, beside the JAR (or the classes directory).
+         *
+         * @param animationFile the classpath path of the animations properties file.
+         * @return the path to the corresponding <code>.bin</code> bundle file.
+         */
+        public static Path getBundlePath(String animationFile) throws URISyntaxException {
+            String name = animationFile.substring(animationFile.lastIndexOf('/') + 1);
+            name = (name.endsWith(".properties") ? name.substring(0, name.length() - ".properties".length()) : name)
+                    + ".bin";
+            return Configuration.getJarSidePath(name);
         }
 
-        @Override
-        public void keyPressed(KeyEvent e) {
-            keys[e.getKeyCode()] = true;
-            listeners.forEach(k -> k.keyPressed(e));
+        /**
+         * Parse the animations properties file and write the corresponding bundle file.
+         *
+         * @param animationFile the classpath path of the animations properties file.
+         * @param out           the bundle file to be written.
+         * @throws IOException if the properties file, one of its images, or the bundle file can not be read or written.
+         */
+        public static void write(String animationFile, Path out) throws IOException {
+            Properties anims = new Properties();
+            try (InputStream is = Game.class.getResourceAsStream(animationFile)) {
+                anims.load(is);
+            }
+            Map<String, Integer> sheetIndex = new LinkedHashMap<>();
+            List<BufferedImage> sheets = new ArrayList<>();
+            ByteArrayOutputStream animsData = new ByteArrayOutputStream();
+            DataOutputStream ad = new DataOutputStream(animsData);
+            for (Map.Entry<Object, Object> e : anims.entrySet()) {
+                String[] args = ((String) e.getValue()).split(";");
+                if (!sheetIndex.containsKey(args[0])) {
+                    sheetIndex.put(args[0], sheets.size());
+                    sheets.add(ImageIO.read(Game.class.getResourceAsStream(args[0])));
+                }
+                String[] framesDef = args[2].substring("{".length(), args[2].length() - "}".length()).split("\\+");
+                writeString(ad, (String) e.getKey());
+                ad.writeInt(sheetIndex.get(args[0]));
+                ad.writeByte(args[1].equals("loop") ? 1 : 0);
+                ad.writeInt(framesDef.length);
+                for (String f : framesDef) {
+                    for (String v : f.split(",")) {
+                        ad.writeInt(Integer.parseInt(v.trim()));
+                    }
+                }
+            }
+            ad.flush();
+
+            Files.createDirectories(out.toAbsolutePath().getParent());
+            try (DataOutputStream dos = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(out)))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                dos.writeLong(checksum(Game.class.getResourceAsStream(animationFile)));
+                dos.writeInt(sheets.size());
+                dos.writeInt(anims.size());
+                for (Map.Entry<String, Integer> s : sheetIndex.entrySet()) {
+                    BufferedImage img = sheets.get(s.getValue());
+                    writeString(dos, s.getKey());
+                    dos.writeInt(img.getWidth());
+                    dos.writeInt(img.getHeight());
+                    for (int argb : img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth())) {
+                        dos.writeInt(argb);
+                    }
+                }
+                animsData.writeTo(dos);
+            }
         }
 
-        @Override
-        public void keyReleased(KeyEvent e) {
-            keys[e.getKeyCode()] = false;
-            listeners.forEach(k -> k.keyReleased(e));
+        /**
+         * Write a string as its length and its standard UTF-8 bytes, unlike {@link DataOutputStream#writeUTF(String)}
+         * which writes modified UTF-8, to be read by {@link #readString(ByteBuffer)}.
+         *
+         * @param dos the stream to write to.
+         * @param s   the string to be written.
+         * @throws IOException if the string is too long or can not be written.
+         */
+        static void writeString(DataOutputStream dos, String s) throws IOException {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            if (b.length > 0xffff) {
+                throw new IOException("String too long: " + s.substring(0, 32) + "...");
+            }
+            dos.writeShort(b.length);
+            dos.write(b);
         }
 
-        private boolean getKey(int k) {
-            return keys[k];
+        static String readString(ByteBuffer buffer) {
+            byte[] b = new byte[buffer.getShort() & 0xffff];
+            buffer.get(b);
+            return new String(b, StandardCharsets.UTF_8);
         }
     }
 
-    public interface UserActionListener extends KeyListener {
-        default void keyTyped(KeyEvent e) {
-
-        }
+    /**
+     * The {@link AssetPack} is a single indexed file containing all the game resources, built at build time
+     * (see the <code>build.sh bundle</code> step) and memory-mapped at startup, to read assets without a zip
+     * inflate per file from the JAR.
+     * <p>
+     * The pack file contains, in big-endian order:
+     * <pre>
+     * header : magic(int) version(int) entryCount(int)
+     * index  : { path(string) offset(long) length(int) crc(int) }*
+     * blobs  : the uncompressed content of each entry, at its offset from the file start.
+     * </pre>
+     * Entry paths are classpath-like paths (e.g. <code>/images/sprites01.png</code>). The index is loaded into a
+     * map, and each entry is read through a view of the mapped buffer, without any copy.
+     * <p>
+     * The crc is the CRC32 of the entry content. Before its first read, an entry is checked against the resource of
+     * the same path on the classpath (see {@link #isCurrent(String)}), so a pack built from outdated resources is
+     * ignored, as the {@link AnimationBundle} is.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public static class AssetPack {
+        public static final int MAGIC = 0x53474150;
+        public static final int VERSION = 2;
+        public static final String DEFAULT_PACK_FILE = "assets.pack";
+        /**
+         * Values of the check state of an index entry.
+         */
+        private static final long UNCHECKED = 0, CURRENT = 1, OUTDATED = -1;
 
-        default void keyPressed(KeyEvent e) {
+        private final ByteBuffer buffer;
+        private final Map<String, long[]> index = new HashMap<>();
 
+        /**
+         * Memory-map and index an asset pack file.
+         *
+         * @param pack the path to the pack file.
+         * @throws IOException if the file can not be mapped or is not an asset pack.
+         */
+        public AssetPack(Path pack) throws IOException {
+            try (FileChannel fc = FileChannel.open(pack, StandardOpenOption.READ)) {
+                buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("File " + pack + " is not a supported asset pack");
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                index.put(AnimationBundle.readString(buffer), new long[]{
+                        buffer.getLong(), buffer.getInt(), buffer.getInt() & 0xffffffffL, UNCHECKED});
+            }
         }
 
-        default void keyReleased(KeyEvent e) {
-
+        /**
+         * Build the asset pack file from a resources directory.
+         *
+         * @param args <code>[resources directory] [pack output file]</code>
+         * @throws IOException if a resource can not be read or the pack file can not be written.
+         */
+        public static void main(String[] args) throws IOException {
+            long start = System.nanoTime();
+            int count = write(Path.of(args[0]), Path.of(args[1]));
+            System.out.printf("INFO : dir=%s : asset pack %s built with %d entries in %d ms%n",
+                    args[0], args[1], count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         }
-    }
 
-    public class GameActionListener implements UserActionListener {
-
-        private Game game;
-
-        public GameActionListener(Game g) {
-            this.game = g;
+        /**
+         * Write all the files from the resources directory into one pack file.
+         *
+         * @param root the resources directory.
+         * @param out  the pack file to be written.
+         * @return the number of entries written into the pack.
+         * @throws IOException if a resource can not be read or the pack file can not be written.
+         */
+        public static int write(Path root, Path out) throws IOException {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+            List<String> names = new ArrayList<>();
+            long indexSize = 0;
+            for (Path f : files) {
+                String name = "/" + root.relativize(f).toString().replace(File.separatorChar, '/');
+                names.add(name);
+                indexSize += 2 + name.getBytes(StandardCharsets.UTF_8).length + Long.BYTES + 2 * Integer.BYTES;
+            }
+            Files.createDirectories(out.toAbsolutePath().getParent());
+            try (DataOutputStream dos = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(out)))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                dos.writeInt(files.size());
+                long offset = 3 * Integer.BYTES + indexSize;
+                for (int i = 0; i < files.size(); i++) {
+                    long size = Files.size(files.get(i));
+                    AnimationBundle.writeString(dos, names.get(i));
+                    dos.writeLong(offset);
+                    dos.writeInt((int) size);
+                    dos.writeInt((int) AnimationBundle.checksum(Files.newInputStream(files.get(i))));
+                    offset += size;
+                }
+                for (Path f : files) {
+                    Files.copy(f, dos);
+                }
+            }
+            return files.size();
         }
 
-        @Override
-        public void keyReleased(KeyEvent e) {
+        public boolean contains(String path) {
+            return index.containsKey(path);
+        }
 
-            if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                game.setExit(true);
+        /**
+         * Check if an entry has the same content as the resource of the same path on the classpath. The checksum of
+         * a JAR resource is read from its JAR entry, without inflating it. An entry without classpath resource is
+         * current. Each entry is only checked once.
+         *
+         * @param path the classpath-like path of the entry.
+         * @return true if the entry is current, false if it is outdated or not in this pack.
+         */
+        public boolean isCurrent(String path) {
+            long[] entry = index.get(path);
+            if (entry == null) {
+                return false;
             }
-            if (e.getKeyCode() == KeyEvent.VK_PAUSE
-                    || e.getKeyCode() == KeyEvent.VK_P) {
-                game.setPause(!game.isPause());
+            if (entry[3] == UNCHECKED) {
+                URL url = Game.class.getResource(path);
+                try {
+                    entry[3] = url == null || checksum(url) == entry[2] ? CURRENT : OUTDATED;
+                } catch (IOException e) {
+                    System.err.printf("ERROR : file=%s : unable to check the resource: %s%n", path, e.getMessage());
+                    entry[3] = OUTDATED;
+                }
             }
+            return entry[3] == CURRENT;
         }
-    }
 
-    public class MeteoSwitcher implements UserActionListener {
-        @Override
-        public void keyReleased(KeyEvent e) {
-            if (e.getKeyCode() == KeyEvent.VK_M) {
-                meteoValue = (meteoValue + 1 < 3 ? meteoValue + 1 : 0);
-                //SnowBehavior snow = (SnowBehavior) behaviors.get("snowBehavior");
-                RainBehavior rain = (RainBehavior) behaviors.get("rainBehavior");
-                Entity particles = entities.get("particles");
-                switch (meteoValue) {
-                    case 0 -> {
-                        rain.stop();
-                        //snow.stop();
-                    }
-                    case 1 -> {
-                        rain.start();
-                        //snow.stop();
-                    }
-                    case 2 -> {
-                        rain.stop();
-                        //snow.start();
-                    }
-                }
+        private static long checksum(URL url) throws IOException {
+            URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection jar && jar.getJarEntry().getCrc() != -1) {
+                return jar.getJarEntry().getCrc();
             }
+            return AnimationBundle.checksum(connection.getInputStream());
         }
-    }
 
-    public class DebugSwitcher implements UserActionListener {
+        /**
+         * Retrieve a read-only view on the content of an entry.
+         *
+         * @param path the classpath-like path of the entry.
+         * @return the entry content, or null if the pack does not contain this path.
+         */
+        public ByteBuffer get(String path) {
+            long[] entry = index.get(path);
+            return entry != null ? buffer.slice((int) entry[0], (int) entry[1]) : null;
+        }
 
-        private Game game;
+        /**
+         * Open an {@link InputStream} reading the content of an entry straight from the mapped file.
+         *
+         * @param path the classpath-like path of the entry.
+         * @return an InputStream on the entry content, or null if the pack does not contain this path.
+         */
+        public InputStream open(String path) {
+            ByteBuffer b = get(path);
+            if (b == null) {
+                return null;
+            }
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return b.hasRemaining() ? b.get() & 0xff : -1;
+                }
 
-        public DebugSwitcher(Game g) {
-            this.game = g;
+                @Override
+                public int read(byte[] dst, int off, int len) {
+                    if (!b.hasRemaining()) {
+                        return len == 0 ? 0 : -1;
+                    }
+                    int n = Math.min(len, b.remaining());
+                    b.get(dst, off, n);
+                    return n;
+                }
+
+                @Override
+                public int available() {
+                    return b.remaining();
+                }
+            };
         }
 
-        @Override
-        public void keyReleased(KeyEvent e) {
-            if (e.getKeyCode() == KeyEvent.VK_D) {
-                game.setDebugLevel(game.getDebugLevel() + 1 < 5 ? game.getDebugLevel() + 1 : 0);
-            }
+        public int size() {
+            return index.size();
         }
     }
 
     /**
-     * The {@link World} object defining the limit of the {@link PhysicEngine} universe here the {@link Entity} will evolve.
+     * The {@link GameEvent} is the base class of the events published through the {@link EventBus}.
      * <p>
-     * It will contain a default a gravity, and a play area where Entity moves.
+     * Events are pooled: an event is obtained with {@link EventBus#obtain(Class)}, filled, published, and given back
+     * to its pool once dispatched. An {@link EventHandler} must not keep a reference to the event it receives.
      *
      * @author Frédéric Delorme
-     * @since 1.0.1
+     * @since 1.0.3
      */
-    public class World {
-        private double gravity = 0.981;
-        private Dimension playArea;
+    public abstract static class GameEvent {
+        EventBus.Channel<?> channel;
 
-        List<Influencer> influencers = new ArrayList<>();
+        /**
+         * Clear the event values before being given back to its pool.
+         */
+        protected abstract void reset();
+    }
 
-        public World(double g, Dimension pa) {
-            this.gravity = g;
-            this.playArea = pa;
-        }
+    /**
+     * The {@link EventHandler} receives the dispatched events of one type.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    @FunctionalInterface
+    public interface EventHandler<T extends GameEvent> {
+        void onEvent(T event);
+    }
 
-        public Dimension getPlayArea() {
-            return this.playArea;
-        }
+    /**
+     * The {@link KeyInputEvent} carries a key event received by the {@link UserInput} on the AWT thread.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public static class KeyInputEvent extends GameEvent {
+        int id;
+        KeyEvent keyEvent;
 
-        public double getGravity() {
-            return this.gravity;
+        @Override
+        protected void reset() {
+            id = 0;
+            keyEvent = null;
         }
 
-        public World add(Influencer i) {
-            this.influencers.add(i);
-            return this;
+        /**
+         * @return the AWT event type, {@link KeyEvent#KEY_PRESSED}, {@link KeyEvent#KEY_RELEASED} or
+         * {@link KeyEvent#KEY_TYPED}.
+         */
+        public int getId() {
+            return id;
         }
 
-        public List<Influencer> getInfluencers() {
-            return influencers;
+        public KeyEvent getKeyEvent() {
+            return keyEvent;
         }
     }
 
     /**
-     * The {@link Material} class is defining some physic attributes to be applied on some {@link Entity},
-     * and used in the {@link PhysicEngine} Newton's laws processing to move {@link Entity}.
-     * <p>
-     * It is used to define common physic attributes like {@link Material#elasticity}, {@link Material#density}
-     * and {@link Material#friction}.
+     * The {@link MeteoEvent} is published when the meteo is switched.
      *
      * @author Frédéric Delorme
-     * @since 1.0.0
+     * @since 1.0.3
      */
-    public class Material {
+    public static class MeteoEvent extends GameEvent {
+        int meteo;
 
-        String name;
-        double density;
-        double elasticity;
-        double friction;
+        @Override
+        protected void reset() {
+            meteo = 0;
+        }
 
-        public Material(String name, double d, double e, double f) {
-            this.name = name;
-            this.density = d;
-            this.elasticity = e;
-            this.friction = f;
+        /**
+         * @return the new meteo: 0 for none, 1 for rain and 2 for snow.
+         */
+        public int getMeteo() {
+            return meteo;
         }
     }
 
     /**
-     * Vector2D
+     * The {@link EventBus} queues the published {@link GameEvent}s and dispatches them in batches at the phase
+     * boundaries of the game loop: before the input processing, and after the update.
+     * <p>
+     * Each event type has its own channel, with its pool of events, its queue and its array of subscribers.
+     * Events can be published from any thread, they are always dispatched on the game thread, in the publishing
+     * order of each type and in the registration order of the types. An event published while dispatching is
+     * dispatched at the next phase boundary.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
      */
-    public class Vector2D {
-        public double x, y;
+    public static class EventBus {
+        private final Map<Class<?>, Channel<?>> channels = new HashMap<>();
+        private Channel<?>[] channelList = new Channel<?>[0];
+        private long dispatchTime;
+        private int dispatchCount;
+        private int queueDepth;
 
-        public Vector2D() {
-            x = 0.0f;
-            y = 0.0f;
+        /**
+         * Declare a new event type.
+         *
+         * @param type    the event class.
+         * @param factory the factory creating the events when the pool is empty.
+         * @return this EventBus.
+         */
+        public <T extends GameEvent> EventBus register(Class<T> type, Supplier<T> factory) {
+            if (!channels.containsKey(type)) {
+                Channel<T> c = new Channel<>(factory);
+                channels.put(type, c);
+                channelList = Arrays.copyOf(channelList, channelList.length + 1);
+                channelList[channelList.length - 1] = c;
+            }
+            return this;
         }
 
         /**
-         * @param x
-         * @param y
+         * Add a handler to the events of a type.
+         *
+         * @param type    the registered event class.
+         * @param handler the handler to be called for each event of this type.
+         * @return this EventBus.
          */
-        public Vector2D(double x, double y) {
-            super();
-            this.x = x;
-            this.y = y;
+        public <T extends GameEvent> EventBus subscribe(Class<T> type, EventHandler<? super T> handler) {
+            channel(type).subscribe(handler);
+            return this;
         }
 
-        public Vector2D add(Vector2D v) {
-            return new Vector2D(x + v.x, y + v.y);
+        /**
+         * Retrieve an event from the pool of its type, to be filled and published.
+         *
+         * @param type the registered event class.
+         * @return an event ready to be filled.
+         */
+        public <T extends GameEvent> T obtain(Class<T> type) {
+            return channel(type).obtain();
         }
 
-        public Vector2D substract(Vector2D v1) {
-            return new Vector2D(x - v1.x, y - v1.y);
+        /**
+         * Queue an obtained event to be dispatched at the next phase boundary.
+         *
+         * @param event the event retrieved with {@link #obtain(Class)}.
+         */
+        public void publish(GameEvent event) {
+            event.channel.publish(event);
         }
 
-        public Vector2D multiply(double f) {
-            return new Vector2D(x * f, y * f);
+        @SuppressWarnings("unchecked")
+        private <T extends GameEvent> Channel<T> channel(Class<T> type) {
+            Channel<T> c = (Channel<T>) channels.get(type);
+            if (c == null) {
+                throw new IllegalArgumentException("Event type " + type.getSimpleName() + " is not registered");
+            }
+            return c;
         }
 
-        public double dot(Vector2D v1) {
-
-            return v1.x * y + v1.y * x;
+        /**
+         * Dispatch all the queued events to their subscribers. To be called by the game thread only.
+         */
+        public void dispatch() {
+            long start = System.nanoTime();
+            for (Channel<?> c : channelList) {
+                int n = c.dispatch();
+                dispatchCount += n;
+                queueDepth = Math.max(queueDepth, n);
+            }
+            dispatchTime += System.nanoTime() - start;
         }
 
-        public double length() {
-            return Math.sqrt(x * x + y * y);
+        /**
+         * @return the time spent dispatching events in microseconds since the last call, and reset it.
+         */
+        public double getDispatchTime() {
+            double time = dispatchTime / 1000.0;
+            dispatchTime = 0;
+            return time;
         }
 
-        public double distance(Vector2D v1) {
-            return substract(v1).length();
+        /**
+         * @return the number of dispatched events since the last call, and reset it.
+         */
+        public int getDispatchCount() {
+            int count = dispatchCount;
+            dispatchCount = 0;
+            return count;
         }
 
-        public Vector2D divide(double f) {
-            return new Vector2D(x / f, y / f);
+        /**
+         * @return the deepest queue dispatched since the last call, and reset it.
+         */
+        public int getQueueDepth() {
+            int depth = queueDepth;
+            queueDepth = 0;
+            return depth;
         }
 
-        public Vector2D normalize() {
-            return divide(length());
-        }
+        /**
+         * The {@link Channel} of one event type: its subscribers, its double-buffered queue and its pool.
+         */
+        static class Channel<T extends GameEvent> {
+            private final Supplier<T> factory;
+            private EventHandler<? super T>[] handlers = newHandlers(0);
+            private GameEvent[] queue = new GameEvent[16];
+            private GameEvent[] dispatching = new GameEvent[16];
+            private GameEvent[] pool = new GameEvent[16];
+            private int queueSize;
+            private int poolSize;
+
+            Channel(Supplier<T> factory) {
+                this.factory = factory;
+            }
 
-        public Vector2D negate() {
-            return new Vector2D(-x, -y);
-        }
+            @SuppressWarnings("unchecked")
+            private static <T extends GameEvent> EventHandler<? super T>[] newHandlers(int n) {
+                return (EventHandler<? super T>[]) new EventHandler<?>[n];
+            }
 
-        public double angle(Vector2D v1) {
-            double vDot = this.dot(v1) / (this.length() * v1.length());
-            if (vDot < -1.0)
-                vDot = -1.0;
-            if (vDot > 1.0)
-                vDot = 1.0;
-            return Math.acos(vDot);
+            synchronized void subscribe(EventHandler<? super T> handler) {
+                EventHandler<? super T>[] h = newHandlers(handlers.length + 1);
+                System.arraycopy(handlers, 0, h, 0, handlers.length);
+                h[handlers.length] = handler;
+                handlers = h;
+            }
 
-        }
+            @SuppressWarnings("unchecked")
+            synchronized T obtain() {
+                T event;
+                if (poolSize > 0) {
+                    event = (T) pool[--poolSize];
+                    pool[poolSize] = null;
+                } else {
+                    event = factory.get();
+                    event.channel = this;
+                }
+                return event;
+            }
 
-        public Vector2D addAll(List<Vector2D> forces) {
-            Vector2D sum = new Vector2D();
-            for (Vector2D f : forces) {
-                sum = sum.add(f);
+            synchronized void publish(GameEvent event) {
+                if (queueSize == queue.length) {
+                    queue = Arrays.copyOf(queue, queue.length * 2);
+                }
+                queue[queueSize++] = event;
+            }
+
+            @SuppressWarnings("unchecked")
+            int dispatch() {
+                GameEvent[] batch;
+                int n;
+                EventHandler<? super T>[] h;
+                synchronized (this) {
+                    n = queueSize;
+                    if (n == 0) {
+                        return 0;
+                    }
+                    batch = queue;
+                    queue = dispatching.length >= batch.length ? dispatching : new GameEvent[batch.length];
+                    dispatching = batch;
+                    queueSize = 0;
+                    h = handlers;
+                }
+                for (int i = 0; i < n; i++) {
+                    T event = (T) batch[i];
+                    for (EventHandler<? super T> handler : h) {
+                        try {
+                            handler.onEvent(event);
+                        } catch (RuntimeException e) {
+                            System.err.printf("ERROR : event %s not processed by %s: %s%n",
+                                    event.getClass().getSimpleName(), handler, e.getMessage());
+                        }
+                    }
+                }
+                synchronized (this) {
+                    if (poolSize + n > pool.length) {
+                        pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + n));
+                    }
+                    for (int i = 0; i < n; i++) {
+                        batch[i].reset();
+                        pool[poolSize++] = batch[i];
+                        batch[i] = null;
+                    }
+                }
+                return n;
             }
-            return sum;
         }
+    }
 
-        public String toString() {
-            return String.format("{x:%04.2f,y:%04.2f}", x, y);
+    /**
+     * The {@link UserInput} keeps the state of the keys, and publishes the key events received on the AWT thread
+     * as {@link KeyInputEvent}s, forwarded to the {@link UserActionListener}s on the game thread when the
+     * {@link EventBus} dispatches them.
+     */
+    public class UserInput implements KeyListener {
+
+        private final Game game;
+        private boolean[] keys = new boolean[65636];
+
+        private UserActionListener[] listeners = new UserActionListener[0];
+
+        public UserInput(Game game) {
+            this.game = game;
+            game.events.subscribe(KeyInputEvent.class, this::onKeyInput);
         }
 
-        public Vector2D maximize(double maxAccel) {
-            if (Math.abs(x) > maxAccel) {
-                x = Math.signum(x) * maxAccel;
-            }
-            if (Math.abs(y) > maxAccel) {
-                y = Math.signum(y) * maxAccel;
-            }
-            return this;
+        public void add(UserActionListener kl) {
+            listeners = Arrays.copyOf(listeners, listeners.length + 1);
+            listeners[listeners.length - 1] = kl;
         }
 
-        public Vector2D maximize(double maxX, double maxY) {
-            if (Math.abs(x) > maxX) {
-                x = Math.signum(x) * maxX;
-            }
-            if (Math.abs(y) > maxY) {
-                y = Math.signum(y) * maxY;
-            }
-            return this;
+        @Override
+        public void keyTyped(KeyEvent e) {
+            publish(KeyEvent.KEY_TYPED, e);
         }
 
-        public Vector2D ceil(double ceilThreshod) {
-            x = Math.copySign((Math.abs(x) < ceilThreshod ? 0 : x), x);
-            y = Math.copySign((Math.abs(x) < ceilThreshod ? 0 : y), y);
-            return this;
+        @Override
+        public void keyPressed(KeyEvent e) {
+            keys[e.getKeyCode()] = true;
+            publish(KeyEvent.KEY_PRESSED, e);
         }
 
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null) {
-                return false;
-            }
-            if (getClass() != o.getClass()) {
-                return false;
-            }
-            Vector2D vo = (Vector2D) o;
-            return Objects.equals(x, vo.x) && Objects.equals(y, vo.y);
+        @Override
+        public void keyReleased(KeyEvent e) {
+            keys[e.getKeyCode()] = false;
+            publish(KeyEvent.KEY_RELEASED, e);
         }
 
-        public double getX() {
-            return x;
+        private void publish(int id, KeyEvent e) {
+            KeyInputEvent event = game.events.obtain(KeyInputEvent.class);
+            event.id = id;
+            event.keyEvent = e;
+            game.events.publish(event);
         }
 
-        public double getY() {
-            return y;
+        private void onKeyInput(KeyInputEvent event) {
+            KeyEvent e = event.keyEvent;
+            for (UserActionListener l : listeners) {
+                switch (event.id) {
+                    case KeyEvent.KEY_PRESSED -> l.keyPressed(e);
+                    case KeyEvent.KEY_RELEASED -> l.keyReleased(e);
+                    default -> l.keyTyped(e);
+                }
+            }
         }
 
-        public void setLocation(double x, double y) {
-            this.x = x;
-            this.y = y;
+        private boolean getKey(int k) {
+            return keys[k];
         }
     }
 
-    public interface Behavior<Entity> {
-        public default void input(UserInput ui, Entity e) {
+    public interface UserActionListener extends KeyListener {
+        default void keyTyped(KeyEvent e) {
 
         }
 
-        public default void update(long elapsed, Entity e) {
+        default void keyPressed(KeyEvent e) {
 
         }
 
-        public default void draw(Graphics2D g, Entity e) {
+        default void keyReleased(KeyEvent e) {
 
         }
     }
 
-    public interface ParticleBehavior<T extends Entity> extends Behavior<T> {
-        String getName();
-
-        Particle create(T parent);
+    public class GameActionListener implements UserActionListener {
 
-        void start();
+        private Game game;
 
-        void stop();
+        public GameActionListener(Game g) {
+            this.game = g;
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+
+            if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                game.setExit(true);
+            }
+            if (e.getKeyCode() == KeyEvent.VK_PAUSE
+                    || e.getKeyCode() == KeyEvent.VK_P) {
+                game.setPause(!game.isPause());
+            }
+            if (e.getKeyCode() == KeyEvent.VK_F5) {
+                game.quickSave();
+            }
+            if (e.getKeyCode() == KeyEvent.VK_F9) {
+                game.quickLoad();
+            }
+            if (e.getKeyCode() == KeyEvent.VK_F12) {
+                game.switchCapture();
+            }
+        }
     }
 
     /**
-     * The {@link RainBehavior} is {@link ParticleBehavior} implementation to simulate Rain.
-     * rain drop will fall from sky (upper play area) to ground (lower play area).
-     * Rain drops are DOT with a blue half-transparent color.
+     * The {@link MeteoSwitcher} publishes a {@link MeteoEvent} with the next meteo each time the M key is released.
+     */
+    public class MeteoSwitcher implements UserActionListener {
+        @Override
+        public void keyReleased(KeyEvent e) {
+            if (e.getKeyCode() == KeyEvent.VK_M) {
+                MeteoEvent event = events.obtain(MeteoEvent.class);
+                event.meteo = (meteoValue + 1 < 3 ? meteoValue + 1 : 0);
+                events.publish(event);
+            }
+        }
+    }
+
+    public class DebugSwitcher implements UserActionListener {
+
+        private Game game;
+
+        public DebugSwitcher(Game g) {
+            this.game = g;
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            if (e.getKeyCode() == KeyEvent.VK_D) {
+                game.setDebugLevel(game.getDebugLevel() + 1 < 5 ? game.getDebugLevel() + 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * The {@link RewindController} scrubs through the ticks recorded in the {@link RewindBuffer}: PAGE UP steps
+     * back, PAGE DOWN steps forward (by 10 ticks with SHIFT), HOME and END go to the oldest and the latest recorded
+     * ticks. The game is paused while scrubbing, and resuming it records again from the restored tick.
      *
-     * @author Frédérc Delorme
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class RewindController implements UserActionListener {
+
+        private Game game;
+
+        public RewindController(Game g) {
+            this.game = g;
+        }
+
+        @Override
+        public void keyPressed(KeyEvent e) {
+            int step = e.isShiftDown() ? 10 : 1;
+            switch (e.getKeyCode()) {
+                case KeyEvent.VK_PAGE_UP -> game.rewind(-step);
+                case KeyEvent.VK_PAGE_DOWN -> game.rewind(step);
+                case KeyEvent.VK_HOME -> game.rewind(Integer.MIN_VALUE);
+                case KeyEvent.VK_END -> game.rewind(Integer.MAX_VALUE);
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * The {@link TileMap} is a grid of tiles drawn from a tileset image, used to build large levels without adding an
+     * {@link Entity} per tile.
+     * <p>
+     * The tile ids are stored in <code>short[]</code> chunks of {@link TileMap#CHUNK_SIZE}x{@link TileMap#CHUNK_SIZE}
+     * tiles, allocated on the first non-empty tile. The tile id 0 is the empty tile, and the tile id n is the n-th
+     * tile of the tileset, from left to right and top to bottom, starting at 1.
+     * <p>
+     * Each chunk is pre-rendered into an image when it becomes visible, kept in a bounded cache and re-rendered only
+     * after a {@link TileMap#setTile(int, int, int)} into it. The {@link TileMapDrawPlugin} only draws the chunks
+     * visible through the camera, so the drawing time does not depend on the map size.
+     * <p>
+     * Tiles can be declared solid: the {@link PhysicEngine} pushes the collidable entities out of them when the map is
+     * set to the {@link World} with {@link World#setTileMap(TileMap)}.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class TileMap extends Entity {
+        static final int CHUNK_SIZE = 16;
+        /**
+         * Maximum number of chunk images kept in the cache.
+         */
+        static final int MAX_CACHED_CHUNKS = 64;
+
+        final int tileWidth;
+        final int tileHeight;
+        final int columns;
+        final int rows;
+        private final BufferedImage tileset;
+        private final int tilesetColumns;
+        private final int chunkColumns;
+        private final int chunkRows;
+        private final short[][] chunks;
+        private final short[] chunkTileCounts;
+        private boolean[] solid = new boolean[0];
+
+        private final Map<Integer, BufferedImage> chunkImages = new LinkedHashMap<>(MAX_CACHED_CHUNKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+                if (size() > MAX_CACHED_CHUNKS) {
+                    freeImages.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        private final List<BufferedImage> freeImages = new ArrayList<>();
+        private int renderedChunks;
+
+        /**
+         * Create a new empty TileMap.
+         *
+         * @param name       name of this map entity.
+         * @param tileset    the image containing the tiles.
+         * @param tileWidth  width of a tile in pixels.
+         * @param tileHeight height of a tile in pixels.
+         * @param columns    number of tile columns of the map.
+         * @param rows       number of tile rows of the map.
+         */
+        public TileMap(String name, BufferedImage tileset, int tileWidth, int tileHeight, int columns, int rows) {
+            super(name);
+            this.tileset = tileset;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.columns = columns;
+            this.rows = rows;
+            this.tilesetColumns = tileset.getWidth() / tileWidth;
+            this.chunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            this.chunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            this.chunks = new short[chunkColumns * chunkRows][];
+            this.chunkTileCounts = new short[chunkColumns * chunkRows];
+            ((AbstractEntity<?>) this).physicType = PhysicType.STATIC;
+            this.type = EntityType.NONE;
+            this.width = columns * tileWidth;
+            this.height = rows * tileHeight;
+        }
+
+        /**
+         * Set the tile id at a map position, invalidating the image of its chunk.
+         *
+         * @param col the tile column.
+         * @param row the tile row.
+         * @param id  the tile id, 0 for an empty tile.
+         * @return this TileMap.
+         */
+        public TileMap setTile(int col, int row, int id) {
+            if (col < 0 || row < 0 || col >= columns || row >= rows) {
+                throw new IndexOutOfBoundsException("Tile " + col + "," + row + " is out of the map");
+            }
+            int c = (row / CHUNK_SIZE) * chunkColumns + col / CHUNK_SIZE;
+            short[] chunk = chunks[c];
+            if (chunk == null) {
+                if (id == 0) {
+                    return this;
+                }
+                chunk = chunks[c] = new short[CHUNK_SIZE * CHUNK_SIZE];
+            }
+            int i = (row % CHUNK_SIZE) * CHUNK_SIZE + col % CHUNK_SIZE;
+            if (chunk[i] != id) {
+                chunkTileCounts[c] += (chunk[i] == 0 ? 1 : 0) - (id == 0 ? 1 : 0);
+                chunk[i] = (short) id;
+                BufferedImage img = chunkImages.remove(c);
+                if (img != null) {
+                    freeImages.add(img);
+                }
+                if (chunkTileCounts[c] == 0) {
+                    chunks[c] = null;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Fill a rectangle of tiles with the same tile id.
+         *
+         * @return this TileMap.
+         */
+        public TileMap fill(int col, int row, int width, int height, int id) {
+            for (int r = row; r < row + height; r++) {
+                for (int c = col; c < col + width; c++) {
+                    setTile(c, r, id);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Retrieve the tile id at a map position.
+         *
+         * @return the tile id, 0 for an empty tile or a position out of the map.
+         */
+        public int getTile(int col, int row) {
+            if (col < 0 || row < 0 || col >= columns || row >= rows) {
+                return 0;
+            }
+            short[] chunk = chunks[(row / CHUNK_SIZE) * chunkColumns + col / CHUNK_SIZE];
+            return chunk == null ? 0 : chunk[(row % CHUNK_SIZE) * CHUNK_SIZE + col % CHUNK_SIZE];
+        }
+
+        /**
+         * Declare some tile ids as solid for the collision queries.
+         *
+         * @param ids the solid tile ids.
+         * @return this TileMap.
+         */
+        public TileMap setSolid(int... ids) {
+            for (int id : ids) {
+                if (id >= solid.length) {
+                    solid = Arrays.copyOf(solid, id + 1);
+                }
+                solid[id] = true;
+            }
+            return this;
+        }
+
+        /**
+         * @return true if the tile at a map position is solid.
+         */
+        public boolean isSolid(int col, int row) {
+            int id = getTile(col, row);
+            return id > 0 && id < solid.length && solid[id];
+        }
+
+        /**
+         * Check if a world area overlaps any solid tile.
+         *
+         * @return true if a solid tile is found in the area.
+         */
+        public boolean collides(double x, double y, double w, double h) {
+            return findSolid(col(x), lastCol(x + w), row(y), lastRow(y + h), false, true) >= 0;
+        }
+
+        /**
+         * Push an entity out of the solid tiles it overlaps, along the axis of its move since the last update,
+         * applying its material elasticity on its velocity.
+         *
+         * @param e the entity to be resolved.
+         * @return the contact flags on the entity sides, like {@link PhysicEngine} play area constraints.
+         */
+        public int resolve(Entity e) {
+            int contact = 0;
+            double w = e.width, h = e.height;
+            double dx = e.position.x - e.lastX;
+            double dy = e.position.y - e.lastY;
+            // horizontal move first, from the previous vertical position.
+            if (dx != 0) {
+                int found = findSolid(col(e.position.x), lastCol(e.position.x + w), row(e.lastY), lastRow(e.lastY + h),
+                        true, dx > 0);
+                if (found >= 0) {
+                    if (dx > 0) {
+                        e.position.x = position.x + found * tileWidth - w;
+                        contact |= 4;
+                    } else {
+                        e.position.x = position.x + (found + 1) * tileWidth;
+                        contact |= 1;
+                    }
+                    e.velocity.x = -(e.getMaterial().elasticity * e.velocity.x);
+                }
+            }
+            int found = findSolid(col(e.position.x), lastCol(e.position.x + w),
+                    row(e.position.y), lastRow(e.position.y + h),
+                    false, dy >= 0);
+            if (found >= 0) {
+                if (dy >= 0) {
+                    e.position.y = position.y + found * tileHeight - h;
+                    contact |= 8;
+                } else {
+                    e.position.y = position.y + (found + 1) * tileHeight;
+                    contact |= 2;
+                }
+                e.velocity.y = -(e.getMaterial().elasticity * e.velocity.y);
+            }
+            return contact;
+        }
+
+        private int col(double x) {
+            return (int) Math.floor((x - position.x) / tileWidth);
+        }
+
+        private int row(double y) {
+            return (int) Math.floor((y - position.y) / tileHeight);
+        }
+
+        /**
+         * @return the last column overlapped by an area ending at x, a column only touched at its left is excluded.
+         */
+        private int lastCol(double x) {
+            return (int) Math.ceil((x - position.x) / tileWidth) - 1;
+        }
+
+        private int lastRow(double y) {
+            return (int) Math.ceil((y - position.y) / tileHeight) - 1;
+        }
+
+        /**
+         * Search the first column (or row) containing a solid tile in a range of tiles.
+         *
+         * @param byColumn true to return a column, false to return a row.
+         * @param forward  true to scan from the lower index, false from the higher.
+         * @return the found column or row, or -1.
+         */
+        private int findSolid(int c0, int c1, int r0, int r1, boolean byColumn, boolean forward) {
+            c1 = Math.min(c1, columns - 1);
+            r1 = Math.min(r1, rows - 1);
+            c0 = Math.max(c0, 0);
+            r0 = Math.max(r0, 0);
+            int from = byColumn ? c0 : r0, to = byColumn ? c1 : r1;
+            for (int k = 0; k <= to - from; k++) {
+                int line = forward ? from + k : to - k;
+                int s0 = byColumn ? r0 : c0, s1 = byColumn ? r1 : c1;
+                for (int s = s0; s <= s1; s++) {
+                    if (byColumn ? isSolid(line, s) : isSolid(s, line)) {
+                        return line;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Draw the chunks of this map overlapping a world area.
+         *
+         * @param g the Graphics2D API, already transformed by the camera.
+         * @param x the area left in world coordinates.
+         * @param y the area top in world coordinates.
+         * @param w the area width.
+         * @param h the area height.
+         * @return the number of drawn chunks.
+         */
+        int drawArea(Graphics2D g, double x, double y, double w, double h) {
+            int chunkWidth = CHUNK_SIZE * tileWidth, chunkHeight = CHUNK_SIZE * tileHeight;
+            int cx0 = Math.max(0, (int) Math.floor((x - position.x) / chunkWidth));
+            int cy0 = Math.max(0, (int) Math.floor((y - position.y) / chunkHeight));
+            int cx1 = Math.min(chunkColumns - 1, (int) Math.floor((x + w - position.x) / chunkWidth));
+            int cy1 = Math.min(chunkRows - 1, (int) Math.floor((y + h - position.y) / chunkHeight));
+            int drawn = 0;
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int c = cy * chunkColumns + cx;
+                    if (chunks[c] != null) {
+                        g.drawImage(getChunkImage(c),
+                                (int) position.x + cx * chunkWidth, (int) position.y + cy * chunkHeight, null);
+                        drawn++;
+                    }
+                }
+            }
+            return drawn;
+        }
+
+        private BufferedImage getChunkImage(int c) {
+            BufferedImage img = chunkImages.get(c);
+            if (img == null) {
+                img = freeImages.isEmpty()
+                        ? new BufferedImage(CHUNK_SIZE * tileWidth, CHUNK_SIZE * tileHeight, BufferedImage.TYPE_INT_ARGB)
+                        : freeImages.remove(freeImages.size() - 1);
+                renderChunk(c, img);
+                chunkImages.put(c, img);
+            }
+            return img;
+        }
+
+        private void renderChunk(int c, BufferedImage img) {
+            Graphics2D g = img.createGraphics();
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, img.getWidth(), img.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            short[] chunk = chunks[c];
+            for (int i = 0; i < chunk.length; i++) {
+                int id = chunk[i];
+                if (id > 0) {
+                    int dx = (i % CHUNK_SIZE) * tileWidth, dy = (i / CHUNK_SIZE) * tileHeight;
+                    int sx = ((id - 1) % tilesetColumns) * tileWidth, sy = ((id - 1) / tilesetColumns) * tileHeight;
+                    g.drawImage(tileset,
+                            dx, dy, dx + tileWidth, dy + tileHeight,
+                            sx, sy, sx + tileWidth, sy + tileHeight,
+                            null);
+                }
+            }
+            g.dispose();
+            renderedChunks++;
+        }
+
+        /**
+         * @return the number of chunk images rendered since the map creation.
+         */
+        public int getRenderedChunks() {
+            return renderedChunks;
+        }
+    }
+
+    /**
+     * A {@link ParallaxLayer} is a background image scrolling slower (or faster) than the world, following the
+     * {@link Camera} position multiplied by its <code>factor</code>: 0.0 never moves, 1.0 moves as the world.
+     * <p>
+     * The source image is scaled once to the rendering buffer height, and kept in an opaque image when the source
+     * has no transparency. The layer can be repeated horizontally and/or vertically to wrap around the play area.
+     * On an axis where it is not repeated, the layer stops scrolling when its edge reaches the screen edge.
+     * Only the visible part of the scaled image is copied to the rendering buffer by the {@link ParallaxDrawPlugin}.
+     *
+     * <pre>
+     * ParallaxLayer far = new ParallaxLayer("far", resources.getImage("/images/backgrounds/forest.jpg"), 0.25)
+     *     .setRepeat(true, false);
+     * far.setPriority(0);
+     * add(far);
+     * </pre>
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class ParallaxLayer extends Entity {
+        private final BufferedImage source;
+        double factor;
+        boolean repeatX = true;
+        boolean repeatY = false;
+        private BufferedImage scaled;
+        private int scaledCount;
+
+        /**
+         * Create a new layer.
+         *
+         * @param name   name of this layer entity.
+         * @param source the background image.
+         * @param factor the camera move ratio applied to this layer.
+         */
+        public ParallaxLayer(String name, BufferedImage source, double factor) {
+            super(name);
+            this.source = source;
+            this.factor = factor;
+            ((AbstractEntity<?>) this).physicType = PhysicType.STATIC;
+            this.type = EntityType.NONE;
+            this.fixedToCamera = true;
+            this.width = source.getWidth();
+            this.height = source.getHeight();
+        }
+
+        public ParallaxLayer setFactor(double factor) {
+            this.factor = factor;
+            return this;
+        }
+
+        public ParallaxLayer setRepeat(boolean repeatX, boolean repeatY) {
+            this.repeatX = repeatX;
+            this.repeatY = repeatY;
+            return this;
+        }
+
+        /**
+         * Retrieve the source image scaled to a height, keeping its aspect ratio. The scaled image is only created
+         * again when the requested height changes.
+         *
+         * @param height the height of the rendering buffer.
+         * @return the scaled image.
+         */
+        BufferedImage getScaledImage(int height) {
+            if (scaled == null || scaled.getHeight() != height) {
+                int width = Math.max(1, (int) Math.round(source.getWidth() * (double) height / source.getHeight()));
+                scaled = new BufferedImage(width, height,
+                        source.getTransparency() == Transparency.OPAQUE
+                                ? BufferedImage.TYPE_INT_RGB
+                                : BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = scaled.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(source, 0, 0, width, height, null);
+                g.dispose();
+                setSize(width, height);
+                scaledCount++;
+            }
+            return scaled;
+        }
+
+        /**
+         * Draw the visible part of the layer for a camera position.
+         *
+         * @param g       the Graphics2D API, not transformed by the camera.
+         * @param cameraX the camera left position in world coordinates.
+         * @param cameraY the camera top position in world coordinates.
+         * @param w       the rendering buffer width.
+         * @param h       the rendering buffer height.
+         * @return the number of copied image parts.
+         */
+        int drawArea(Graphics2D g, double cameraX, double cameraY, int w, int h) {
+            BufferedImage img = getScaledImage(h);
+            int iw = img.getWidth(), ih = img.getHeight();
+            int ox = (int) Math.floor(cameraX * factor - position.x);
+            int oy = (int) Math.floor(cameraY * factor - position.y);
+            // a layer not repeated on an axis keeps its edges out of the screen on this axis.
+            int x0 = repeatX ? -Math.floorMod(ox, iw) : -Math.max(0, Math.min(ox, iw - w));
+            int y0 = repeatY ? -Math.floorMod(oy, ih) : -Math.max(0, Math.min(oy, ih - h));
+            int drawn = 0;
+            for (int dy = y0; dy < h && dy + ih > 0; dy += ih) {
+                for (int dx = x0; dx < w && dx + iw > 0; dx += iw) {
+                    int d1x = Math.max(dx, 0), d1y = Math.max(dy, 0);
+                    int d2x = Math.min(dx + iw, w), d2y = Math.min(dy + ih, h);
+                    g.drawImage(img,
+                            d1x, d1y, d2x, d2y,
+                            d1x - dx, d1y - dy, d2x - dx, d2y - dy,
+                            null);
+                    drawn++;
+                    if (!repeatX) {
+                        break;
+                    }
+                }
+                if (!repeatY) {
+                    break;
+                }
+            }
+            return drawn;
+        }
+
+        /**
+         * @return the number of times the source image has been scaled.
+         */
+        public int getScaledCount() {
+            return scaledCount;
+        }
+    }
+
+    /**
+     * The {@link World} object defining the limit of the {@link PhysicEngine} universe here the {@link Entity} will evolve.
+     * <p>
+     * It will contain a default a gravity, and a play area where Entity moves.
+     *
+     * @author Frédéric Delorme
      * @since 1.0.1
      */
-    public class RainBehavior implements ParticleBehavior<Particle> {
-        private final double speed;
-        private int batch = 10;
-        Dimension playArea;
-        boolean run = false;
-        List<Particle> drops = new ArrayList<>();
-        private long nbActive = 0;
+    public class World {
+        /**
+         * Size of a cell in the influencers spatial index.
+         */
+        static final int INFLUENCER_CELL_SIZE = 64;
+        private double gravity = 0.981;
+        private Dimension playArea;
+
+        List<Influencer> influencers = new ArrayList<>();
+        TileMap tileMap;
+
+        private boolean indexDirty = true;
+        private int gridWidth, gridHeight;
+        private int[] cellStart = new int[1];
+        private int[] cellItems = new int[0];
+
+        public World(double g, Dimension pa) {
+            this.gravity = g;
+            this.playArea = pa;
+        }
+
+        public Dimension getPlayArea() {
+            return this.playArea;
+        }
+
+        public double getGravity() {
+            return this.gravity;
+        }
+
+        /**
+         * Set the {@link TileMap} whose solid tiles constrain the collidable entities.
+         *
+         * @param tm the TileMap, or null to remove it.
+         * @return this World.
+         */
+        public World setTileMap(TileMap tm) {
+            this.tileMap = tm;
+            return this;
+        }
+
+        public TileMap getTileMap() {
+            return this.tileMap;
+        }
+
+        public World add(Influencer i) {
+            this.influencers.add(i);
+            this.indexDirty = true;
+            return this;
+        }
+
+        public List<Influencer> getInfluencers() {
+            return influencers;
+        }
+
+        /**
+         * Request a rebuild of the influencers spatial index, to be called when an {@link Influencer} has been
+         * moved or resized.
+         */
+        public void invalidateInfluencers() {
+            this.indexDirty = true;
+        }
+
+        /**
+         * Rebuild the influencers spatial index: a uniform grid over the play area, where each cell contains
+         * the index of the influencers overlapping it.
+         */
+        private void buildInfluencerIndex() {
+            gridWidth = Math.max(1, (playArea.width + INFLUENCER_CELL_SIZE - 1) / INFLUENCER_CELL_SIZE);
+            gridHeight = Math.max(1, (playArea.height + INFLUENCER_CELL_SIZE - 1) / INFLUENCER_CELL_SIZE);
+            int nbCells = gridWidth * gridHeight;
+            cellStart = new int[nbCells + 1];
+            int total = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                int[] fill = pass == 1 ? Arrays.copyOf(cellStart, nbCells) : null;
+                for (int i = 0; i < influencers.size(); i++) {
+                    Influencer inf = influencers.get(i);
+                    int cx1 = cell(inf.position.x, gridWidth), cy1 = cell(inf.position.y, gridHeight);
+                    int cx2 = cell(inf.position.x + inf.width, gridWidth);
+                    int cy2 = cell(inf.position.y + inf.height, gridHeight);
+                    for (int cy = cy1; cy <= cy2; cy++) {
+                        for (int cx = cx1; cx <= cx2; cx++) {
+                            if (pass == 0) {
+                                cellStart[cy * gridWidth + cx + 1]++;
+                                total++;
+                            } else {
+                                cellItems[fill[cy * gridWidth + cx]++] = i;
+                            }
+                        }
+                    }
+                }
+                if (pass == 0) {
+                    for (int c = 0; c < nbCells; c++) {
+                        cellStart[c + 1] += cellStart[c];
+                    }
+                    cellItems = new int[total];
+                }
+            }
+            indexDirty = false;
+        }
+
+        private int cell(double v, int max) {
+            return Math.min(max - 1, Math.max(0, (int) (v / INFLUENCER_CELL_SIZE)));
+        }
+
+        /**
+         * Retrieve all the {@link Influencer}s containing the point (x,y), through the spatial index.
+         *
+         * @param x   horizontal position
+         * @param y   vertical position
+         * @param out the list to be filled with found influencers (cleared before).
+         * @return the number of found influencers.
+         */
+        public int findInfluencers(double x, double y, List<Influencer> out) {
+            out.clear();
+            if (influencers.isEmpty()) {
+                return 0;
+            }
+            if (indexDirty) {
+                buildInfluencerIndex();
+            }
+            int c = cell(y, gridHeight) * gridWidth + cell(x, gridWidth);
+            for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                Influencer inf = influencers.get(cellItems[i]);
+                if (inf.isActive() && inf.contains(x, y)) {
+                    out.add(inf);
+                }
+            }
+            return out.size();
+        }
+    }
+
+    /**
+     * The {@link WorldSnapshot} is a compact and versioned binary copy of the state of all the game entities,
+     * encoded into a {@link ByteBuffer}, to be used for quick-save, rewind or test fixtures.
+     * <p>
+     * A full snapshot contains one record per entity: motion (position, velocity), state (flags,
+     * types, priority, size, mass, material, life) and extra data (parent, animation cursors, attributes and
+     * {@link Behavior} states). A delta snapshot is captured against a full baseline snapshot and only contains
+     * the record groups that changed since that baseline, plus the entities created after it.
+     * <p>
+     * The binary layout is:
+     * <pre>
+     * header   : magic(int) version(short) kind(byte) tick(long) recordCount(int)
+     *            stringBase(int) stringsOffset(int) materialBase(int) materialsOffset(int)
+     * full     : { length(int) name(int) motion state extraLength(int) extra }*
+     * delta    : { length(int) slot(int) [name(int) if slot=-1] mask(byte) [motion] [state] [extraLength(int) extra] }*
+     * state    : length(byte) flags(byte) type(byte) physicType(byte) fields(byte) [field]*
+     * materials: count(int) { name(int) density(double) elasticity(double) friction(double) }*
+     * strings  : count(int) { length(short) utf-8 bytes }*
+     * </pre>
+     * The state only contains the fields flagged in its <code>fields</code> byte, the other ones having their default
+     * value (no priority, contact, direction or resting ticks, a 16x16 size, a mass of 1, the first material and no
+     * life limit). The extra data of an entity without parent, animation, attribute or behavior is left empty.
+     * <p>
+     * All the strings (entity names, animation names, attribute keys...) and the materials are stored once in their
+     * table and referenced by their index. A delta snapshot extends its baseline tables from <code>stringBase</code>
+     * and <code>materialBase</code>. The tables of a snapshot are kept from one capture to the next, so capturing
+     * again the same entities into the same snapshot instance does not rebuild them.
+     * <p>
+     * Snapshots are restored onto the existing entities, matched on their name: entities are created by the game
+     * code with their images and behaviors, and the snapshot only restores their state.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class WorldSnapshot {
+        public static final int MAGIC = 0x53475753;
+        public static final short VERSION = 2;
+        static final byte FULL = 0;
+        static final byte DELTA = 1;
+        static final int MOTION = 1;
+        static final int STATE = 2;
+        static final int EXTRA = 4;
+        static final int MOTION_SIZE = 4 * Double.BYTES;
+        static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + 1 + Long.BYTES + 5 * Integer.BYTES;
+        /**
+         * Bits of the state fields which are not at their default value.
+         */
+        static final int PRIORITY = 1;
+        static final int CONTACT = 2;
+        static final int DIRECTION = 4;
+        static final int RESTING = 8;
+        static final int SIZE = 16;
+        static final int MASS = 32;
+        static final int MATERIAL = 64;
+        static final int LIFE = 128;
+
+        private static final EntityType[] TYPES = EntityType.values();
+        private static final PhysicType[] PHYSIC_TYPES = PhysicType.values();
+
+        private long restoreCount = 0;
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private ByteBuffer scratch = ByteBuffer.allocate(1024);
+        private byte kind = FULL;
+        private long tick;
+        private int recordCount;
+        private int stringBase;
+        private int materialBase;
+        private WorldSnapshot baseline;
+
+        private final List<String> strings = new ArrayList<>();
+        private final List<byte[]> encodedStrings = new ArrayList<>();
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<Material> materials = new ArrayList<>();
+        private final Map<String, Integer> materialIndex = new HashMap<>();
+        private String[] names = new String[0];
+        private int[] recordOffsets = new int[0];
+        private Map<String, Integer> slots;
+        private int slotCursor;
+
+        /**
+         * Capture the state of the entities into this snapshot, reusing its buffers.
+         *
+         * @param entities the entities to be captured.
+         * @param t        the game tick of this snapshot.
+         * @param base     the full snapshot to capture a delta against, or null to capture a full snapshot.
+         * @return this WorldSnapshot.
+         */
+        public WorldSnapshot capture(Collection<Entity> entities, long t, WorldSnapshot base) {
+            if (base != null && base.kind != FULL) {
+                throw new IllegalArgumentException("A delta snapshot must be captured against a full snapshot");
+            }
+            byte newKind = base == null ? FULL : DELTA;
+            int newBase = base == null ? 0 : base.strings.size();
+            int newMaterialBase = base == null ? 0 : base.materials.size();
+            if (newKind != kind || base != baseline || newBase != stringBase || newMaterialBase != materialBase
+                    || strings.size() > 2 * entities.size() + 1024
+                    || materials.size() > entities.size() + 256) {
+                clearTables();
+            }
+            this.tick = t;
+            this.baseline = base;
+            this.kind = newKind;
+            this.stringBase = newBase;
+            this.materialBase = newMaterialBase;
+            this.recordCount = 0;
+            this.slotCursor = 0;
+            if (kind == FULL) {
+                if (names.length < entities.size()) {
+                    names = new String[entities.size()];
+                    recordOffsets = new int[entities.size()];
+                }
+                slots = null;
+            }
+            buffer.clear();
+            buffer.position(HEADER_SIZE);
+            for (Entity e : entities) {
+                if (kind == FULL) {
+                    names[recordCount] = e.getName();
+                    recordOffsets[recordCount] = buffer.position();
+                    writeFull(e);
+                    recordCount++;
+                } else if (writeDelta(e)) {
+                    recordCount++;
+                }
+            }
+            int materialsOffset = buffer.position();
+            ensure(Integer.BYTES + materials.size() * (Integer.BYTES + 3 * Double.BYTES));
+            buffer.putInt(materials.size());
+            for (Material m : materials) {
+                buffer.putInt(string(m.name)).putDouble(m.density).putDouble(m.elasticity).putDouble(m.friction);
+            }
+            int stringsOffset = buffer.position();
+            ensure(Integer.BYTES);
+            buffer.putInt(strings.size());
+            for (byte[] b : encodedStrings) {
+                ensure(Short.BYTES + b.length);
+                buffer.putShort((short) b.length).put(b);
+            }
+            buffer.putInt(0, MAGIC)
+                    .putShort(4, VERSION)
+                    .put(6, kind)
+                    .putLong(7, tick)
+                    .putInt(15, recordCount)
+                    .putInt(19, stringBase)
+                    .putInt(23, stringsOffset)
+                    .putInt(27, materialBase)
+                    .putInt(31, materialsOffset);
+            buffer.flip();
+            return this;
+        }
+
+        private void writeFull(Entity e) {
+            scratch.clear();
+            writeMotion(scratch, e);
+            writeState(scratch, e);
+            int extraStart = scratch.position() + Integer.BYTES;
+            scratch.position(extraStart);
+            writeExtra(e);
+            int extraLength = scratch.position() - extraStart;
+            scratch.putInt(extraStart - Integer.BYTES, extraLength);
+            ensure(2 * Integer.BYTES + scratch.position());
+            buffer.putInt(Integer.BYTES + scratch.position());
+            buffer.putInt(string(e.getName()));
+            buffer.put(buffer.position(), scratch, 0, scratch.position());
+            buffer.position(buffer.position() + scratch.position());
+        }
+
+        private boolean writeDelta(Entity e) {
+            Integer slot = baseline.getSlot(e.getName(), slotCursor);
+            if (slot != null) {
+                slotCursor = slot + 1;
+            }
+            if (slot == null) {
+                scratch.clear();
+                writeMotion(scratch, e);
+                writeState(scratch, e);
+                int extraStart = scratch.position() + Integer.BYTES;
+                scratch.position(extraStart);
+                writeExtra(e);
+                scratch.putInt(extraStart - Integer.BYTES, scratch.position() - extraStart);
+                ensure(3 * Integer.BYTES + 1 + scratch.position());
+                buffer.putInt(2 * Integer.BYTES + 1 + scratch.position());
+                buffer.putInt(-1).putInt(string(e.getName())).put((byte) (MOTION | STATE | EXTRA));
+                buffer.put(buffer.position(), scratch, 0, scratch.position());
+                buffer.position(buffer.position() + scratch.position());
+                return true;
+            }
+            ByteBuffer bb = baseline.buffer;
+            int baseRecord = baseline.recordOffsets[slot] + 2 * Integer.BYTES;
+            scratch.clear();
+            writeMotion(scratch, e);
+            writeState(scratch, e);
+            int extraStart = scratch.position() + Integer.BYTES;
+            scratch.position(extraStart);
+            writeExtra(e);
+            int extraLength = scratch.position() - extraStart;
+            scratch.putInt(extraStart - Integer.BYTES, extraLength);
+
+            int stateSize = scratch.get(MOTION_SIZE) & 0xff;
+            int baseStateSize = bb.get(baseRecord + MOTION_SIZE) & 0xff;
+            int mask = 0;
+            if (!equalRange(scratch, 0, bb, baseRecord, MOTION_SIZE)) {
+                mask |= MOTION;
+            }
+            if (stateSize != baseStateSize
+                    || !equalRange(scratch, MOTION_SIZE, bb, baseRecord + MOTION_SIZE, stateSize)) {
+                mask |= STATE;
+            }
+            int baseExtra = baseRecord + MOTION_SIZE + baseStateSize;
+            if (bb.getInt(baseExtra) != extraLength
+                    || !equalRange(scratch, extraStart, bb, baseExtra + Integer.BYTES, extraLength)) {
+                mask |= EXTRA;
+            }
+            if (mask == 0) {
+                return false;
+            }
+            int start = buffer.position();
+            ensure(2 * Integer.BYTES + 1 + scratch.position());
+            buffer.putInt(0).putInt(slot).put((byte) mask);
+            if ((mask & MOTION) != 0) {
+                buffer.put(buffer.position(), scratch, 0, MOTION_SIZE);
+                buffer.position(buffer.position() + MOTION_SIZE);
+            }
+            if ((mask & STATE) != 0) {
+                buffer.put(buffer.position(), scratch, MOTION_SIZE, stateSize);
+                buffer.position(buffer.position() + stateSize);
+            }
+            if ((mask & EXTRA) != 0) {
+                int len = Integer.BYTES + extraLength;
+                buffer.put(buffer.position(), scratch, extraStart - Integer.BYTES, len);
+                buffer.position(buffer.position() + len);
+            }
+            buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+            return true;
+        }
+
+        private void writeMotion(ByteBuffer b, Entity e) {
+            b.putDouble(e.position.x).putDouble(e.position.y)
+                    .putDouble(e.velocity.x).putDouble(e.velocity.y);
+        }
+
+        private void writeState(ByteBuffer b, Entity e) {
+            int flags = (e.isActive() ? 1 : 0)
+                    | (e.fixedToCamera ? 2 : 0)
+                    | (e.isCollidable() ? 4 : 0)
+                    | (e.isFast() ? 8 : 0)
+                    | (e.sleeping ? 16 : 0)
+                    | (e.relativeToParent ? 32 : 0);
+            int mat = material(e.material);
+            int fields = (e.priority != 0 ? PRIORITY : 0)
+                    | (e.contact != 0 ? CONTACT : 0)
+                    | (e.direction != 0 ? DIRECTION : 0)
+                    | (e.restingTicks != 0 ? RESTING : 0)
+                    | (e.width != 16 || e.height != 16 ? SIZE : 0)
+                    | (e.mass != 1.0 ? MASS : 0)
+                    | (mat != 0 ? MATERIAL : 0)
+                    | (e.getDuration() != -1 || e.getLive() != 0 ? LIFE : 0);
+            int start = b.position();
+            b.put((byte) 0)
+                    .put((byte) flags)
+                    .put((byte) e.type.ordinal())
+                    .put((byte) e.getPhysicType().ordinal())
+                    .put((byte) fields);
+            if ((fields & PRIORITY) != 0) {
+                b.putInt(e.priority);
+            }
+            if ((fields & CONTACT) != 0) {
+                b.putInt(e.contact);
+            }
+            if ((fields & DIRECTION) != 0) {
+                b.putInt(e.direction);
+            }
+            if ((fields & RESTING) != 0) {
+                b.putInt(e.restingTicks);
+            }
+            if ((fields & SIZE) != 0) {
+                b.putDouble(e.width).putDouble(e.height);
+            }
+            if ((fields & MASS) != 0) {
+                b.putDouble(e.mass);
+            }
+            if ((fields & MATERIAL) != 0) {
+                b.putInt(mat);
+            }
+            if ((fields & LIFE) != 0) {
+                b.putLong(e.getDuration()).putLong(e.getLive());
+            }
+            b.put(start, (byte) (b.position() - start));
+        }
+
+        private void writeExtra(Entity e) {
+            if (e.parent == null && e.currentAnimation.isEmpty() && e.animations.isEmpty()
+                    && e.attributes.isEmpty() && e.behaviors.isEmpty()) {
+                return;
+            }
+            ensureScratch(3 * Integer.BYTES + Short.BYTES + e.animations.size() * 17);
+            scratch.putInt(e.parent != null ? string(e.parent.getName()) : -1);
+            scratch.putInt(string(e.currentAnimation));
+            scratch.putShort((short) e.animations.size());
+            for (Map.Entry<String, Animation> a : e.animations.isEmpty()
+                    ? Collections.<Map.Entry<String, Animation>>emptySet()
+                    : e.animations.entrySet()) {
+                scratch.putInt(string(a.getKey()))
+                        .putDouble(a.getValue().animationTime)
+                        .putInt(a.getValue().index)
+                        .put((byte) (a.getValue().end ? 1 : 0));
+            }
+            int countPos = scratch.position();
+            scratch.putShort((short) 0);
+            short count = 0;
+            for (Map.Entry<String, Object> a : e.attributes.isEmpty()
+                    ? Collections.<Map.Entry<String, Object>>emptySet()
+                    : e.attributes.entrySet()) {
+                ensureScratch(2 * Integer.BYTES + 1 + Long.BYTES);
+                Object v = a.getValue();
+                int key = string(a.getKey());
+                if (v instanceof Double d) {
+                    scratch.putInt(key).put((byte) 'D').putDouble(d);
+                } else if (v instanceof Integer i) {
+                    scratch.putInt(key).put((byte) 'I').putInt(i);
+                } else if (v instanceof Long l) {
+                    scratch.putInt(key).put((byte) 'J').putLong(l);
+                } else if (v instanceof Float f) {
+                    scratch.putInt(key).put((byte) 'F').putFloat(f);
+                } else if (v instanceof Boolean z) {
+                    scratch.putInt(key).put((byte) 'Z').put((byte) (z ? 1 : 0));
+                } else if (v instanceof String s) {
+                    scratch.putInt(key).put((byte) 'S').putInt(string(s));
+                } else {
+                    continue;
+                }
+                count++;
+            }
+            scratch.putShort(countPos, count);
+            ensureScratch(Short.BYTES);
+            scratch.putShort((short) e.behaviors.size());
+            for (int i = 0; i < e.behaviors.size(); i++) {
+                Behavior<Entity> b = e.behaviors.get(i);
+                int lengthPos = scratch.position();
+                ensureScratch(Integer.BYTES + 256);
+                scratch.putInt(0);
+                boolean saved = false;
+                while (!saved) {
+                    try {
+                        b.saveState(scratch, e);
+                        saved = true;
+                    } catch (BufferOverflowException ex) {
+                        scratch.position(lengthPos + Integer.BYTES);
+                        ensureScratch(scratch.capacity());
+                    }
+                }
+                scratch.putInt(lengthPos, scratch.position() - lengthPos - Integer.BYTES);
+            }
+        }
+
+        /**
+         * Restore the state of the entities from this snapshot. A delta snapshot first restores its baseline.
+         * The entities not existing in the snapshot are deactivated.
+         *
+         * @param entities the current game entities, on their name.
+         * @return the number of restored entity records.
+         */
+        public int restore(Map<String, Entity> entities) {
+            // marks are only unique for this snapshot: clear the ones left by any other snapshot.
+            for (Entity e : entities.values()) {
+                e.restoreMark = 0;
+            }
+            long mark = ++restoreCount;
+            int restored = restore(entities, mark);
+            for (Entity e : entities.values()) {
+                if (e.restoreMark != mark) {
+                    e.setActive(false);
+                }
+            }
+            return restored;
+        }
+
+        private int restore(Map<String, Entity> entities, long mark) {
+            int restored = 0;
+            if (kind == DELTA) {
+                restored = baseline.restore(entities, mark);
+            }
+            ByteBuffer b = buffer.duplicate();
+            b.position(HEADER_SIZE);
+            int count = b.getInt(15);
+            for (int r = 0; r < count; r++) {
+                int length = b.getInt();
+                int next = b.position() + length;
+                int mask = MOTION | STATE | EXTRA;
+                String name;
+                if (kind == FULL) {
+                    name = stringAt(b.getInt());
+                } else {
+                    int slot = b.getInt();
+                    name = slot >= 0 ? baseline.names[slot] : stringAt(b.getInt());
+                    mask = b.get();
+                }
+                Entity e = entities.get(name);
+                if (e != null) {
+                    e.restoreMark = mark;
+                    if ((mask & MOTION) != 0) {
+                        readMotion(b, e);
+                    }
+                    if ((mask & STATE) != 0) {
+                        readState(b, e);
+                    }
+                    if ((mask & EXTRA) != 0) {
+                        if (b.getInt() > 0) {
+                            readExtra(b, e, entities);
+                        } else {
+                            setParent(e, null);
+                            e.currentAnimation = "";
+                        }
+                    }
+                    restored++;
+                }
+                b.position(next);
+            }
+            return restored;
+        }
+
+        private void readMotion(ByteBuffer b, Entity e) {
+            e.position.x = b.getDouble();
+            e.position.y = b.getDouble();
+            e.velocity.x = b.getDouble();
+            e.velocity.y = b.getDouble();
+            e.lastX = e.position.x;
+            e.lastY = e.position.y;
+        }
+
+        private void readState(ByteBuffer b, Entity e) {
+            b.get();
+            int flags = b.get();
+            e.setActive((flags & 1) != 0);
+            e.fixedToCamera = (flags & 2) != 0;
+            e.setCollidable((flags & 4) != 0);
+            e.setFast((flags & 8) != 0);
+            e.sleeping = (flags & 16) != 0;
+            e.relativeToParent = (flags & 32) != 0;
+            e.type = TYPES[b.get()];
+            e.setPhysicType(PHYSIC_TYPES[b.get()]);
+            int fields = b.get();
+            e.priority = (fields & PRIORITY) != 0 ? b.getInt() : 0;
+            e.contact = (fields & CONTACT) != 0 ? b.getInt() : 0;
+            e.direction = (fields & DIRECTION) != 0 ? b.getInt() : 0;
+            e.restingTicks = (fields & RESTING) != 0 ? b.getInt() : 0;
+            if ((fields & SIZE) != 0) {
+                e.width = b.getDouble();
+                e.height = b.getDouble();
+            } else {
+                e.width = 16;
+                e.height = 16;
+            }
+            e.mass = (fields & MASS) != 0 ? b.getDouble() : 1.0;
+            Material m = materialAt((fields & MATERIAL) != 0 ? b.getInt() : 0);
+            if (!sameMaterial(m, e.material)) {
+                e.material = new Material(m.name, m.density, m.elasticity, m.friction);
+            }
+            if ((fields & LIFE) != 0) {
+                long duration = b.getLong();
+                e.setLife(duration, b.getLong());
+            } else {
+                e.setLife(-1, 0);
+            }
+        }
+
+        private void readExtra(ByteBuffer b, Entity e, Map<String, Entity> entities) {
+            int parent = b.getInt();
+            setParent(e, parent >= 0 ? entities.get(stringAt(parent)) : null);
+            e.currentAnimation = stringAt(b.getInt());
+            int animCount = b.getShort();
+            for (int i = 0; i < animCount; i++) {
+                Animation a = e.animations.get(stringAt(b.getInt()));
+                double time = b.getDouble();
+                int index = b.getInt();
+                boolean end = b.get() == 1;
+                if (a != null) {
+                    a.animationTime = time;
+                    a.index = Math.min(index, a.clip.frames.length - 1);
+                    a.end = end;
+                }
+            }
+            int attrCount = b.getShort();
+            for (int i = 0; i < attrCount; i++) {
+                String key = stringAt(b.getInt());
+                switch (b.get()) {
+                    case 'D' -> e.attributes.put(key, b.getDouble());
+                    case 'I' -> e.attributes.put(key, b.getInt());
+                    case 'J' -> e.attributes.put(key, b.getLong());
+                    case 'F' -> e.attributes.put(key, b.getFloat());
+                    case 'Z' -> e.attributes.put(key, b.get() == 1);
+                    default -> e.attributes.put(key, stringAt(b.getInt()));
+                }
+            }
+            int behaviorCount = b.getShort();
+            for (int i = 0; i < behaviorCount; i++) {
+                int length = b.getInt();
+                int next = b.position() + length;
+                if (i < e.behaviors.size() && length > 0) {
+                    int limit = b.limit();
+                    b.limit(next);
+                    e.behaviors.get(i).loadState(b, e);
+                    b.limit(limit);
+                }
+                b.position(next);
+            }
+        }
+
+        private void setParent(Entity e, Entity p) {
+            if (p != e.parent) {
+                if (e.parent != null) {
+                    e.parent.getChild().remove(e);
+                }
+                if (p != null) {
+                    p.addChild(e);
+                } else {
+                    e.parent = null;
+                }
+            }
+        }
+
+        /**
+         * Retrieve the slot of an entity record in this full snapshot. The entities are usually captured in the
+         * same order, so the record at the expected slot is checked before searching the name.
+         */
+        private Integer getSlot(String name, int expected) {
+            if (expected < recordCount && names[expected].equals(name)) {
+                return expected;
+            }
+            if (slots == null) {
+                slots = new HashMap<>(recordCount * 2);
+                for (int i = 0; i < recordCount; i++) {
+                    slots.put(names[i], i);
+                }
+            }
+            return slots.get(name);
+        }
+
+        private int string(String s) {
+            if (kind == DELTA) {
+                Integer i = baseline.stringIndex.get(s);
+                if (i != null) {
+                    return i;
+                }
+            }
+            Integer i = stringIndex.get(s);
+            if (i == null) {
+                i = strings.size();
+                strings.add(s);
+                encodedStrings.add(s.getBytes(StandardCharsets.UTF_8));
+                stringIndex.put(s, i);
+            }
+            return stringBase + i;
+        }
+
+        private String stringAt(int i) {
+            return i < stringBase ? baseline.strings.get(i) : strings.get(i - stringBase);
+        }
+
+        private int material(Material m) {
+            if (kind == DELTA) {
+                int i = baseline.findMaterial(m);
+                if (i >= 0) {
+                    return i;
+                }
+            }
+            int i = findMaterial(m);
+            if (i < 0) {
+                i = materials.size();
+                materials.add(new Material(m.name, m.density, m.elasticity, m.friction));
+                materialIndex.put(m.name, i);
+                string(m.name);
+            }
+            return materialBase + i;
+        }
+
+        /**
+         * Find a material of this snapshot table, first from its name, as the entities usually share a few materials.
+         */
+        private int findMaterial(Material m) {
+            Integer i = materialIndex.get(m.name);
+            if (i != null && sameMaterial(materials.get(i), m)) {
+                return i;
+            }
+            for (int j = 0; j < materials.size(); j++) {
+                if (sameMaterial(materials.get(j), m)) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+        private Material materialAt(int i) {
+            return i < materialBase ? baseline.materials.get(i) : materials.get(i - materialBase);
+        }
+
+        private static boolean sameMaterial(Material a, Material b) {
+            return a.name.equals(b.name)
+                    && a.density == b.density
+                    && a.elasticity == b.elasticity
+                    && a.friction == b.friction;
+        }
+
+        private void clearTables() {
+            strings.clear();
+            encodedStrings.clear();
+            stringIndex.clear();
+            materials.clear();
+            materialIndex.clear();
+        }
+
+        private static boolean equalRange(ByteBuffer a, int aOff, ByteBuffer b, int bOff, int len) {
+            int i = 0;
+            for (; i + Long.BYTES <= len; i += Long.BYTES) {
+                if (a.getLong(aOff + i) != b.getLong(bOff + i)) {
+                    return false;
+                }
+            }
+            for (; i < len; i++) {
+                if (a.get(aOff + i) != b.get(bOff + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensure(int n) {
+            if (buffer.remaining() < n) {
+                ByteBuffer nb = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + n));
+                buffer.flip();
+                nb.put(buffer);
+                buffer = nb;
+            }
+        }
+
+        private void ensureScratch(int n) {
+            if (scratch.remaining() < n) {
+                ByteBuffer nb = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + n));
+                scratch.flip();
+                nb.put(scratch);
+                scratch = nb;
+            }
+        }
+
+        /**
+         * Write this snapshot to a file. A delta snapshot needs its baseline to be restored.
+         *
+         * @param file the file to be written.
+         * @throws IOException if the file can not be written.
+         */
+        public void writeTo(Path file) throws IOException {
+            try (FileChannel fc = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer b = buffer.duplicate();
+                while (b.hasRemaining()) {
+                    fc.write(b);
+                }
+            }
+        }
+
+        /**
+         * Read a snapshot from a file.
+         *
+         * @param file the file to be read.
+         * @param base the baseline snapshot if the file contains a delta snapshot, else null.
+         * @return this WorldSnapshot.
+         * @throws IOException if the file can not be read or is not a supported snapshot.
+         */
+        public WorldSnapshot readFrom(Path file, WorldSnapshot base) throws IOException {
+            return read(ByteBuffer.wrap(Files.readAllBytes(file)), base, "File " + file);
+        }
+
+        /**
+         * Write this encoded snapshot at the position of the destination buffer.
+         *
+         * @param dst the buffer receiving the {@link #getSize()} bytes of the snapshot.
+         */
+        public void writeTo(ByteBuffer dst) {
+            dst.put(buffer.duplicate());
+        }
+
+        /**
+         * Read a snapshot from the remaining bytes of a buffer, copied into this snapshot.
+         *
+         * @param src  the buffer containing the encoded snapshot.
+         * @param base the baseline snapshot if the buffer contains a delta snapshot, else null.
+         * @return this WorldSnapshot.
+         * @throws IOException if the buffer does not contain a supported snapshot.
+         */
+        public WorldSnapshot readFrom(ByteBuffer src, WorldSnapshot base) throws IOException {
+            ByteBuffer b = buffer.capacity() >= src.remaining() ? buffer.clear() : ByteBuffer.allocate(src.remaining());
+            b.put(src.duplicate()).flip();
+            return read(b, base, "Buffer");
+        }
+
+        private WorldSnapshot read(ByteBuffer b, WorldSnapshot base, String source) throws IOException {
+            if (b.limit() < HEADER_SIZE || b.getInt(0) != MAGIC || b.getShort(4) != VERSION) {
+                throw new IOException(source + " is not a supported world snapshot");
+            }
+            this.buffer = b;
+            this.kind = b.get(6);
+            this.tick = b.getLong(7);
+            this.recordCount = b.getInt(15);
+            this.stringBase = b.getInt(19);
+            this.materialBase = b.getInt(27);
+            if (kind == DELTA && (base == null || base.strings.size() != stringBase
+                    || base.materials.size() != materialBase)) {
+                throw new IOException(source + " contains a delta snapshot, its baseline is required");
+            }
+            this.baseline = kind == DELTA ? base : null;
+            clearTables();
+            ByteBuffer t = b.duplicate();
+            t.position(b.getInt(23));
+            int count = t.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[t.getShort() & 0xffff];
+                t.get(bytes);
+                String str = new String(bytes, StandardCharsets.UTF_8);
+                stringIndex.put(str, strings.size());
+                strings.add(str);
+                encodedStrings.add(bytes);
+            }
+            t.position(b.getInt(31));
+            count = t.getInt();
+            for (int i = 0; i < count; i++) {
+                Material m = new Material(stringAt(t.getInt()), t.getDouble(), t.getDouble(), t.getDouble());
+                materialIndex.put(m.name, materials.size());
+                materials.add(m);
+            }
+            if (kind == FULL) {
+                names = new String[recordCount];
+                recordOffsets = new int[recordCount];
+                slots = null;
+                ByteBuffer r = b.duplicate();
+                r.position(HEADER_SIZE);
+                for (int i = 0; i < recordCount; i++) {
+                    recordOffsets[i] = r.position();
+                    int length = r.getInt();
+                    names[i] = stringAt(r.getInt());
+                    r.position(recordOffsets[i] + Integer.BYTES + length);
+                }
+            }
+            return this;
+        }
+
+        public boolean isDelta() {
+            return kind == DELTA;
+        }
+
+        public long getTick() {
+            return tick;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * @return the size in bytes of the encoded snapshot.
+         */
+        public int getSize() {
+            return buffer.limit();
+        }
+    }
+
+    /**
+     * The {@link RewindBuffer} records the last ticks of the game into a bounded ring of off-heap memory, to step
+     * back in time and inspect what happened.
+     * <p>
+     * Every {@link RewindBuffer#KEYFRAME_INTERVAL} ticks, or each time an 8th of the ring has been written, a full
+     * {@link WorldSnapshot} is recorded as a keyframe. Between two keyframes, only the entities whose motion or flags
+     * changed since the previous tick are recorded. When the ring is full, the oldest keyframe and its deltas are
+     * dropped.
+     * <p>
+     * Entities added to or removed from the game between two keyframes are recorded into the delta as joining or
+     * leaving ones, without forcing a new keyframe. Only the motion and flags of a joining entity are recorded
+     * until the next keyframe, and a leaving entity is deactivated when restored.
+     * <p>
+     * The off-heap memory is only allocated on the first recorded tick.
+     * <p>
+     * Seeking a tick restores its keyframe, then applies the deltas up to the requested tick. Recording again after
+     * seeking a past tick drops the recorded future.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class RewindBuffer {
+        static final int KEYFRAME_INTERVAL = 120;
+        static final int MAX_ENTRIES = 1 << 16;
+        static final byte KEYFRAME = 0;
+        static final byte DELTA = 1;
+        static final int ENTRY_HEADER = 1 + Long.BYTES + Integer.BYTES;
+        static final int RECORD_SIZE = 2 * Integer.BYTES + 4 * Double.BYTES + 1;
+
+        private final int size;
+        private ByteBuffer ring;
+        private final long[] ticks = new long[MAX_ENTRIES];
+        private final int[] offsets = new int[MAX_ENTRIES];
+        private final int[] lengths = new int[MAX_ENTRIES];
+        private final byte[] kinds = new byte[MAX_ENTRIES];
+        private final long[] keyframes = new long[MAX_ENTRIES];
+        private long first = 0;
+        private long next = 0;
+        private int writePos = 0;
+
+        private final WorldSnapshot capture = new WorldSnapshot();
+        private Entity[] table = new Entity[0];
+        private double[] shadow = new double[0];
+        private byte[] shadowFlags = new byte[0];
+        private int[] shadowContacts = new int[0];
+        private long[] seen = new long[0];
+        private int tableSize = -1;
+        private int[] joins = new int[16];
+        private byte[][] joinNames = new byte[16][];
+        private int[] leaves = new int[16];
+        private long recordStamp = 0;
+        private long recordedGeneration = 0;
+        private ByteBuffer records = ByteBuffer.allocate(0);
+        private long lastKeyframe = -1;
+        private long writtenSinceKeyframe = 0;
+
+        private final WorldSnapshot keyframe = new WorldSnapshot();
+        private Entity[] restoreTable = new Entity[0];
+        private long decodedKeyframe = -1;
+        private long cursor = -1;
+
+        private long recordTime;
+        private long recordCount;
+
+        /**
+         * Create a new RewindBuffer.
+         *
+         * @param size the size in bytes of the off-heap memory to allocate.
+         */
+        public RewindBuffer(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Record the state of the entities for this tick, checking the entities membership on each tick.
+         *
+         * @param entities the game entities.
+         * @param tick     the current game tick.
+         */
+        public void record(Collection<Entity> entities, long tick) {
+            record(entities, recordedGeneration + 1, tick);
+        }
+
+        /**
+         * Record the state of the entities for this tick. The entities joining and leaving are only searched for
+         * when the generation differs from the one of the previous tick.
+         *
+         * @param entities   the game entities.
+         * @param generation a counter changed on each change of the entities membership.
+         * @param tick       the current game tick.
+         */
+        public void record(Collection<Entity> entities, long generation, long tick) {
+            long start = System.nanoTime();
+            if (ring == null) {
+                ring = ByteBuffer.allocateDirect(size);
+            }
+            if (cursor >= 0) {
+                // recording from a past tick: the recorded future is dropped.
+                next = cursor + 1;
+                writePos = offsets[slot(cursor)] + lengths[slot(cursor)];
+                cursor = -1;
+                tableSize = -1;
+            }
+            if (tableSize < 0
+                    || next - lastKeyframe >= KEYFRAME_INTERVAL
+                    || writtenSinceKeyframe > ring.capacity() / 8) {
+                recordKeyframe(entities, tick);
+            } else {
+                recordDelta(entities, tick, generation != recordedGeneration);
+            }
+            recordedGeneration = generation;
+            recordTime += System.nanoTime() - start;
+            recordCount++;
+        }
+
+        private void recordKeyframe(Collection<Entity> entities, long tick) {
+            capture.capture(entities, tick, null);
+            int length = ENTRY_HEADER + capture.getSize();
+            if (!reserve(length)) {
+                tableSize = -1;
+                return;
+            }
+            int n = entities.size();
+            if (table.length < n) {
+                growTable(n);
+            }
+            Arrays.fill(table, n, table.length, null);
+            int i = 0;
+            for (Entity e : entities) {
+                table[i] = e;
+                e.rewindSlot = i;
+                shadow[4 * i] = e.position.x;
+                shadow[4 * i + 1] = e.position.y;
+                shadow[4 * i + 2] = e.velocity.x;
+                shadow[4 * i + 3] = e.velocity.y;
+                shadowFlags[i] = flags(e);
+                shadowContacts[i] = e.contact;
+                i++;
+            }
+            tableSize = n;
+            lastKeyframe = next;
+            writtenSinceKeyframe = 0;
+            ring.position(writePos + ENTRY_HEADER);
+            capture.writeTo(ring);
+            commit(KEYFRAME, tick, length, next);
+        }
+
+        private void growTable(int n) {
+            table = Arrays.copyOf(table, n);
+            shadow = Arrays.copyOf(shadow, 4 * n);
+            shadowFlags = Arrays.copyOf(shadowFlags, n);
+            shadowContacts = Arrays.copyOf(shadowContacts, n);
+            seen = Arrays.copyOf(seen, n);
+        }
+
+        /**
+         * Record the entities joining and leaving the table since the previous tick when the membership changed,
+         * then the changed motions.
+         * <p>
+         * A delta entry is made of the joining entities (slot and name), the leaving ones (slot) and the changed
+         * motion records.
+         */
+        private void recordDelta(Collection<Entity> entities, long tick, boolean membershipChanged) {
+            int joinCount = 0;
+            int joinBytes = 0;
+            int leaveCount = 0;
+            if (membershipChanged) {
+                long stamp = ++recordStamp;
+                for (Entity e : entities) {
+                    int slot = e.rewindSlot;
+                    if (slot < 0 || slot >= tableSize || table[slot] != e) {
+                        // a new entity: added at the end of the table, its motion is recorded below.
+                        if (tableSize == table.length) {
+                            growTable(Math.max(16, tableSize * 2));
+                        }
+                        slot = tableSize++;
+                        table[slot] = e;
+                        e.rewindSlot = slot;
+                        shadowFlags[slot] = -1;
+                        if (joinCount == joins.length) {
+                            joins = Arrays.copyOf(joins, joinCount * 2);
+                            joinNames = Arrays.copyOf(joinNames, joinCount * 2);
+                        }
+                        joins[joinCount] = slot;
+                        joinNames[joinCount] = e.getName().getBytes(StandardCharsets.UTF_8);
+                        joinBytes += Integer.BYTES + Short.BYTES + joinNames[joinCount].length;
+                        joinCount++;
+                    }
+                    seen[slot] = stamp;
+                }
+                for (int i = 0; i < tableSize; i++) {
+                    if (table[i] != null && seen[i] != stamp) {
+                        if (leaveCount == leaves.length) {
+                            leaves = Arrays.copyOf(leaves, leaveCount * 2);
+                        }
+                        leaves[leaveCount++] = i;
+                        table[i].rewindSlot = -1;
+                        table[i] = null;
+                    }
+                }
+            }
+            int length = ENTRY_HEADER + 3 * Integer.BYTES + joinBytes + leaveCount * Integer.BYTES
+                    + entities.size() * RECORD_SIZE;
+            if (!reserve(length)) {
+                tableSize = -1;
+                return;
+            }
+            if (lastKeyframe < first) {
+                // the keyframe of this delta has just been dropped to make room.
+                recordKeyframe(entities, tick);
+                return;
+            }
+            int pos = writePos + ENTRY_HEADER;
+            ring.putInt(pos, joinCount);
+            pos += Integer.BYTES;
+            for (int j = 0; j < joinCount; j++) {
+                byte[] name = joinNames[j];
+                ring.putInt(pos, joins[j]).putShort(pos + 4, (short) name.length).put(pos + 6, name);
+                pos += Integer.BYTES + Short.BYTES + name.length;
+                joinNames[j] = null;
+            }
+            ring.putInt(pos, leaveCount);
+            pos += Integer.BYTES;
+            for (int l = 0; l < leaveCount; l++) {
+                ring.putInt(pos, leaves[l]);
+                pos += Integer.BYTES;
+            }
+            int countPos = pos;
+            pos += Integer.BYTES;
+            int count = 0;
+            for (int i = 0; i < tableSize; i++) {
+                Entity e = table[i];
+                if (e == null) {
+                    continue;
+                }
+                int s = 4 * i;
+                byte f = flags(e);
+                if (e.position.x != shadow[s] || e.position.y != shadow[s + 1]
+                        || e.velocity.x != shadow[s + 2] || e.velocity.y != shadow[s + 3]
+                        || f != shadowFlags[i] || e.contact != shadowContacts[i]) {
+                    shadow[s] = e.position.x;
+                    shadow[s + 1] = e.position.y;
+                    shadow[s + 2] = e.velocity.x;
+                    shadow[s + 3] = e.velocity.y;
+                    shadowFlags[i] = f;
+                    shadowContacts[i] = e.contact;
+                    ring.putInt(pos, i)
+                            .putDouble(pos + 4, e.position.x)
+                            .putDouble(pos + 12, e.position.y)
+                            .putDouble(pos + 20, e.velocity.x)
+                            .putDouble(pos + 28, e.velocity.y)
+                            .putInt(pos + 36, e.contact)
+                            .put(pos + 40, f);
+                    pos += RECORD_SIZE;
+                    count++;
+                }
+            }
+            ring.putInt(countPos, count);
+            commit(DELTA, tick, pos - writePos, lastKeyframe);
+        }
+
+        private byte flags(Entity e) {
+            return (byte) ((e.isActive() ? 1 : 0) | (e.sleeping ? 2 : 0) | (e.isCollidable() ? 4 : 0));
+        }
+
+        /**
+         * Make room for an entry of <code>length</code> bytes at the write position, dropping the oldest entries
+         * overwritten.
+         */
+        private boolean reserve(int length) {
+            if (length > ring.capacity()) {
+                System.err.printf("ERROR : rewind buffer of %d bytes is too small to record %d bytes%n",
+                        ring.capacity(), length);
+                return false;
+            }
+            if (next - first == MAX_ENTRIES) {
+                dropOldest();
+            }
+            if (writePos + length > ring.capacity()) {
+                // the entries left at the end of the ring are the oldest ones.
+                while (first < next && offsets[slot(first)] >= writePos) {
+                    dropOldest();
+                }
+                writePos = 0;
+            }
+            while (first < next && offsets[slot(first)] >= writePos && offsets[slot(first)] < writePos + length) {
+                dropOldest();
+            }
+            return true;
+        }
+
+        private void dropOldest() {
+            first++;
+            // deltas can't be restored without their keyframe.
+            while (first < next && kinds[slot(first)] != KEYFRAME) {
+                first++;
+            }
+            if (first == next) {
+                writePos = 0;
+                lastKeyframe = -1;
+                tableSize = -1;
+            } else if (lastKeyframe < first) {
+                tableSize = -1;
+            }
+        }
+
+        private void commit(byte kind, long tick, int length, long keyframeEntry) {
+            int slot = slot(next);
+            ring.put(writePos, kind).putLong(writePos + 1, tick).putInt(writePos + 9, length);
+            ticks[slot] = tick;
+            offsets[slot] = writePos;
+            lengths[slot] = length;
+            kinds[slot] = kind;
+            keyframes[slot] = keyframeEntry;
+            next++;
+            writePos += length;
+            writtenSinceKeyframe += length;
+        }
+
+        private int slot(long entry) {
+            return (int) (entry % MAX_ENTRIES);
+        }
+
+        /**
+         * Restore the entities state at the tick recorded <code>steps</code> ticks away from the current position,
+         * backwards with a negative value. The first seek starts from the last recorded tick.
+         *
+         * @param entities the game entities, on their name.
+         * @param steps    the number of ticks to move.
+         * @return the restored tick, or -1 if nothing is recorded.
+         */
+        public long seek(Map<String, Entity> entities, int steps) {
+            if (first == next) {
+                return -1;
+            }
+            long from = cursor >= 0 ? cursor : next - 1;
+            long target = Math.max(first, Math.min(next - 1, from + steps));
+            long key = keyframes[slot(target)];
+            long entry;
+            if (cursor >= 0 && target > cursor && keyframes[slot(cursor)] == key && key == decodedKeyframe) {
+                // moving forward in the same keyframe only needs the next deltas.
+                entry = cursor + 1;
+            } else {
+                if (key != decodedKeyframe) {
+                    try {
+                        ByteBuffer src = ring.slice(offsets[slot(key)] + ENTRY_HEADER, lengths[slot(key)] - ENTRY_HEADER);
+                        keyframe.readFrom(src, null);
+                    } catch (IOException e) {
+                        System.err.printf("ERROR : unable to read rewind keyframe at tick %d: %s%n",
+                                ticks[slot(key)], e.getMessage());
+                        return -1;
+                    }
+                    decodedKeyframe = key;
+                }
+                keyframe.restore(entities);
+                if (restoreTable.length < keyframe.getRecordCount()) {
+                    restoreTable = new Entity[keyframe.getRecordCount()];
+                }
+                for (int i = 0; i < keyframe.getRecordCount(); i++) {
+                    restoreTable[i] = entities.get(keyframe.names[i]);
+                }
+                Arrays.fill(restoreTable, keyframe.getRecordCount(), restoreTable.length, null);
+                entry = key + 1;
+            }
+            for (; entry <= target; entry++) {
+                applyDelta(entities, entry);
+            }
+            cursor = target;
+            return ticks[slot(target)];
+        }
+
+        private void applyDelta(Map<String, Entity> entities, long entry) {
+            int pos = offsets[slot(entry)] + ENTRY_HEADER;
+            int joinCount = ring.getInt(pos);
+            pos += Integer.BYTES;
+            for (int j = 0; j < joinCount; j++) {
+                int slot = ring.getInt(pos);
+                byte[] name = new byte[ring.getShort(pos + 4)];
+                ring.get(pos + 6, name);
+                pos += Integer.BYTES + Short.BYTES + name.length;
+                if (slot >= restoreTable.length) {
+                    restoreTable = Arrays.copyOf(restoreTable, Math.max(slot + 1, restoreTable.length * 2));
+                }
+                restoreTable[slot] = entities.get(new String(name, StandardCharsets.UTF_8));
+            }
+            int leaveCount = ring.getInt(pos);
+            pos += Integer.BYTES;
+            for (int l = 0; l < leaveCount; l++) {
+                int slot = ring.getInt(pos);
+                pos += Integer.BYTES;
+                if (restoreTable[slot] != null) {
+                    restoreTable[slot].setActive(false);
+                    restoreTable[slot] = null;
+                }
+            }
+            int count = ring.getInt(pos);
+            pos += Integer.BYTES;
+            for (int r = 0; r < count; r++, pos += RECORD_SIZE) {
+                Entity e = restoreTable[ring.getInt(pos)];
+                if (e != null) {
+                    e.position.x = ring.getDouble(pos + 4);
+                    e.position.y = ring.getDouble(pos + 12);
+                    e.velocity.x = ring.getDouble(pos + 20);
+                    e.velocity.y = ring.getDouble(pos + 28);
+                    e.contact = ring.getInt(pos + 36);
+                    byte f = ring.get(pos + 40);
+                    e.setActive((f & 1) != 0);
+                    e.sleeping = (f & 2) != 0;
+                    e.setCollidable((f & 4) != 0);
+                    e.lastX = e.position.x;
+                    e.lastY = e.position.y;
+                }
+            }
+        }
+
+        /**
+         * @return true if a past tick is restored, until the next recorded tick.
+         */
+        public boolean isSeeking() {
+            return cursor >= 0;
+        }
+
+        /**
+         * @return the number of recorded ticks.
+         */
+        public int getTickCount() {
+            return (int) (next - first);
+        }
+
+        /**
+         * @return the mean recording time of a tick in microseconds since the last call, and reset it.
+         */
+        public double getRecordTime() {
+            double mean = recordCount > 0 ? recordTime / (1000.0 * recordCount) : 0;
+            recordTime = 0;
+            recordCount = 0;
+            return mean;
+        }
+    }
+
+    /**
+     * The {@link WorldStreamer} splits the world into square regions, and keeps in memory only the streamed entities
+     * of the regions around the camera target.
+     * <p>
+     * Each region within the configured radius ({@link ConfigAttribute#WORLD_STREAMING_RADIUS}) from the region of
+     * the camera target is resident: its entities are in the game entities. A region going further than the radius
+     * plus one is unloaded: its entities are captured into a {@link WorldSnapshot}, removed from the game and
+     * written to a segment of the region file. A streamed entity moving into a region not resident is unloaded the
+     * same way.
+     * <p>
+     * The region file is written and read by a background thread, in the request order. The loaded segments are
+     * decoded on that thread, and the game thread creates the entities with the entity factory before restoring
+     * their state from the snapshot. The entity factory recreates an entity with its visual and its behaviors from
+     * its name, the snapshot restores its state.
+     * <p>
+     * Only the entities added with {@link WorldStreamer#add(Entity)} are streamed. If the region file can not be
+     * created, no entity is unloaded: they all stay resident.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class WorldStreamer implements ConfigurationListener {
+        /**
+         * A segment read from the region file, or the end of the loading of a region when the snapshot is null.
+         */
+        private record LoadedSegment(long region, WorldSnapshot snapshot) {
+        }
+
+        private final int regionSize;
+        private int radius;
+        private final Function<String, Entity> factory;
+        private final Path regionFile;
+        private FileChannel channel;
+        private final ExecutorService io;
+
+        private final Map<Long, List<long[]>> segments = new HashMap<>();
+        private final List<long[]> freeSlots = new ArrayList<>();
+        private long fileEnd = 0;
+
+        private final Set<Long> resident = new HashSet<>();
+        private final Set<Long> loading = new HashSet<>();
+        private final List<Entity> streamed = new ArrayList<>();
+        private final Queue<LoadedSegment> loaded = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingIO = new AtomicInteger();
+        private long centerRegion = Long.MIN_VALUE;
+        private int centerX, centerY;
+        private final WorldSnapshot capture = new WorldSnapshot();
+
+        /**
+         * Create a new WorldStreamer, with a new region file beside the JAR.
+         *
+         * @param regionSize the width and height of a region in world units.
+         * @param radius     the number of regions kept resident around the region of the camera target.
+         * @param factory    the factory recreating a streamed entity from its name.
+         */
+        public WorldStreamer(int regionSize, int radius, Function<String, Entity> factory) {
+            this.regionSize = regionSize;
+            this.radius = radius;
+            this.factory = factory;
+            Path file = null;
+            try {
+                file = Configuration.getJarSidePath("world.regions");
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (URISyntaxException | IOException e) {
+                System.err.printf("ERROR : unable to create the region file %s: %s%n", file, e.getMessage());
+            }
+            this.regionFile = file;
+            this.io = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "world-streamer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        /**
+         * Add a streamed entity to the game. If its region is not resident, it is moved to the region file on the
+         * next {@link WorldStreamer#update(Entity)}.
+         *
+         * @param e the entity to be streamed.
+         * @return this WorldStreamer.
+         */
+        public WorldStreamer add(Entity e) {
+            streamed.add(e);
+            entities.put(e.getName(), e);
+            entitiesGeneration++;
+            return this;
+        }
+
+        /**
+         * Change the number of regions kept resident around the region of the camera target.
+         *
+         * @param r the new radius, in regions.
+         * @return this WorldStreamer.
+         */
+        public WorldStreamer setRadius(int r) {
+            this.radius = r;
+            this.centerRegion = Long.MIN_VALUE;
+            return this;
+        }
+
+        @Override
+        public void onConfigurationChange(ConfigSnapshot snapshot) {
+            if (snapshot.streamingRadius != radius) {
+                setRadius(snapshot.streamingRadius);
+            }
+        }
+
+        /**
+         * Load and unload the regions around the camera target, and add the entities of the loaded regions to the
+         * game. To be called by the game thread after the update.
+         *
+         * @param target the entity the streaming is centered on.
+         */
+        public void update(Entity target) {
+            LoadedSegment segment;
+            while ((segment = loaded.poll()) != null) {
+                if (segment.snapshot() == null) {
+                    loading.remove(segment.region());
+                } else {
+                    addLoaded(segment.snapshot());
+                }
+            }
+            if (Optional.ofNullable(target).isEmpty()) {
+                return;
+            }
+            long center = regionOf(target);
+            if (center != centerRegion) {
+                centerRegion = center;
+                int cx = centerX = regionX(center), cy = centerY = regionY(center);
+                for (int y = cy - radius; y <= cy + radius; y++) {
+                    for (int x = cx - radius; x <= cx + radius; x++) {
+                        long r = region(x, y);
+                        if (!resident.contains(r)) {
+                            load(r);
+                        }
+                    }
+                }
+                // a hysteresis of one region avoids loading and unloading a region on each crossing.
+                resident.removeIf(r -> Math.max(Math.abs(regionX(r) - cx), Math.abs(regionY(r) - cy)) > radius + 1);
+            }
+            if (channel != null) {
+                unloadOutOfRegion();
+            }
+        }
+
+        /**
+         * Unload the streamed entities located in a region which is not resident.
+         */
+        private void unloadOutOfRegion() {
+            Map<Long, List<Entity>> byRegion = null;
+            for (int i = 0; i < streamed.size(); i++) {
+                Entity e = streamed.get(i);
+                long r = regionOf(e);
+                // the regions in the radius are always resident, no need to search them.
+                if (Math.max(Math.abs(regionX(r) - centerX), Math.abs(regionY(r) - centerY)) > radius
+                        && !resident.contains(r)) {
+                    if (byRegion == null) {
+                        byRegion = new HashMap<>();
+                    }
+                    byRegion.computeIfAbsent(r, k -> new ArrayList<>()).add(e);
+                }
+            }
+            if (byRegion != null) {
+                byRegion.forEach(this::unload);
+                streamed.removeIf(e -> !entities.containsKey(e.getName()));
+            }
+        }
+
+        private void unload(long r, List<Entity> regionEntities) {
+            capture.capture(regionEntities, getTick(), null);
+            ByteBuffer data = ByteBuffer.allocate(capture.getSize());
+            capture.writeTo(data);
+            data.flip();
+            for (Entity e : regionEntities) {
+                entities.remove(e.getName());
+            }
+            entitiesGeneration++;
+            long[] slot = allocate(data.remaining());
+            segments.computeIfAbsent(r, k -> new ArrayList<>()).add(slot);
+            submit(() -> {
+                while (data.hasRemaining()) {
+                    channel.write(data, slot[0] + data.position());
+                }
+                return null;
+            });
+        }
+
+        private void load(long r) {
+            resident.add(r);
+            List<long[]> regionSegments = segments.remove(r);
+            if (regionSegments == null) {
+                return;
+            }
+            loading.add(r);
+            for (long[] slot : regionSegments) {
+                submit(() -> {
+                    ByteBuffer data = ByteBuffer.allocate((int) slot[1]);
+                    while (data.hasRemaining()) {
+                        if (channel.read(data, slot[0] + data.position()) < 0) {
+                            throw new IOException("unexpected end of region file");
+                        }
+                    }
+                    data.flip();
+                    loaded.add(new LoadedSegment(r, new WorldSnapshot().readFrom(data, null)));
+                    synchronized (freeSlots) {
+                        freeSlots.add(slot);
+                    }
+                    return null;
+                });
+            }
+            submit(() -> {
+                loaded.add(new LoadedSegment(r, null));
+                return null;
+            });
+        }
+
+        /**
+         * Create the entities of a loaded segment and restore their state.
+         */
+        private void addLoaded(WorldSnapshot snapshot) {
+            Map<String, Entity> created = new HashMap<>();
+            for (int i = 0; i < snapshot.getRecordCount(); i++) {
+                Entity e = factory.apply(snapshot.names[i]);
+                if (e != null) {
+                    created.put(e.getName(), e);
+                }
+            }
+            snapshot.restore(created);
+            for (Entity e : created.values()) {
+                streamed.add(e);
+                entities.put(e.getName(), e);
+            }
+            entitiesGeneration++;
+        }
+
+        private long[] allocate(int length) {
+            synchronized (freeSlots) {
+                for (int i = 0; i < freeSlots.size(); i++) {
+                    long[] free = freeSlots.get(i);
+                    if (free[2] >= length) {
+                        freeSlots.remove(i);
+                        return new long[]{free[0], length, free[2]};
+                    }
+                }
+            }
+            long[] slot = new long[]{fileEnd, length, length};
+            fileEnd += length;
+            return slot;
+        }
+
+        private void submit(Callable<Void> task) {
+            pendingIO.incrementAndGet();
+            io.submit(() -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    System.err.printf("ERROR : file=%s : region streaming failed: %s%n", regionFile, e.getMessage());
+                    return null;
+                } finally {
+                    pendingIO.decrementAndGet();
+                }
+            });
+        }
+
+        private long regionOf(Entity e) {
+            return region((int) Math.floor((e.position.x + e.width * 0.5) / regionSize),
+                    (int) Math.floor((e.position.y + e.height * 0.5) / regionSize));
+        }
+
+        private long region(int x, int y) {
+            return ((long) x << 32) | (y & 0xffffffffL);
+        }
+
+        private int regionX(long r) {
+            return (int) (r >> 32);
+        }
+
+        private int regionY(long r) {
+            return (int) r;
+        }
+
+        /**
+         * @return the number of resident regions.
+         */
+        public int getResidentCount() {
+            return resident.size();
+        }
+
+        /**
+         * @return the number of streamed entities in memory.
+         */
+        public int getStreamedCount() {
+            return streamed.size();
+        }
+
+        /**
+         * @return the number of region file reads and writes waiting to be executed.
+         */
+        public int getPendingIO() {
+            return pendingIO.get();
+        }
+
+        /**
+         * @return true if some regions are still being loaded.
+         */
+        public boolean isLoading() {
+            return !loading.isEmpty();
+        }
+
+        /**
+         * Stop the background thread and delete the region file.
+         */
+        public void dispose() {
+            io.shutdown();
+            try {
+                io.awaitTermination(1, TimeUnit.SECONDS);
+                if (channel != null) {
+                    channel.close();
+                    Files.deleteIfExists(regionFile);
+                }
+            } catch (InterruptedException | IOException e) {
+                System.err.printf("ERROR : file=%s : unable to close the region file: %s%n", regionFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The {@link Material} class is defining some physic attributes to be applied on some {@link Entity},
+     * and used in the {@link PhysicEngine} Newton's laws processing to move {@link Entity}.
+     * <p>
+     * It is used to define common physic attributes like {@link Material#elasticity}, {@link Material#density}
+     * and {@link Material#friction}.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.0
+     */
+    public class Material {
+
+        String name;
+        double density;
+        double elasticity;
+        double friction;
+
+        public Material(String name, double d, double e, double f) {
+            this.name = name;
+            this.density = d;
+            this.elasticity = e;
+            this.friction = f;
+        }
+    }
+
+    /**
+     * Vector2D
+     */
+    public class Vector2D {
+        public double x, y;
+
+        public Vector2D() {
+            x = 0.0f;
+            y = 0.0f;
+        }
+
+        /**
+         * @param x
+         * @param y
+         */
+        public Vector2D(double x, double y) {
+            super();
+            this.x = x;
+            this.y = y;
+        }
+
+        public Vector2D add(Vector2D v) {
+            return new Vector2D(x + v.x, y + v.y);
+        }
+
+        public Vector2D substract(Vector2D v1) {
+            return new Vector2D(x - v1.x, y - v1.y);
+        }
+
+        public Vector2D multiply(double f) {
+            return new Vector2D(x * f, y * f);
+        }
+
+        public double dot(Vector2D v1) {
+
+            return v1.x * y + v1.y * x;
+        }
+
+        public double length() {
+            return Math.sqrt(x * x + y * y);
+        }
+
+        public double distance(Vector2D v1) {
+            return substract(v1).length();
+        }
+
+        public Vector2D divide(double f) {
+            return new Vector2D(x / f, y / f);
+        }
+
+        public Vector2D normalize() {
+            return divide(length());
+        }
+
+        public Vector2D negate() {
+            return new Vector2D(-x, -y);
+        }
+
+        public double angle(Vector2D v1) {
+            double vDot = this.dot(v1) / (this.length() * v1.length());
+            if (vDot < -1.0)
+                vDot = -1.0;
+            if (vDot > 1.0)
+                vDot = 1.0;
+            return Math.acos(vDot);
+
+        }
+
+        public Vector2D addAll(List<Vector2D> forces) {
+            Vector2D sum = new Vector2D();
+            for (Vector2D f : forces) {
+                sum = sum.add(f);
+            }
+            return sum;
+        }
+
+        public String toString() {
+            return String.format("{x:%04.2f,y:%04.2f}", x, y);
+        }
+
+        public Vector2D maximize(double maxAccel) {
+            if (Math.abs(x) > maxAccel) {
+                x = Math.signum(x) * maxAccel;
+            }
+            if (Math.abs(y) > maxAccel) {
+                y = Math.signum(y) * maxAccel;
+            }
+            return this;
+        }
+
+        public Vector2D maximize(double maxX, double maxY) {
+            if (Math.abs(x) > maxX) {
+                x = Math.signum(x) * maxX;
+            }
+            if (Math.abs(y) > maxY) {
+                y = Math.signum(y) * maxY;
+            }
+            return this;
+        }
+
+        public Vector2D ceil(double ceilThreshod) {
+            x = Math.copySign((Math.abs(x) < ceilThreshod ? 0 : x), x);
+            y = Math.copySign((Math.abs(x) < ceilThreshod ? 0 : y), y);
+            return this;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null) {
+                return false;
+            }
+            if (getClass() != o.getClass()) {
+                return false;
+            }
+            Vector2D vo = (Vector2D) o;
+            return Objects.equals(x, vo.x) && Objects.equals(y, vo.y);
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public void setLocation(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public interface Behavior<Entity> {
+        public default void input(UserInput ui, Entity e) {
+
+        }
+
+        public default void update(long elapsed, Entity e) {
+
+        }
+
+        public default void draw(Graphics2D g, Entity e) {
+
+        }
+
+        /**
+         * Called by the {@link CollisionSystem} each time the entity e is touching another collidable entity.
+         *
+         * @param c the {@link Contact} manifold describing the collision (use {@link Contact#getOther} to retrieve
+         *          the other involved entity).
+         * @param e the entity this behavior is attached to.
+         */
+        public default void onContact(Contact c, Entity e) {
+
+        }
+
+        /**
+         * Called by the {@link WorldSnapshot} to save the state of this behavior for the entity e.
+         * A behavior keeping some state outside the entity attributes writes it into the buffer.
+         *
+         * @param buffer the buffer to write the state into.
+         * @param e      the entity this behavior is attached to.
+         */
+        public default void saveState(ByteBuffer buffer, Entity e) {
+
+        }
+
+        /**
+         * Called by the {@link WorldSnapshot} to restore the state of this behavior for the entity e,
+         * as written by {@link Behavior#saveState(ByteBuffer, Object)}.
+         *
+         * @param buffer the buffer to read the state from, limited to the saved state.
+         * @param e      the entity this behavior is attached to.
+         */
+        public default void loadState(ByteBuffer buffer, Entity e) {
+
+        }
+    }
+
+    /**
+     * A {@link Script} is a long-running behavior written as plain sequential code, suspended between two ticks with
+     * the {@link ScriptContext} wait methods instead of a hand-made state machine.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    @FunctionalInterface
+    public interface Script {
+        /**
+         * The script code, executed by the {@link ScriptScheduler} on its own virtual thread.
+         *
+         * @param ctx the context to wait for the next ticks.
+         * @param e   the entity this script is attached to.
+         */
+        void run(ScriptContext ctx, Entity e);
+    }
+
+    /**
+     * The {@link ScriptContext} provides a {@link Script} with the way to give the hand back to the game until a
+     * later tick.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public interface ScriptContext {
+        /**
+         * Suspend the script for <code>ticks</code> ticks.
+         */
+        void waitTicks(int ticks);
+
+        /**
+         * Suspend the script until the condition is true on the entity. The condition is checked by the game
+         * loop at each tick, without resuming the script.
+         */
+        void waitUntil(Predicate<Entity> condition);
+
+        /**
+         * @return the current game tick.
+         */
+        long getTick();
+    }
+
+    /**
+     * The {@link ScriptScheduler} runs each {@link Script} on its own virtual thread, resumed by the game loop only
+     * at the tick it is waiting for.
+     * <p>
+     * Scripts are run one after the other, never at the same time as the game thread, so they can change the game
+     * entities as a {@link Behavior} would do. A script waiting for some ticks is kept in a queue sorted on its wake
+     * tick and costs nothing until then; only the conditions of the scripts waiting with
+     * {@link ScriptContext#waitUntil(Predicate)} are checked at each tick.
+     * <p>
+     * The script execution state lives in its thread stack, it is neither saved into a {@link WorldSnapshot} nor
+     * rewound by the {@link RewindBuffer}.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class ScriptScheduler {
+        private final PriorityQueue<ScriptTask> sleeping = new PriorityQueue<>(
+                Comparator.<ScriptTask>comparingLong(t -> t.wakeTick).thenComparingLong(t -> t.id));
+        private final List<ScriptTask> waiting = new ArrayList<>();
+        private final List<ScriptTask> started = new ArrayList<>();
+        private final List<ScriptTask> due = new ArrayList<>();
+        private int dueIndex;
+        private long nextId;
+        private long tick;
+        private int count;
+        private Thread gameThread;
+        private volatile boolean tickDone;
+
+        /**
+         * Attach a new script to an entity, started at the next tick.
+         *
+         * @param e      the entity the script is attached to.
+         * @param script the script to be executed.
+         * @return the task executing the script.
+         */
+        public ScriptTask start(Entity e, Script script) {
+            ScriptTask task = new ScriptTask(nextId++, e, script);
+            started.add(task);
+            count++;
+            return task;
+        }
+
+        /**
+         * Resume, one after the other, the scripts waiting for this tick.
+         *
+         * @param t the current game tick.
+         */
+        public void update(long t) {
+            this.tick = t;
+            due.clear();
+            due.addAll(started);
+            started.clear();
+            while (!sleeping.isEmpty() && sleeping.peek().wakeTick <= t) {
+                due.add(sleeping.poll());
+            }
+            int kept = 0;
+            for (int i = 0; i < waiting.size(); i++) {
+                ScriptTask task = waiting.get(i);
+                if (task.cancelled || task.condition.test(task.entity)) {
+                    task.condition = null;
+                    due.add(task);
+                } else {
+                    waiting.set(kept++, task);
+                }
+            }
+            waiting.subList(kept, waiting.size()).clear();
+            resumeAll();
+        }
+
+        private void resumeAll() {
+            if (due.isEmpty()) {
+                return;
+            }
+            gameThread = Thread.currentThread();
+            dueIndex = 0;
+            tickDone = false;
+            resumeNext();
+            while (!tickDone) {
+                LockSupport.park(this);
+            }
+        }
+
+        /**
+         * Hand the control to the next due script, or back to the game thread once all have been resumed.
+         */
+        private void resumeNext() {
+            while (dueIndex < due.size()) {
+                ScriptTask task = due.get(dueIndex++);
+                if (task.thread == null && task.cancelled) {
+                    // cancelled before being started.
+                    task.done = true;
+                    count--;
+                } else {
+                    task.resume();
+                    return;
+                }
+            }
+            tickDone = true;
+            LockSupport.unpark(gameThread);
+        }
+
+        /**
+         * Cancel all the scripts, each one ending on a {@link CancellationException} thrown by its wait method.
+         */
+        public void stop() {
+            due.clear();
+            due.addAll(started);
+            started.clear();
+            due.addAll(sleeping);
+            sleeping.clear();
+            due.addAll(waiting);
+            waiting.clear();
+            due.forEach(ScriptTask::cancel);
+            resumeAll();
+        }
+
+        /**
+         * @return the number of running scripts.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of scripts waiting for a condition.
+         */
+        public int getWaitingCount() {
+            return waiting.size();
+        }
+
+        /**
+         * The {@link ScriptTask} is the execution of one {@link Script}, owning its virtual thread.
+         *
+         * @author Frédéric Delorme
+         * @since 1.0.3
+         */
+        public class ScriptTask implements ScriptContext {
+            private final long id;
+            private final Entity entity;
+            private final Script script;
+            private Thread thread;
+            private long wakeTick;
+            private Predicate<Entity> condition;
+            private volatile boolean resumed;
+            private volatile boolean cancelled;
+            private boolean done;
+
+            ScriptTask(long id, Entity e, Script script) {
+                this.id = id;
+                this.entity = e;
+                this.script = script;
+            }
+
+            private void resume() {
+                if (thread == null) {
+                    thread = Thread.ofVirtual().name("script-" + entity.getName() + "-" + id).start(this::execute);
+                } else {
+                    resumed = true;
+                    LockSupport.unpark(thread);
+                }
+            }
+
+            private void execute() {
+                try {
+                    script.run(this, entity);
+                } catch (CancellationException e) {
+                    // the script has been cancelled while waiting.
+                } catch (RuntimeException e) {
+                    System.err.printf("ERROR : script %s of entity %s failed: %s%n",
+                            thread.getName(), entity.getName(), e);
+                } finally {
+                    done = true;
+                    count--;
+                    resumeNext();
+                }
+            }
+
+            /**
+             * Give the hand back to the scheduler until this task is resumed.
+             */
+            private void suspend() {
+                resumed = false;
+                resumeNext();
+                while (!resumed) {
+                    LockSupport.park(this);
+                }
+                checkCancelled();
+            }
+
+            private void checkCancelled() {
+                if (cancelled) {
+                    throw new CancellationException("script " + id + " of entity " + entity.getName() + " cancelled");
+                }
+            }
+
+            @Override
+            public void waitTicks(int ticks) {
+                checkCancelled();
+                wakeTick = tick + Math.max(1, ticks);
+                sleeping.add(this);
+                suspend();
+            }
+
+            @Override
+            public void waitUntil(Predicate<Entity> c) {
+                checkCancelled();
+                if (c.test(entity)) {
+                    return;
+                }
+                condition = c;
+                waiting.add(this);
+                suspend();
+            }
+
+            @Override
+            public long getTick() {
+                return tick;
+            }
+
+            /**
+             * Cancel this script at its next resume.
+             */
+            public void cancel() {
+                cancelled = true;
+            }
+
+            public boolean isDone() {
+                return done;
+            }
+        }
+    }
+
+    public interface ParticleBehavior<T extends Entity> extends Behavior<T> {
+        String getName();
+
+        Particle create(T parent);
+
+        void start();
+
+        void stop();
+    }
+
+    /**
+     * The {@link RainBehavior} is {@link ParticleBehavior} implementation to simulate Rain.
+     * rain drop will fall from sky (upper play area) to ground (lower play area).
+     * Rain drops are DOT with a blue half-transparent color.
+     *
+     * @author Frédérc Delorme
+     * @since 1.0.1
+     */
+    public class RainBehavior implements ParticleBehavior<Particle> {
+        private final double speed;
+        private int batch = 10;
+        Dimension playArea;
+        boolean run = false;
+        List<Particle> drops = new ArrayList<>();
+        private long nbActive = 0;
+
+        private long dropTime = 0;
+
+        private long internalTime = 0;
+
+        private Color dropColor = new Color(0.4f, 0.7f, 0.9f, 0.5f);
+
+        public String getName() {
+            return "Rain";
+        }
+
+        /**
+         * Generate batch rain drop every dropTime millisecond.
+         *
+         * @param world    parent World object to define PLay area
+         * @param batch    number of drop to be generated on the dropTime delay.
+         * @param dropTime the delay in the batch rain drops must be generated.
+         */
+        public RainBehavior(World world, int batch, int dropTime, double dropSpeed) {
+            this.playArea = world.getPlayArea();
+            this.batch = batch;
+            this.dropTime = dropTime;
+            this.speed = dropSpeed;
+        }
+
+        @Override
+        public void update(long elapsed, Particle e) {
+            e.setSize(playArea.width, playArea.height);
+            e.setPhysicType(PhysicType.STATIC);
+            internalTime += elapsed;
+            // add drops to the particles system
+            double i = 0.0;
+            if (run && internalTime > dropTime) {
+                double maxBatch = ((this.batch * 0.5) + (this.batch * Math.random() * 0.5));
+                while (i < maxBatch && nbActive < e.getNbParticles()) {
+                    create(e);
+                    i += 1.0;
+                }
+                nbActive = drops.stream().filter(p -> p.isActive()).count();
+                internalTime = 0;
+            }
+        }
+
+        @Override
+        public Particle create(Particle parent) {
+            Particle pChild = null;
+            if (drops.size() < parent.getNbParticles()) {
+                pChild = (Particle) new Particle(parent.getName() + "_drop_" + parent.getCurrentIndex())
+                        .setType(EntityType.LINE)
+                        .setPhysicType(PhysicType.DYNAMIC)
+                        .setSize(1, 1)
+                        .setPosition(
+                                playArea.width * Math.random(),
+                                0)
+                        .setBorderColor(dropColor)
+                        .setMass(1000.0)
+                        .setVelocity(0.5 - Math.random() * 1.0, speed)
+                        .setFast(true)
+                        .setRelativeToParent(false)
+                        .add(new RainDropBehavior(playArea))
+                        .setActive(true);
+                parent.addChild(pChild);
+                add(pChild);
+                drops.add(pChild);
+            } else {
+                Optional<Particle> existingParticle = drops.stream().filter(p -> !p.isActive()).findFirst();
+                if (existingParticle.isPresent()) {
+                    pChild = existingParticle.get();
+                    pChild.setVelocity(0.5 - Math.random() * 1.0, speed);
+                    pChild.setActive(true);
+                }
+            }
+            return pChild;
+        }
+
+        public void start() {
+            this.run = true;
+        }
+
+        public void stop() {
+            this.run = false;
+        }
+
+        @Override
+        public void saveState(ByteBuffer buffer, Particle e) {
+            buffer.put((byte) (run ? 1 : 0)).putLong(internalTime).putLong(nbActive);
+        }
+
+        @Override
+        public void loadState(ByteBuffer buffer, Particle e) {
+            run = buffer.get() == 1;
+            internalTime = buffer.getLong();
+            nbActive = buffer.getLong();
+        }
+    }
+
+    /**
+     * This {@link ParticleBehavior} implements the Falling behavior of a rain drop.
+     * Teh Drop will fall from sky to ground.
+     * As soon this drop reach the ground or hit a collidable entity, it is deactivated.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.1
+     */
+    public class RainDropBehavior implements Behavior<Particle> {
+        private final Dimension playArea;
+
+        public RainDropBehavior(Dimension playArea) {
+            this.playArea = playArea;
+        }
+
+        @Override
+        public void update(long elapsed, Particle p) {
+            if (p.position.y >= playArea.height - 1) {
+                reset(p);
+            }
+        }
+
+        @Override
+        public void onContact(Contact c, Particle p) {
+            reset(p);
+        }
+
+        private void reset(Particle p) {
+            p.setPosition(playArea.width * Math.random(),
+                    0);
+            p.setActive(false);
+        }
+    }
+
+    /**
+     * This {@link ParticleBehavior} implements a Snow simulations.
+     * Snowflakes (DOT) are falling from sky in a continuous way.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.1
+     */
+    public class SnowBehavior implements ParticleBehavior<Particle> {
+        private int batch = 10;
+        Dimension playArea;
+        List<Particle> drops = new ArrayList<>();
+
+        boolean run = false;
+
+        public String getName() {
+            return "Snow";
+        }
+
+        public SnowBehavior(World world, int batch) {
+            this.playArea = world.getPlayArea();
+            this.batch = batch;
+        }
+
+        @Override
+        public void update(long elapsed, Particle e) {
+            e.setSize(playArea.width, playArea.height);
+            e.setPhysicType(PhysicType.STATIC);
+            // add drops to the particles system
+            double i = 0.0;
+            double maxBatch = ((this.batch * 0.5) + (this.batch * Math.random() * 0.5));
+            while (i < maxBatch && drops.size() < e.getNbParticles()) {
+                Particle p = create(e);
+                p.setPosition(
+                        playArea.width * Math.random(),
+                        0);
+                drops.add(p);
+                i += 1.0;
+
+            }
+            drops.stream().forEach(p -> {
+                if (p.position.y >= playArea.height - 1) {
+                    p.setPosition(playArea.width * Math.random(),
+                            0);
+                    p.setActive(run);
+                }
+            });
+        }
+
+        @Override
+        public Particle create(Particle parent) {
+            Particle pChild = (Particle) new Particle(parent.getName() + "_spark_" + parent.getCurrentIndex())
+                    .setType(EntityType.DOT)
+                    .setPhysicType(PhysicType.DYNAMIC)
+                    .setSize(1, 1)
+                    .setFillColor(Color.WHITE)
+                    .setMass(4000.01)
+                    .setVelocity(0.8 - (Math.random() * 1.6), Math.random() * 0.0009)
+                    .setRelativeToParent(false);
+            parent.addChild(pChild);
+            add(pChild);
+            return pChild;
+        }
+
+        @Override
+        public void start() {
+            this.run = true;
+        }
+
+        @Override
+        public void stop() {
+            this.run = false;
+        }
+
+        @Override
+        public void saveState(ByteBuffer buffer, Particle e) {
+            buffer.put((byte) (run ? 1 : 0));
+        }
+
+        @Override
+        public void loadState(ByteBuffer buffer, Particle e) {
+            run = buffer.get() == 1;
+        }
+    }
+
+    /**
+     * {@link PhysicType} for any {@link Entity}. It defines the Physic Computation applied to the
+     * {@link Entity} according to the fact it os static of dynamic.
+     *
+     * @author Frédéric Delorme
+     * @see PhysicEngine
+     * @see Entity#physicType
+     * @since 1.0.1
+     */
+    public enum PhysicType {
+        /**
+         * A STATIC {@link Entity} will not be updated by the {@link PhysicEngine} computation,
+         * only the entity's behaviors will be updated.
+         */
+        STATIC,
+        /**
+         * a DYNAMIC {@link Entity} will be impacted by the simplified Newton's laws
+         * computation performed by the {@link PhysicEngine}.
+         */
+        DYNAMIC
+    }
+
+    /**
+     * A {@link Contact} is the manifold produced by the {@link CollisionSystem} narrow phase when two collidable
+     * {@link Entity} are intersecting.
+     * <p>
+     * It contains the collision normal (from {@link Contact#a} to {@link Contact#b}), the penetration depth and
+     * up to 2 contact points. {@link Contact} instances are pooled and reused from one update to the next one,
+     * so they must not be kept by any {@link Behavior#onContact(Contact, Entity)} implementation.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class Contact {
+        Entity a;
+        Entity b;
+        double nx, ny;
+        double penetration;
+        int pointCount;
+        double[] points = new double[4];
+
+        private Contact set(Entity a, Entity b, double nx, double ny, double penetration) {
+            this.a = a;
+            this.b = b;
+            this.nx = nx;
+            this.ny = ny;
+            this.penetration = penetration;
+            this.pointCount = 0;
+            return this;
+        }
+
+        private void addPoint(double x, double y) {
+            points[pointCount * 2] = x;
+            points[pointCount * 2 + 1] = y;
+            pointCount++;
+        }
+
+        /**
+         * Retrieve the other entity involved in this contact.
+         *
+         * @param e one of the 2 entities of this contact.
+         * @return the other entity.
+         */
+        public Entity getOther(Entity e) {
+            return e == a ? b : a;
+        }
+
+        public double getPenetration() {
+            return penetration;
+        }
+
+        public double getNormalX() {
+            return nx;
+        }
+
+        public double getNormalY() {
+            return ny;
+        }
+
+        public int getPointCount() {
+            return pointCount;
+        }
+
+        public double getPointX(int i) {
+            return points[i * 2];
+        }
+
+        public double getPointY(int i) {
+            return points[i * 2 + 1];
+        }
+    }
+
+    /**
+     * The {@link CollisionSystem} detects and solves collisions between all the collidable {@link Entity}
+     * (see {@link Entity#setCollidable(boolean)}).
+     * <p>
+     * The broad phase is a uniform grid covering the {@link World#playArea}, rebuilt on each update with a
+     * counting sort into flat int arrays (no allocation once arrays have grown). Each pair of entities is tested
+     * only once, into the cell containing the top-left corner of their bounding boxes intersection.
+     * <p>
+     * The narrow phase supports the 2 shapes used by {@link AbstractEntity#bbox}: axis aligned box and ellipse
+     * (an ellipse is approximated by a circle with a radius being the mean of its half width and half height).
+     * It produces {@link Contact} manifolds, solved by impulses using the {@link Material#elasticity} and
+     * {@link Material#friction} of both entities. As everywhere in the {@link PhysicEngine}, the
+     * {@link Material#friction} is the ratio of tangential velocity kept after the contact.
+     * <p>
+     * A STATIC entity, or an entity having a zero mass, is considered as immovable.
+     * Each {@link Behavior} of an involved entity is notified through {@link Behavior#onContact(Contact, Entity)}.
+     * <p>
+     * Fast moving entities (see {@link Entity#setFast(boolean)}) go through a continuous collision detection:
+     * their move during the update is swept against the collidable entities of the grid
+     * (see {@link CollisionSystem#sweep(List)}).
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class CollisionSystem {
+        /**
+         * Number of velocity solving iterations per update.
+         */
+        static final int ITERATIONS = 2;
+        /**
+         * Ratio of the penetration corrected on each update.
+         */
+        static final double CORRECTION_PERCENT = 0.8;
+        /**
+         * Allowed penetration before correcting position, to avoid jittering.
+         */
+        static final double CORRECTION_SLOP = 0.05;
+        /**
+         * Closing velocity under which no bounce is applied, to let bodies rest on each other.
+         */
+        static final double RESTITUTION_THRESHOLD = 1.0;
+
+        private int cellSize = 32;
+        private int gridWidth, gridHeight;
+
+        private Entity[] bodies = new Entity[256];
+        private double[] bounds = new double[256 * 4];
+        private double[] invMass = new double[256];
+        private boolean[] asleep = new boolean[256];
+        private int[] islands = new int[256];
+        private int[] islandRestingTicks = new int[256];
+        private int[] cellsRange = new int[256 * 4];
+        private int bodyCount = 0;
+
+        private int[] cellStart = new int[1];
+        private int[] cellFill = new int[1];
+        private int[] cellItems = new int[256];
+
+        private final List<Contact> contacts = new ArrayList<>();
+        private int contactCount = 0;
+        private long pairTests = 0;
+
+        public CollisionSystem setCellSize(int cs) {
+            this.cellSize = cs;
+            return this;
+        }
+
+        /**
+         * Reset the list of bodies before a new update.
+         */
+        public void clear() {
+            for (int i = 0; i < bodyCount; i++) {
+                bodies[i] = null;
+            }
+            bodyCount = 0;
+        }
+
+        /**
+         * Add an {@link Entity} to the list of bodies to be processed on the next
+         * {@link CollisionSystem#process(Dimension)} call.
+         *
+         * @param e the collidable Entity to be added.
+         */
+        public void add(Entity e) {
+            if (bodyCount == bodies.length) {
+                int size = bodies.length * 2;
+                bodies = Arrays.copyOf(bodies, size);
+                bounds = Arrays.copyOf(bounds, size * 4);
+                invMass = Arrays.copyOf(invMass, size);
+                asleep = Arrays.copyOf(asleep, size);
+                islands = Arrays.copyOf(islands, size);
+                islandRestingTicks = Arrays.copyOf(islandRestingTicks, size);
+                cellsRange = Arrays.copyOf(cellsRange, size * 4);
+            }
+            bodies[bodyCount++] = e;
+        }
+
+        /**
+         * Detect collisions between all the added bodies, solve them and notify the
+         * {@link Behavior}s of the involved entities.
+         *
+         * @param playArea the play area covered by the broad phase grid.
+         * @return the number of contacts detected.
+         */
+        public int process(Dimension playArea) {
+            contactCount = 0;
+            pairTests = 0;
+            prepareBodies();
+            if (bodyCount == 0) {
+                return 0;
+            }
+            buildGrid(playArea);
+            detect();
+            solve();
+            notifyContacts();
+            return contactCount;
+        }
+
+        private void prepareBodies() {
+            for (int i = 0; i < bodyCount; i++) {
+                Entity e = bodies[i];
+                int o = i * 4;
+                bounds[o] = e.position.x;
+                bounds[o + 1] = e.position.y;
+                bounds[o + 2] = e.position.x + e.width;
+                bounds[o + 3] = e.position.y + e.height;
+                invMass[i] = e.getPhysicType() == PhysicType.DYNAMIC && e.mass > 0 ? 1.0 / e.mass : 0.0;
+                asleep[i] = e.isSleeping();
+                islands[i] = i;
+            }
+        }
+
+        private void buildGrid(Dimension playArea) {
+            gridWidth = Math.max(1, (playArea.width + cellSize - 1) / cellSize);
+            gridHeight = Math.max(1, (playArea.height + cellSize - 1) / cellSize);
+            int nbCells = gridWidth * gridHeight;
+            if (cellStart.length < nbCells + 1) {
+                cellStart = new int[nbCells + 1];
+                cellFill = new int[nbCells];
+            } else {
+                Arrays.fill(cellStart, 0, nbCells + 1, 0);
+            }
+            // count bodies per cell
+            int total = 0;
+            for (int i = 0; i < bodyCount; i++) {
+                int o = i * 4;
+                int cx1 = cellX(bounds[o]), cy1 = cellY(bounds[o + 1]);
+                int cx2 = cellX(bounds[o + 2]), cy2 = cellY(bounds[o + 3]);
+                cellsRange[o] = cx1;
+                cellsRange[o + 1] = cy1;
+                cellsRange[o + 2] = cx2;
+                cellsRange[o + 3] = cy2;
+                for (int cy = cy1; cy <= cy2; cy++) {
+                    for (int cx = cx1; cx <= cx2; cx++) {
+                        cellStart[cy * gridWidth + cx + 1]++;
+                        total++;
+                    }
+                }
+            }
+            // prefix sum
+            for (int c = 0; c < nbCells; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            if (cellItems.length < total) {
+                cellItems = new int[total * 2];
+            }
+            System.arraycopy(cellStart, 0, cellFill, 0, nbCells);
+            // fill cells
+            for (int i = 0; i < bodyCount; i++) {
+                int o = i * 4;
+                for (int cy = cellsRange[o + 1]; cy <= cellsRange[o + 3]; cy++) {
+                    for (int cx = cellsRange[o]; cx <= cellsRange[o + 2]; cx++) {
+                        cellItems[cellFill[cy * gridWidth + cx]++] = i;
+                    }
+                }
+            }
+        }
+
+        private int cellX(double x) {
+            return Math.min(gridWidth - 1, Math.max(0, (int) (x / cellSize)));
+        }
+
+        private int cellY(double y) {
+            return Math.min(gridHeight - 1, Math.max(0, (int) (y / cellSize)));
+        }
+
+        private void detect() {
+            int nbCells = gridWidth * gridHeight;
+            for (int c = 0; c < nbCells; c++) {
+                int start = cellStart[c], end = cellStart[c + 1];
+                for (int i = start; i < end - 1; i++) {
+                    int ia = cellItems[i];
+                    int oa = ia * 4;
+                    for (int j = i + 1; j < end; j++) {
+                        int ib = cellItems[j];
+                        int ob = ib * 4;
+                        // nothing to do between 2 bodies which are immovable or sleeping.
+                        if ((invMass[ia] == 0 || asleep[ia]) && (invMass[ib] == 0 || asleep[ib])) {
+                            continue;
+                        }
+                        if (bounds[oa + 2] < bounds[ob] || bounds[ob + 2] < bounds[oa]
+                                || bounds[oa + 3] < bounds[ob + 1] || bounds[ob + 3] < bounds[oa + 1]) {
+                            continue;
+                        }
+                        // only test the pair in the cell owning the top-left corner of the intersection.
+                        int ocx = cellX(Math.max(bounds[oa], bounds[ob]));
+                        int ocy = cellY(Math.max(bounds[oa + 1], bounds[ob + 1]));
+                        if (ocy * gridWidth + ocx != c) {
+                            continue;
+                        }
+                        pairTests++;
+                        int count = contactCount;
+                        narrowPhase(ia, ib);
+                        if (contactCount > count) {
+                            wakeAndLink(ia, ib);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * A contact between an awake body and a sleeping one wakes the sleeping one up,
+         * and 2 dynamic bodies in contact are linked into the same island.
+         */
+        private void wakeAndLink(int ia, int ib) {
+            if (asleep[ia]) {
+                bodies[ia].wake();
+                asleep[ia] = false;
+            }
+            if (asleep[ib]) {
+                bodies[ib].wake();
+                asleep[ib] = false;
+            }
+            if (invMass[ia] > 0 && invMass[ib] > 0) {
+                int ra = findIsland(ia), rb = findIsland(ib);
+                if (ra != rb) {
+                    islands[ra] = rb;
+                }
+            }
+        }
+
+        private int findIsland(int i) {
+            while (islands[i] != i) {
+                islands[i] = islands[islands[i]];
+                i = islands[i];
+            }
+            return i;
+        }
+
+        /**
+         * Put to sleep all the islands (groups of dynamic bodies in contact) where every body has been resting
+         * for at least <code>sleepTicks</code> updates. An island sleeps as a whole or not at all.
+         *
+         * @param sleepTicks the number of resting updates before sleeping.
+         */
+        public void sleepIslands(int sleepTicks) {
+            // the island root keeps the minimum resting ticks of the island's bodies.
+            Arrays.fill(islandRestingTicks, 0, bodyCount, Integer.MAX_VALUE);
+            for (int i = 0; i < bodyCount; i++) {
+                if (invMass[i] > 0 && !asleep[i]) {
+                    int r = findIsland(i);
+                    islandRestingTicks[r] = Math.min(islandRestingTicks[r], bodies[i].restingTicks);
+                }
+            }
+            for (int i = 0; i < bodyCount; i++) {
+                if (invMass[i] > 0 && !asleep[i] && islandRestingTicks[findIsland(i)] >= sleepTicks) {
+                    bodies[i].sleep();
+                }
+            }
+        }
+
+        private void narrowPhase(int ia, int ib) {
+            Entity a = bodies[ia], b = bodies[ib];
+            boolean ca = a.type == EntityType.ELLIPSE, cb = b.type == EntityType.ELLIPSE;
+            if (ca && cb) {
+                circleVsCircle(ia, ib);
+            } else if (ca) {
+                circleVsBox(ia, ib, false);
+            } else if (cb) {
+                circleVsBox(ib, ia, true);
+            } else {
+                boxVsBox(ia, ib);
+            }
+        }
+
+        private Contact nextContact() {
+            if (contactCount == contacts.size()) {
+                contacts.add(new Contact());
+            }
+            return contacts.get(contactCount++);
+        }
+
+        private void boxVsBox(int ia, int ib) {
+            int oa = ia * 4, ob = ib * 4;
+            double ox = Math.min(bounds[oa + 2], bounds[ob + 2]) - Math.max(bounds[oa], bounds[ob]);
+            double oy = Math.min(bounds[oa + 3], bounds[ob + 3]) - Math.max(bounds[oa + 1], bounds[ob + 1]);
+            if (ox <= 0 || oy <= 0) {
+                return;
+            }
+            double dx = (bounds[ob] + bounds[ob + 2]) - (bounds[oa] + bounds[oa + 2]);
+            double dy = (bounds[ob + 1] + bounds[ob + 3]) - (bounds[oa + 1] + bounds[oa + 3]);
+            Contact c = nextContact();
+            if (ox < oy) {
+                double nx = dx < 0 ? -1 : 1;
+                c.set(bodies[ia], bodies[ib], nx, 0, ox);
+                double x = nx > 0 ? bounds[oa + 2] : bounds[oa];
+                c.addPoint(x, Math.max(bounds[oa + 1], bounds[ob + 1]));
+                c.addPoint(x, Math.min(bounds[oa + 3], bounds[ob + 3]));
+            } else {
+                double ny = dy < 0 ? -1 : 1;
+                c.set(bodies[ia], bodies[ib], 0, ny, oy);
+                double y = ny > 0 ? bounds[oa + 3] : bounds[oa + 1];
+                c.addPoint(Math.max(bounds[oa], bounds[ob]), y);
+                c.addPoint(Math.min(bounds[oa + 2], bounds[ob + 2]), y);
+            }
+        }
+
+        private void circleVsCircle(int ia, int ib) {
+            int oa = ia * 4, ob = ib * 4;
+            double ra = ((bounds[oa + 2] - bounds[oa]) + (bounds[oa + 3] - bounds[oa + 1])) * 0.25;
+            double rb = ((bounds[ob + 2] - bounds[ob]) + (bounds[ob + 3] - bounds[ob + 1])) * 0.25;
+            double dx = (bounds[ob] + bounds[ob + 2] - bounds[oa] - bounds[oa + 2]) * 0.5;
+            double dy = (bounds[ob + 1] + bounds[ob + 3] - bounds[oa + 1] - bounds[oa + 3]) * 0.5;
+            double d2 = dx * dx + dy * dy;
+            double r = ra + rb;
+            if (d2 >= r * r) {
+                return;
+            }
+            double d = Math.sqrt(d2);
+            double nx = d > 0 ? dx / d : 1.0, ny = d > 0 ? dy / d : 0.0;
+            Contact c = nextContact().set(bodies[ia], bodies[ib], nx, ny, r - d);
+            c.addPoint((bounds[oa] + bounds[oa + 2]) * 0.5 + nx * ra, (bounds[oa + 1] + bounds[oa + 3]) * 0.5 + ny * ra);
+        }
+
+        /**
+         * Circle (ic) versus box (ib) test. If <code>swapped</code> is true, the box is the first entity of the pair,
+         * and the contact normal is computed from the box to the circle.
+         */
+        private void circleVsBox(int ic, int ib, boolean swapped) {
+            int oc = ic * 4, ob = ib * 4;
+            double r = ((bounds[oc + 2] - bounds[oc]) + (bounds[oc + 3] - bounds[oc + 1])) * 0.25;
+            double cx = (bounds[oc] + bounds[oc + 2]) * 0.5, cy = (bounds[oc + 1] + bounds[oc + 3]) * 0.5;
+            double px = Math.max(bounds[ob], Math.min(cx, bounds[ob + 2]));
+            double py = Math.max(bounds[ob + 1], Math.min(cy, bounds[ob + 3]));
+            double dx = px - cx, dy = py - cy;
+            double d2 = dx * dx + dy * dy;
+            double nx, ny, penetration;
+            if (d2 > 0) {
+                if (d2 >= r * r) {
+                    return;
+                }
+                double d = Math.sqrt(d2);
+                nx = dx / d;
+                ny = dy / d;
+                penetration = r - d;
+            } else {
+                // circle center is inside the box: push out through the nearest box side.
+                double left = cx - bounds[ob], right = bounds[ob + 2] - cx;
+                double top = cy - bounds[ob + 1], bottom = bounds[ob + 3] - cy;
+                double min = Math.min(Math.min(left, right), Math.min(top, bottom));
+                nx = min == left ? 1 : (min == right ? -1 : 0);
+                ny = nx != 0 ? 0 : (min == top ? 1 : -1);
+                penetration = r + min;
+            }
+            Contact c = nextContact();
+            if (swapped) {
+                c.set(bodies[ib], bodies[ic], -nx, -ny, penetration);
+            } else {
+                c.set(bodies[ic], bodies[ib], nx, ny, penetration);
+            }
+            c.addPoint(px, py);
+        }
+
+        private void solve() {
+            for (int it = 0; it < ITERATIONS; it++) {
+                for (int i = 0; i < contactCount; i++) {
+                    solveVelocity(contacts.get(i));
+                }
+            }
+            for (int i = 0; i < contactCount; i++) {
+                correctPosition(contacts.get(i));
+            }
+        }
+
+        private double inverseMass(Entity e) {
+            return e.getPhysicType() == PhysicType.DYNAMIC && e.mass > 0 ? 1.0 / e.mass : 0.0;
+        }
+
+        private void solveVelocity(Contact c) {
+            Entity a = c.a, b = c.b;
+            double ima = inverseMass(a), imb = inverseMass(b);
+            double sum = ima + imb;
+            double rvx = b.velocity.x - a.velocity.x;
+            double rvy = b.velocity.y - a.velocity.y;
+            double vn = rvx * c.nx + rvy * c.ny;
+            if (vn > 0) {
+                return;
+            }
+            double e = -vn > RESTITUTION_THRESHOLD
+                    ? Math.min(a.getMaterial().elasticity, b.getMaterial().elasticity)
+                    : 0.0;
+            double j = -(1.0 + e) * vn / sum;
+            a.velocity.x -= j * c.nx * ima;
+            a.velocity.y -= j * c.ny * ima;
+            b.velocity.x += j * c.nx * imb;
+            b.velocity.y += j * c.ny * imb;
+
+            // friction on the tangent: keep only the (frictionA x frictionB) ratio of the tangential velocity.
+            rvx = b.velocity.x - a.velocity.x;
+            rvy = b.velocity.y - a.velocity.y;
+            vn = rvx * c.nx + rvy * c.ny;
+            double tx = rvx - vn * c.nx, ty = rvy - vn * c.ny;
+            double vt = Math.sqrt(tx * tx + ty * ty);
+            if (vt > 1e-9) {
+                tx /= vt;
+                ty /= vt;
+                double jt = (1.0 - a.getMaterial().friction * b.getMaterial().friction) * vt / sum;
+                jt = Math.min(jt, Math.abs(j));
+                a.velocity.x += jt * tx * ima;
+                a.velocity.y += jt * ty * ima;
+                b.velocity.x -= jt * tx * imb;
+                b.velocity.y -= jt * ty * imb;
+            }
+        }
+
+        private void correctPosition(Contact c) {
+            double ima = inverseMass(c.a), imb = inverseMass(c.b);
+            double correction = Math.max(c.penetration - CORRECTION_SLOP, 0.0) / (ima + imb) * CORRECTION_PERCENT;
+            c.a.position.x -= c.nx * correction * ima;
+            c.a.position.y -= c.ny * correction * ima;
+            c.b.position.x += c.nx * correction * imb;
+            c.b.position.y += c.ny * correction * imb;
+        }
+
+        /**
+         * Continuous collision detection for the fast moving entities. It must be called after
+         * {@link CollisionSystem#process(Dimension)}, to use the grid of the collidable entities.
+         * <p>
+         * The move of each fast entity during the update, from its previous position to its current one, is
+         * swept against the bounding box of the collidable entities found in the grid cells crossed by the move
+         * (ellipses are tested through their bounding box, and targets are considered at their current position).
+         * On the earliest hit, the fast entity is moved back to the time of impact, the contact is solved, and the
+         * behaviors are notified. A fast entity which is not collidable itself (like a particle) bounces on the
+         * target without pushing it.
+         *
+         * @param fastBodies the list of fast moving entities updated this time.
+         * @return the number of hits detected.
+         */
+        public int sweep(List<Entity> fastBodies) {
+            if (bodyCount == 0 || fastBodies.isEmpty()) {
+                return 0;
+            }
+            int first = contactCount;
+            for (Entity f : fastBodies) {
+                sweepEntity(f);
+            }
+            for (int i = first; i < contactCount; i++) {
+                Contact c = contacts.get(i);
+                if (c.a.isCollidable()) {
+                    solveVelocity(c);
+                } else {
+                    bounce(c);
+                }
+            }
+            notifyContacts(first);
+            return contactCount - first;
+        }
+
+        private void sweepEntity(Entity f) {
+            double dx = f.position.x - f.lastX, dy = f.position.y - f.lastY;
+            if (dx == 0 && dy == 0) {
+                return;
+            }
+            int cx1 = cellX(Math.min(f.lastX, f.position.x)), cy1 = cellY(Math.min(f.lastY, f.position.y));
+            int cx2 = cellX(Math.max(f.lastX, f.position.x) + f.width);
+            int cy2 = cellY(Math.max(f.lastY, f.position.y) + f.height);
+            double bestT = 1.0, bestNx = 0, bestNy = 0;
+            Entity hit = null;
+            for (int cy = cy1; cy <= cy2; cy++) {
+                for (int cx = cx1; cx <= cx2; cx++) {
+                    int c = cy * gridWidth + cx;
+                    for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                        Entity t = bodies[cellItems[i]];
+                        if (t == f) {
+                            continue;
+                        }
+                        // Minkowski sum of the target box and the fast entity size, crossed by a ray.
+                        double minX = t.position.x - f.width, maxX = t.position.x + t.width;
+                        double minY = t.position.y - f.height, maxY = t.position.y + t.height;
+                        double txEnter, txExit, tyEnter, tyExit;
+                        if (dx == 0) {
+                            if (f.lastX <= minX || f.lastX >= maxX) {
+                                continue;
+                            }
+                            txEnter = Double.NEGATIVE_INFINITY;
+                            txExit = Double.POSITIVE_INFINITY;
+                        } else {
+                            double t1 = (minX - f.lastX) / dx, t2 = (maxX - f.lastX) / dx;
+                            txEnter = Math.min(t1, t2);
+                            txExit = Math.max(t1, t2);
+                        }
+                        if (dy == 0) {
+                            if (f.lastY <= minY || f.lastY >= maxY) {
+                                continue;
+                            }
+                            tyEnter = Double.NEGATIVE_INFINITY;
+                            tyExit = Double.POSITIVE_INFINITY;
+                        } else {
+                            double t1 = (minY - f.lastY) / dy, t2 = (maxY - f.lastY) / dy;
+                            tyEnter = Math.min(t1, t2);
+                            tyExit = Math.max(t1, t2);
+                        }
+                        double tEnter = Math.max(txEnter, tyEnter), tExit = Math.min(txExit, tyExit);
+                        // ignore targets already overlapped at start: they are processed by the narrow phase.
+                        if (tEnter < 0 || tEnter > tExit || tEnter >= bestT) {
+                            continue;
+                        }
+                        bestT = tEnter;
+                        hit = t;
+                        if (txEnter > tyEnter) {
+                            bestNx = dx > 0 ? 1 : -1;
+                            bestNy = 0;
+                        } else {
+                            bestNx = 0;
+                            bestNy = dy > 0 ? 1 : -1;
+                        }
+                    }
+                }
+            }
+            if (hit != null) {
+                f.position.x = f.lastX + dx * bestT - bestNx * CORRECTION_SLOP;
+                f.position.y = f.lastY + dy * bestT - bestNy * CORRECTION_SLOP;
+                if (hit.isSleeping()) {
+                    hit.wake();
+                }
+                Contact c = nextContact().set(f, hit, bestNx, bestNy, 0.0);
+                c.addPoint(
+                        bestNx > 0 ? f.position.x + f.width : f.position.x,
+                        bestNy > 0 ? f.position.y + f.height : f.position.y);
+            }
+        }
+
+        /**
+         * Reflect the velocity of the first entity of the contact against an immovable second one.
+         */
+        private void bounce(Contact c) {
+            Entity a = c.a;
+            double vn = a.velocity.x * c.nx + a.velocity.y * c.ny;
+            if (vn > 0) {
+                double e = Math.min(a.getMaterial().elasticity, c.b.getMaterial().elasticity);
+                a.velocity.x -= (1.0 + e) * vn * c.nx;
+                a.velocity.y -= (1.0 + e) * vn * c.ny;
+            }
+        }
+
+        private void notifyContacts() {
+            notifyContacts(0);
+        }
+
+        private void notifyContacts(int first) {
+            for (int i = first; i < contactCount; i++) {
+                Contact c = contacts.get(i);
+                c.a.contact |= 16;
+                c.b.contact |= 16;
+                for (Behavior<Entity> bh : c.a.getBehaviors()) {
+                    bh.onContact(c, c.a);
+                }
+                for (Behavior<Entity> bh : c.b.getBehaviors()) {
+                    bh.onContact(c, c.b);
+                }
+            }
+        }
+
+        public int getContactCount() {
+            return contactCount;
+        }
+
+        public long getPairTests() {
+            return pairTests;
+        }
+
+        public int getBodyCount() {
+            return bodyCount;
+        }
+    }
+
+    /**
+     * A simple home-grown {@link PhysicEngine} to process all entities and make the
+     * behavior near some realistic physic law (adapted and simplified ones.)
+     * <p>
+     * It is based on the {@link Entity#position} position,
+     * {@link Entity#velocity} velocity attributes and the
+     * {@link Entity#mass} from the
+     * {@link Entity} class.
+     * <p>
+     * It is using a {@link World} object defining {@link World#playArea} and
+     * the internal {@link World#gravity} value.
+     * <p>
+     * Each Entity has its own {@link Material} characteristics, influencing
+     * elasticity, roughness, density.
+     *
+     * <blockquote><strong>INFO:</strong> the {@link PhysicEngine#TIME_FACTOR} is an
+     * internal
+     * reduction factor to adapt global speed of all object on screen.</blockquote>
+     *
+     * @author Frédéric Delorme
+     * @see Entity
+     * @see Material
+     * @see World
+     * @since 1.0.0
+     */
+    public class PhysicEngine implements ConfigurationListener {
+
+        static final double TIME_FACTOR = 0.045;
+        /**
+         * Default velocity under which an entity is considered as resting.
+         */
+        static final double SLEEP_VELOCITY = 0.05;
+        /**
+         * Default number of resting updates before an entity is put asleep.
+         */
+        static final int SLEEP_TICKS = 60;
+        Game game;
+        World world;
+        private ConfigSnapshot cfg;
+        private Dimension playArea;
+        private double sleepVelocity = SLEEP_VELOCITY;
+        private int sleepTicks = SLEEP_TICKS;
+        private final List<Entity> dynamicBodies = new ArrayList<>();
+        private final List<Entity> constrainedBodies = new ArrayList<>();
+        private final List<Entity> fastBodies = new ArrayList<>();
+        private int awakeCount = 0;
+        private int asleepCount = 0;
+        CollisionSystem collisionSystem = new CollisionSystem();
+        private final List<Influencer> matchedInfluencers = new ArrayList<>();
+
+        /**
+         * Initialize the Physic Engine with its parent node.
+         *
+         * @param game
+         */
+        public PhysicEngine(Game game) {
+            this.game = game;
+            this.cfg = config.getSnapshot();
+            this.playArea = cfg.getPlayArea();
+        }
+
+        @Override
+        public void onConfigurationChange(ConfigSnapshot snapshot) {
+            this.cfg = snapshot;
+            this.playArea = snapshot.getPlayArea();
+            if (Optional.ofNullable(world).isPresent()) {
+                world.gravity = snapshot.gravity;
+                world.playArea = snapshot.getPlayArea();
+                world.invalidateInfluencers();
+            }
+        }
+
+        /**
+         * Process all current game entities.
+         * <p>
+         * Entities are filtered on only active ones, ant sorted regarding their priority.
+         * After processing the new positions, collisions between collidable entities are detected and solved by
+         * the {@link CollisionSystem}, and the moves of the fast entities are swept to avoid tunnelling.
+         * </p>
+         * <p>
+         * Then, each entity is constrained to not be out of the world play area ({@link World#playArea}),
+         * and apply a {@link Material#elasticity} factor on it and changes the velocity on the impacted axis.
+         * </p>
+         * <p>
+         * Finally, the DYNAMIC entities resting for a while are put asleep (see {@link PhysicEngine#updateSleep}).
+         * A sleeping entity is neither integrated nor constrained.
+         * </p>
+         *
+         * @param elapsed the elapsed time since previous update call.
+         */
+        private void update(long elapsed) {
+            collisionSystem.clear();
+            dynamicBodies.clear();
+            constrainedBodies.clear();
+            fastBodies.clear();
+            if (Optional.ofNullable(world).isPresent()) {
+                world.influencers.forEach(Influencer::resetStats);
+            }
+            this.game.entities.values().stream()
+                    .filter(e -> !(e instanceof Camera) && e.isActive())
+                    .sorted((e1, e2) -> e1.priority < e2.priority ? 1 : -1)
+                    .forEach(e -> {
+                        updateEntity(e, elapsed);
+                        if (!e.isRelativeToParent() && !e.isFixedToCamera()) {
+                            if (!e.isSleeping()) {
+                                e.contact = 0;
+                                constrainedBodies.add(e);
+                                if (e.isFast() && e.getPhysicType() == PhysicType.DYNAMIC) {
+                                    fastBodies.add(e);
+                                }
+                            }
+                            if (e.isCollidable()) {
+                                collisionSystem.add(e);
+                            }
+                            if (e.getPhysicType() == PhysicType.DYNAMIC) {
+                                dynamicBodies.add(e);
+                            }
+                        }
+                    });
+            collisionSystem.process(playArea);
+            collisionSystem.sweep(fastBodies);
+            // solid tiles and play area constraints are applied last, to fix any position pushed out by collisions.
+            TileMap tileMap = Optional.ofNullable(world).map(World::getTileMap).orElse(null);
+            for (Entity e : constrainedBodies) {
+                if (tileMap != null && e.isCollidable() && e.getPhysicType() == PhysicType.DYNAMIC) {
+                    e.contact |= tileMap.resolve(e);
+                }
+                constraintsEntity(e);
+            }
+            updateSleep(elapsed * TIME_FACTOR);
+        }
+
+        /**
+         * Count the resting updates of each awake DYNAMIC entity and put asleep the ones resting for at least
+         * {@link PhysicEngine#sleepTicks} updates.
+         * <p>
+         * The resting state is evaluated on the real move of the entity during the update (after constraints and
+         * collisions), so an entity lying on the ground, pushed down by gravity and back up by the floor, is
+         * seen as resting. Collidable entities in contact are grouped by island, and an island sleeps as a whole.
+         * </p>
+         *
+         * @param time the time factor of this update.
+         */
+        private void updateSleep(double time) {
+            double threshold = sleepVelocity * time;
+            for (Entity e : dynamicBodies) {
+                if (!e.isSleeping()) {
+                    double dx = e.position.x - e.lastX, dy = e.position.y - e.lastY;
+                    if (dx * dx + dy * dy < threshold * threshold && !isInfluenced(e)) {
+                        e.restingTicks++;
+                    } else {
+                        e.restingTicks = 0;
+                    }
+                    if (!e.isCollidable() && e.restingTicks >= sleepTicks) {
+                        e.sleep();
+                    }
+                }
+            }
+            collisionSystem.sleepIslands(sleepTicks);
+            awakeCount = 0;
+            asleepCount = 0;
+            for (Entity e : dynamicBodies) {
+                if (e.isSleeping()) {
+                    asleepCount++;
+                } else {
+                    awakeCount++;
+                }
+            }
+        }
+
+        /**
+         * Check if the entity is in an {@link Influencer} area applying some effect on it.
+         */
+        private boolean isInfluenced(Entity e) {
+            world.findInfluencers(e.position.x + e.width * 0.5, e.position.y + e.height * 0.5, matchedInfluencers);
+            for (Influencer i : matchedInfluencers) {
+                if (i.force.x != 0 || i.force.y != 0 || i.attraction != 0 || i.gravityFactor != 1.0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Apply World's play area  ({@link World#playArea}) constrains on the {@link Entity}.
+         * <p>
+         * In case of collision with play area borders, the {@link Material#elasticity} factor is applied onto the
+         * {@link Entity#velocity}, and {@link Entity#position} is corrected.
+         * </p>
+         *
+         * @param e the  Entity to be constrained.
+         */
+        private void constraintsEntity(Entity e) {
+            int playAreaWidth = cfg.playAreaWidth;
+            int playAreaHeight = cfg.playAreaHeight;
+            if (e.position.x <= 0) {
+                e.position.x = 0;
+                e.velocity.x = -(e.getMaterial().elasticity * e.velocity.x);
+                e.contact |= 1;
+            }
+            if (e.position.y <= 0) {
+                e.position.y = 0;
+                e.velocity.y = -(e.getMaterial().elasticity * e.velocity.y);
+                e.contact |= 2;
+            }
+            if (e.position.x + e.width > playAreaWidth) {
+                e.position.x = playAreaWidth - e.width;
+                e.velocity.x = -(e.getMaterial().elasticity * e.velocity.x);
+                e.contact |= 4;
+            }
+            if (e.position.y + e.height > playAreaHeight) {
+                e.position.y = playAreaHeight - e.height;
+                e.velocity.y = -(e.getMaterial().elasticity * e.velocity.y);
+                e.contact |= 8;
+            }
+        }
+
+        /**
+         * Update of an individual {@link Entity}
+         *
+         * @param e       the  Entity to be updated.
+         * @param elapsed the elapsed time since previous update call.
+         */
+        private void updateEntity(Entity e, long elapsed) {
+            double time = elapsed * TIME_FACTOR;
+            if (!e.isFixedToCamera() && e.getPhysicType() == PhysicType.DYNAMIC) {
+                // a force applied on a sleeping entity, or an influencer area, wakes it up.
+                if (e.isSleeping() && !e.relativeToParent
+                        && (e.velocity.x != 0 || e.velocity.y != 0 || isInfluenced(e))) {
+                    e.wake();
+                }
+                if (!e.relativeToParent && !e.isSleeping()) {
+                    e.lastX = e.position.x;
+                    e.lastY = e.position.y;
+                    // retrieve influencers the entity is in.
+                    e.influenceMaterial = null;
+                    double gravityFactor = 1.0;
+                    world.findInfluencers(
+                            e.position.x + e.width * 0.5,
+                            e.position.y + e.height * 0.5,
+                            matchedInfluencers);
+                    for (Influencer i : matchedInfluencers) {
+                        gravityFactor *= i.gravityFactor;
+                    }
+                    if (e.mass != 0) {
+                        e.velocity.y += world.gravity * gravityFactor * time * 10.0 / e.mass;
+                    }
+                    for (Influencer i : matchedInfluencers) {
+                        i.apply(e, time);
+                    }
+                    if (e.contact > 0) {
+                        e.velocity.x *= e.getMaterial().friction;
+                        e.velocity.y *= e.getMaterial().friction;
+                    }
+                    e.position.x += e.velocity.x * time;
+                    e.position.y += e.velocity.y * time;
+                }
+            }
+            // update animation with next frame (if required)
+            if (!e.currentAnimation.isEmpty()) {
+                e.animations.get(e.currentAnimation).update(elapsed);
+            }
+            // process attached behaviors
+            if (!e.getBehaviors().isEmpty()) {
+                e.getBehaviors().forEach(b -> b.update(elapsed, e));
+            }
+
+            e.update(elapsed);
+        }
+
+        /**
+         * Set the {@link PhysicEngine}'s {@link World} instance to define gravity, play area and more.
+         *
+         * @param world the {@link World} object defining the Physic limit for the {@link PhysicEngine}.
+         */
+        public void setWorld(World world) {
+            this.world = world;
+        }
+
+        /**
+         * Retrieve the current {@link World} instance used by the {@link PhysicEngine} to constrain Entities.
+         *
+         * @return a {@link World} instance used by the PhysicEngine computation system.
+         */
+        public World getWorld() {
+            return this.world;
+        }
+
+        /**
+         * Define the sleeping thresholds: an entity moving slower than <code>velocity</code> during
+         * <code>ticks</code> updates is put asleep.
+         *
+         * @param velocity the resting velocity threshold.
+         * @param ticks    the number of resting updates before sleeping.
+         * @return this PhysicEngine.
+         */
+        public PhysicEngine setSleepThreshold(double velocity, int ticks) {
+            this.sleepVelocity = velocity;
+            this.sleepTicks = ticks;
+            return this;
+        }
+
+        public int getAwakeCount() {
+            return awakeCount;
+        }
+
+        public int getAsleepCount() {
+            return asleepCount;
+        }
+
+        /**
+         * Retrieve the {@link CollisionSystem} used to detect and solve collisions between entities.
+         *
+         * @return the {@link CollisionSystem} instance of this {@link PhysicEngine}.
+         */
+        public CollisionSystem getCollisionSystem() {
+            return this.collisionSystem;
+        }
+    }
+
+    /**
+     * The {@link DrawPlugin} interface define a common way to draw any {@link Entity}.
+     * <p>
+     * It will be used by any implementation to tell how to draw a specific object inheriting from {@link Entity}.
+     *
+     * @param <T> the class inheriting from {@link Entity} this {@link DrawPlugin} implementation is defined for.
+     * @author Frédéric Delorme
+     * @since 1.0.1
+     */
+    public interface DrawPlugin<T extends Entity> {
+        /**
+         * Class of the object that can be drawn by that DrawPlugin.
+         *
+         * @return a Class specification.
+         */
+        public Class<T> getClassName();
+
+        /**
+         * Implementation of the draw for the defined class
+         *
+         * @param r the parent Renderer
+         * @param g the Graphics2D interface to be used as "pencil"
+         * @param t the T extending {@link Entity} instance to be drawn.
+         */
+        public default void draw(Renderer r, Graphics2D g, T t) {
+        }
+    }
+
+    /**
+     * A Default implementation for the {@link DrawPlugin}, to be used on any basic {@link Entity},
+     * and to be extending for any common {@link Entity} processing.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.1
+     */
+    public abstract class DefaultDrawPlugin<T extends Entity> implements DrawPlugin<T> {
+        @Override
+        public abstract Class<T> getClassName();
+
+        @Override
+        public void draw(Renderer r, Graphics2D g, T e) {
+            double x = e.position.x;
+            double y = e.position.y;
+            if (e.relativeToParent) {
+                x = e.parent.position.x + e.position.x;
+                y = e.parent.position.y + e.position.y;
+            }
+
+            switch (e.type) {
+                // draw a simple rectangle
+                case RECTANGLE -> {
+                    r.setColor(g, e.fillColor);
+                    g.fillRect((int) x, (int) y, (int) e.width, (int) e.height);
+                    r.setColor(g, e.borderColor);
+                    r.setStroke(g, 1.0f);
+                    g.drawRect((int) x, (int) y, (int) e.width, (int) e.height);
+                }
+                // draw a line
+                case LINE -> {
+                    r.setColor(g, e.borderColor);
+                    r.setStroke(g, (float) e.width);
+                    g.drawLine((int) x, (int) y, (int) (e.position.x + e.velocity.x), (int) (e.position.y + e.velocity.y));
+                }
+                // draw an ellipse
+                case ELLIPSE -> {
+                    r.setColor(g, e.fillColor);
+                    g.fillOval((int) x, (int) y, (int) e.width, (int) e.height);
+                    r.setColor(g, e.borderColor);
+                    r.setStroke(g, 1.0f);
+                    g.drawOval((int) x, (int) y, (int) e.width, (int) e.height);
+                }
+                // draw a Dot (dot is a width x width Ellipse)
+                case DOT -> {
+                    r.setColor(g, e.fillColor);
+                    g.fillOval((int) x, (int) y, (int) e.width, (int) e.width);
+                }
+                // draw the entity corresponding image or current animation image frame
+                case IMAGE -> {
+                    BufferedImage img = e.image;
+                    if (!e.currentAnimation.equals("")) {
+                        img = e.animations.get(e.currentAnimation).getFrame();
+                    }
+                    if (Optional.ofNullable(img).isPresent()) {
+                        if (e.direction >= 0) {
+                            g.drawImage(
+                                    img,
+                                    (int) x, (int) y,
+                                    (int) e.width, (int) e.height,
+                                    null);
+                        } else {
+                            g.drawImage(
+                                    img,
+                                    (int) (x + e.width), (int) y,
+                                    (int) -e.width, (int) e.height,
+                                    null);
+                        }
+                        e.setSize(img.getWidth(), img.getHeight());
+                        e.updateBBox();
+                    }
+                }
+                case NONE -> {
+                    // Nothing to do
+                }
+                default -> {
+                    System.err.printf("ERROR: Unable to draw the entity %s%n", e.getName());
+                }
+            }
+            // draw debug info if required
+            if (r.isDebugAtLeast(2)) {
+                r.drawDebugEntityInfo(g, e);
+            }
+        }
+    }
+
+    public class EntityDrawPlugin extends DefaultDrawPlugin<Entity> {
+
+        @Override
+        public Class<Entity> getClassName() {
+            return Entity.class;
+        }
+    }
+
+    public class ParticleDrawPlugin extends DefaultDrawPlugin<Particle> {
+
+        @Override
+        public Class<Particle> getClassName() {
+            return Particle.class;
+        }
+    }
+
+    /**
+     * The {@link TextStyle} is an immutable copy of the styling attributes of a {@link TextEntity}
+     * (font, colors, border and shadow widths), able to draw a text with that style, or to render it
+     * into an image to be cached.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class TextStyle {
+        /**
+         * Extra pixels around the rendered text, to keep any glyph overhang.
+         */
+        static final int MARGIN = 2;
+        final Font font;
+        final Color textColor;
+        final Color borderColor;
+        final Color shadowColor;
+        final int borderWidth;
+        final int shadowWidth;
+
+        public TextStyle(TextEntity te, Font f) {
+            this.font = f;
+            this.textColor = te.textColor;
+            this.borderColor = te.borderColor;
+            this.shadowColor = te.shadowColor;
+            this.borderWidth = te.borderWidth;
+            this.shadowWidth = te.shadowWidth;
+        }
+
+        /**
+         * Check if the {@link TextEntity} current style is the same as this one.
+         *
+         * @param te the TextEntity to be compared with.
+         * @param f  the font to be used by the TextEntity.
+         * @return true if all the style attributes are equals.
+         */
+        public boolean matches(TextEntity te, Font f) {
+            return font.equals(f)
+                    && Objects.equals(textColor, te.textColor)
+                    && Objects.equals(borderColor, te.borderColor)
+                    && Objects.equals(shadowColor, te.shadowColor)
+                    && borderWidth == te.borderWidth
+                    && shadowWidth == te.shadowWidth;
+        }
+
+        /**
+         * Draw the text with its border, shadow and color, the baseline starting at (x,y).
+         */
+        public void draw(Graphics2D g, String text, int x, int y) {
+            g.setFont(font);
+            drawBorder(g, text, x, y);
+            drawShadow(g, text, x, y);
+            drawText(g, text, x, y);
+        }
+
+        /**
+         * Draw the border pass of the text, the baseline starting at (x,y).
+         */
+        public void drawBorder(Graphics2D g, String text, int x, int y) {
+            g.setColor(borderColor);
+            for (int xb = 0; xb < borderWidth; xb++) {
+                for (int yb = 0; yb < borderWidth; yb++) {
+                    g.drawString(text, x - xb, y - yb);
+                    g.drawString(text, x + xb, y - yb);
+                    g.drawString(text, x - xb, y + yb);
+                    g.drawString(text, x + xb, y + yb);
+                }
+            }
+        }
+
+        /**
+         * Draw the shadow pass of the text, the baseline starting at (x,y).
+         */
+        public void drawShadow(Graphics2D g, String text, int x, int y) {
+            g.setColor(shadowColor);
+            for (int sw = 0; sw < shadowWidth; sw++) {
+                g.drawString(text, x + sw, y + sw);
+            }
+        }
+
+        /**
+         * Draw the text itself with its color, the baseline starting at (x,y).
+         */
+        public void drawText(Graphics2D g, String text, int x, int y) {
+            g.setColor(textColor);
+            g.drawString(text, x, y);
+        }
+
+        /**
+         * @return the horizontal distance from the left of a rendered image to the text start.
+         */
+        public int getOffsetX() {
+            return MARGIN + borderWidth;
+        }
+
+        /**
+         * @param fm the font metrics of this style font.
+         * @return the vertical distance from the top of a rendered image to the text baseline.
+         */
+        public int getOffsetY(FontMetrics fm) {
+            return MARGIN + borderWidth + fm.getAscent();
+        }
+
+        public int getImageWidth(FontMetrics fm, int textWidth) {
+            return textWidth + 2 * (MARGIN + borderWidth) + shadowWidth;
+        }
+
+        public int getImageHeight(FontMetrics fm) {
+            return fm.getAscent() + fm.getDescent() + 2 * (MARGIN + borderWidth) + shadowWidth;
+        }
+
+        /**
+         * Render the styled text into a new transparent image.
+         *
+         * @param ref  the Graphics2D used as reference for rendering hints and font metrics.
+         * @param text the text to be rendered.
+         * @return a new image containing the styled text.
+         */
+        public BufferedImage render(Graphics2D ref, String text) {
+            FontMetrics fm = ref.getFontMetrics(font);
+            BufferedImage img = new BufferedImage(
+                    Math.max(1, getImageWidth(fm, fm.stringWidth(text))),
+                    getImageHeight(fm),
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D ig = img.createGraphics();
+            ig.setRenderingHints(ref.getRenderingHints());
+            draw(ig, text, getOffsetX(), getOffsetY(fm));
+            ig.dispose();
+            return img;
+        }
+    }
+
+    /**
+     * The {@link GlyphAtlas} contains the pre-rendered glyphs of a limited charset for one {@link TextStyle},
+     * in one image. It is used to draw frequently changing text (scores, counters, timers...) without
+     * re-rendering the whole styled text each time it changes.
+     * <p>
+     * Glyphs are drawn one after the other with their advance width, so kerning is lost. A glyph cell is wider than
+     * its advance to keep its border and shadow, so each of the border, shadow and text passes is pre-rendered in its
+     * own row of cells, and drawn for the whole text before the next one: the border and shadow of a glyph never
+     * cover the text of the previous glyph, as for the cached image of the whole text.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class GlyphAtlas {
+        /**
+         * Default set of characters pre-rendered into an atlas.
+         */
+        public static final String DEFAULT_CHARSET = "0123456789 +-.:,/%x";
+        /**
+         * Rows of the atlas image, one per pass of the {@link TextStyle}, in drawing order.
+         */
+        private static final int BORDER_PASS = 0, SHADOW_PASS = 1, TEXT_PASS = 2, PASSES = 3;
+        final TextStyle style;
+        private final BufferedImage image;
+        private final int[] index = new int[128];
+        private final int[] advances;
+        private final int[] cellX;
+        private final int[] cellWidth;
+        private final int cellHeight;
+        private final int offsetX;
+        private final int offsetY;
+
+        public GlyphAtlas(Graphics2D ref, TextStyle style, String charset) {
+            this.style = style;
+            Arrays.fill(index, -1);
+            FontMetrics fm = ref.getFontMetrics(style.font);
+            advances = new int[charset.length()];
+            cellX = new int[charset.length()];
+            cellWidth = new int[charset.length()];
+            int x = 0;
+            for (int i = 0; i < charset.length(); i++) {
+                char c = charset.charAt(i);
+                if (c < index.length) {
+                    index[c] = i;
+                }
+                advances[i] = fm.charWidth(c);
+                cellX[i] = x;
+                cellWidth[i] = style.getImageWidth(fm, advances[i]);
+                x += cellWidth[i];
+            }
+            cellHeight = style.getImageHeight(fm);
+            offsetX = style.getOffsetX();
+            offsetY = style.getOffsetY(fm);
+            image = new BufferedImage(Math.max(1, x), cellHeight * PASSES, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D ig = image.createGraphics();
+            ig.setRenderingHints(ref.getRenderingHints());
+            ig.setFont(style.font);
+            for (int i = 0; i < charset.length(); i++) {
+                String glyph = String.valueOf(charset.charAt(i));
+                style.drawBorder(ig, glyph, cellX[i] + offsetX, offsetY + BORDER_PASS * cellHeight);
+                style.drawShadow(ig, glyph, cellX[i] + offsetX, offsetY + SHADOW_PASS * cellHeight);
+                style.drawText(ig, glyph, cellX[i] + offsetX, offsetY + TEXT_PASS * cellHeight);
+            }
+            ig.dispose();
+        }
+
+        /**
+         * Check if all the text characters are in this atlas.
+         */
+        public boolean canDraw(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= index.length || index[c] == -1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Draw the text from the atlas glyphs, the baseline starting at (x,y).
+         */
+        public void draw(Graphics2D g, String text, int x, int y) {
+            if (style.borderWidth > 0) {
+                drawPass(g, text, x, y, BORDER_PASS);
+            }
+            if (style.shadowWidth > 0) {
+                drawPass(g, text, x, y, SHADOW_PASS);
+            }
+            drawPass(g, text, x, y, TEXT_PASS);
+        }
+
+        private void drawPass(Graphics2D g, String text, int x, int y, int pass) {
+            int dx = x - offsetX;
+            int dy = y - offsetY;
+            int sy = pass * cellHeight;
+            for (int i = 0; i < text.length(); i++) {
+                int gi = index[text.charAt(i)];
+                g.drawImage(image,
+                        dx, dy, dx + cellWidth[gi], dy + cellHeight,
+                        cellX[gi], sy, cellX[gi] + cellWidth[gi], sy + cellHeight,
+                        null);
+                dx += advances[gi];
+            }
+        }
+    }
+
+    /**
+     * The {@link TileMapDrawPlugin} draws the chunks of a {@link TileMap} visible in the camera viewport.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class TileMapDrawPlugin implements DrawPlugin<TileMap> {
+
+        @Override
+        public Class<TileMap> getClassName() {
+            return TileMap.class;
+        }
+
+        @Override
+        public void draw(Renderer r, Graphics2D g, TileMap tm) {
+            double x = 0, y = 0;
+            double w = r.renderingBuffer.getWidth(), h = r.renderingBuffer.getHeight();
+            if (Optional.ofNullable(r.camera).isPresent() && !tm.isFixedToCamera()) {
+                x = r.camera.position.x;
+                y = r.camera.position.y;
+                if (r.camera.rotation != 0.0) {
+                    // the rotated viewport stays in the circle around it.
+                    double radius = Math.hypot(w, h);
+                    x -= (radius - w) * 0.5;
+                    y -= (radius - h) * 0.5;
+                    w = h = radius;
+                }
+            }
+            tm.drawArea(g, x, y, w, h);
+        }
+    }
+
+    /**
+     * The {@link ParallaxDrawPlugin} copies the visible part of a {@link ParallaxLayer} to the rendering buffer,
+     * according to the current {@link Camera} position.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class ParallaxDrawPlugin implements DrawPlugin<ParallaxLayer> {
+
+        @Override
+        public Class<ParallaxLayer> getClassName() {
+            return ParallaxLayer.class;
+        }
+
+        @Override
+        public void draw(Renderer r, Graphics2D g, ParallaxLayer pl) {
+            double x = 0, y = 0;
+            if (Optional.ofNullable(r.camera).isPresent()) {
+                x = r.camera.position.x;
+                y = r.camera.position.y;
+            }
+            pl.drawArea(g, x, y, r.renderingBuffer.getWidth(), r.renderingBuffer.getHeight());
+        }
+    }
+
+    public class TextDrawPlugin implements DrawPlugin<TextEntity> {
+
+        @Override
+        public Class<TextEntity> getClassName() {
+            return TextEntity.class;
+        }
+
+        /**
+         * Draw the styled text of the {@link TextEntity} from its cached image, re-rendered only when the text or
+         * its style has changed. If the {@link TextEntity} is flagged to use a {@link GlyphAtlas}, and all its
+         * characters are in the atlas, the text is drawn glyph by glyph from the atlas.
+         */
+        @Override
+        public void draw(Renderer r, Graphics2D g, TextEntity textEntity) {
+
+            if (Optional.ofNullable(r.camera).isPresent() && !textEntity.isFixedToCamera()) {
+                r.camera.preDraw(g);
+            }
+
+            Font font = Optional.ofNullable(textEntity.font).orElse(g.getFont());
+            int x = (int) textEntity.position.x;
+            int y = (int) textEntity.position.y;
+            if (textEntity.glyphAtlas) {
+                GlyphAtlas atlas = r.getGlyphAtlas(g, textEntity, font);
+                if (atlas.canDraw(textEntity.text)) {
+                    atlas.draw(g, textEntity.text, x, y);
+                } else {
+                    drawCachedText(g, textEntity, font, x, y);
+                }
+            } else {
+                drawCachedText(g, textEntity, font, x, y);
+            }
+
+            if (Optional.ofNullable(r.camera).isPresent() && !textEntity.isFixedToCamera()) {
+                r.camera.postDraw(g);
+            }
+        }
+
+        private void drawCachedText(Graphics2D g, TextEntity te, Font font, int x, int y) {
+            if (te.cachedImage == null || !te.text.equals(te.cachedText) || !te.cachedStyle.matches(te, font)) {
+                te.cachedStyle = new TextStyle(te, font);
+                te.cachedText = te.text;
+                te.cachedImage = te.cachedStyle.render(g, te.text);
+                te.cachedOffsetY = te.cachedStyle.getOffsetY(g.getFontMetrics(font));
+            }
+            g.drawImage(te.cachedImage, x - te.cachedStyle.getOffsetX(), y - te.cachedOffsetY, null);
+        }
+
+    }
+
+    /**
+     * The {@link ParticleRasterizer} draws the DOT and LINE particles straight into the <code>int[]</code> pixel
+     * data of a <code>TYPE_INT_ARGB</code> {@link BufferedImage}, bypassing the {@link Graphics2D} pipeline
+     * (no color, stroke or transform state change per particle).
+     * <p>
+     * Colors are blended with the existing pixels (source over), so half-transparent particles like rain drops
+     * are rendered as with {@link Graphics2D}, but without antialiasing.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class ParticleRasterizer {
+        private int[] pixels;
+        private int width, height;
+        private int offsetX, offsetY;
+        private long count = 0;
+
+        /**
+         * Start drawing into the image pixel data.
+         *
+         * @param image the TYPE_INT_ARGB image to draw into.
+         * @return this ParticleRasterizer.
+         */
+        public ParticleRasterizer begin(BufferedImage image) {
+            this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.offsetX = 0;
+            this.offsetY = 0;
+            this.count = 0;
+            return this;
+        }
+
+        /**
+         * Set the translation applied on next drawn particles (the opposite of the camera position).
+         *
+         * @param ox horizontal offset
+         * @param oy vertical offset
+         */
+        public void setOffset(int ox, int oy) {
+            this.offsetX = ox;
+            this.offsetY = oy;
+        }
+
+        /**
+         * Check if the {@link Entity} can be drawn by this rasterizer.
+         *
+         * @param e the entity to be drawn.
+         * @return true if it is a DOT, or a 1 pixel width LINE.
+         */
+        public boolean accept(Entity e) {
+            return pixels != null
+                    && ((e.type == EntityType.DOT && e.fillColor != null)
+                    || (e.type == EntityType.LINE && e.borderColor != null && e.width <= 1.0));
+        }
+
+        /**
+         * Draw the DOT or LINE {@link Entity} as {@link DefaultDrawPlugin} would do.
+         *
+         * @param e the entity to be drawn.
+         */
+        public void draw(Entity e) {
+            double x = e.position.x;
+            double y = e.position.y;
+            if (e.relativeToParent) {
+                x = e.parent.position.x + e.position.x;
+                y = e.parent.position.y + e.position.y;
+            }
+            if (e.type == EntityType.DOT) {
+                dot((int) x, (int) y, (int) e.width, e.fillColor.getRGB());
+            } else {
+                line((int) x, (int) y,
+                        (int) (e.position.x + e.velocity.x), (int) (e.position.y + e.velocity.y),
+                        e.borderColor.getRGB());
+            }
+            count++;
+        }
+
+        /**
+         * Draw a filled disk of diameter size at (x,y) top-left corner.
+         */
+        public void dot(int x, int y, int size, int argb) {
+            x += offsetX;
+            y += offsetY;
+            if (size <= 1) {
+                plot(x, y, argb);
+                return;
+            }
+            double r = size * 0.5;
+            double r2 = r * r;
+            for (int j = 0; j < size; j++) {
+                double dy = j + 0.5 - r;
+                int half = (int) Math.round(Math.sqrt(Math.max(0, r2 - dy * dy)));
+                int cx = x + (int) r;
+                for (int i = cx - half; i < cx + half; i++) {
+                    plot(i, y + j, argb);
+                }
+            }
+        }
+
+        /**
+         * Draw a 1 pixel width line from (x0,y0) to (x1,y1) with the Bresenham's algorithm.
+         */
+        public void line(int x0, int y0, int x1, int y1, int argb) {
+            x0 += offsetX;
+            y0 += offsetY;
+            x1 += offsetX;
+            y1 += offsetY;
+            int dx = Math.abs(x1 - x0), sx = x0 < x1 ? 1 : -1;
+            int dy = -Math.abs(y1 - y0), sy = y0 < y1 ? 1 : -1;
+            int err = dx + dy;
+            while (true) {
+                plot(x0, y0, argb);
+                if (x0 == x1 && y0 == y1) {
+                    break;
+                }
+                int e2 = 2 * err;
+                if (e2 >= dy) {
+                    err += dy;
+                    x0 += sx;
+                }
+                if (e2 <= dx) {
+                    err += dx;
+                    y0 += sy;
+                }
+            }
+        }
+
+        private void plot(int x, int y, int argb) {
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return;
+            }
+            int i = y * width + x;
+            int sa = argb >>> 24;
+            if (sa == 255) {
+                pixels[i] = argb;
+            } else if (sa > 0) {
+                pixels[i] = blend(argb, pixels[i], sa);
+            }
+        }
+
+        /**
+         * Blend the non-premultiplied src color over the dst one (both ARGB).
+         */
+        private int blend(int src, int dst, int sa) {
+            int da = dst >>> 24;
+            int ia = 255 - sa;
+            if (da == 255) {
+                // opaque destination: blend red & blue, then green, as packed integers.
+                int rb = (((src & 0xff00ff) * sa + (dst & 0xff00ff) * ia) >>> 8) & 0xff00ff;
+                int g = (((src & 0x00ff00) * sa + (dst & 0x00ff00) * ia) >>> 8) & 0x00ff00;
+                return 0xff000000 | rb | g;
+            }
+            int oa = sa + (da * ia + 127) / 255;
+            if (oa == 0) {
+                return 0;
+            }
+            // destination contribution weighted by its own alpha.
+            int dw = (da * ia + 127) / 255;
+            int r = (((src >> 16) & 0xff) * sa + ((dst >> 16) & 0xff) * dw) / oa;
+            int g = (((src >> 8) & 0xff) * sa + ((dst >> 8) & 0xff) * dw) / oa;
+            int b = ((src & 0xff) * sa + (dst & 0xff) * dw) / oa;
+            return (oa << 24) | (r << 16) | (g << 8) | b;
+        }
+
+        /**
+         * Stop drawing into the current image.
+         *
+         * @return the number of particles drawn since {@link ParticleRasterizer#begin(BufferedImage)}.
+         */
+        public long end() {
+            this.pixels = null;
+            return count;
+        }
+    }
 
-        private long dropTime = 0;
+    /**
+     * The {@link DebugStats} keeps the statistics displayed on the debug line into fixed typed slots,
+     * to be updated on each frame without boxing nor allocation.
+     * <p>
+     * A slot is created on the first set of its key, and slots are kept sorted on their key. The slot arrays
+     * grow when all of them are used.
+     * The text of the debug line is built into a reused character buffer, and only when a value has changed.
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public class DebugStats {
+        private static final int INTEGER = 0;
+        private static final int DECIMAL = 1;
+        private static final int TEXT = 2;
+        private static final int TIME = 3;
+        private static final int INITIAL_SLOTS = 32;
+        private static final String[] TYPE_NAMES = {"integer", "decimal", "text", "time"};
+
+        private String[] keys = new String[INITIAL_SLOTS];
+        private String[] labels = new String[INITIAL_SLOTS];
+        private int[] types = new int[INITIAL_SLOTS];
+        private long[] longValues = new long[INITIAL_SLOTS];
+        private double[] doubleValues = new double[INITIAL_SLOTS];
+        private String[] textValues = new String[INITIAL_SLOTS];
+        private int count = 0;
+
+        private final String start;
+        private final String end;
+        private final StringBuilder sb = new StringBuilder(256);
+        private char[] chars = new char[256];
+        private int length = 0;
+        private boolean dirty = true;
+
+        public DebugStats(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private int slot(String key, int type) {
+            for (int i = 0; i < count; i++) {
+                if (keys[i] == key || keys[i].equals(key)) {
+                    if (types[i] != type) {
+                        System.err.printf("ERROR : statistic %s changed from %s to %s value%n",
+                                key, TYPE_NAMES[types[i]], TYPE_NAMES[type]);
+                        types[i] = type;
+                        longValues[i] = 0;
+                        doubleValues[i] = 0.0;
+                        textValues[i] = null;
+                        dirty = true;
+                    }
+                    return i;
+                }
+            }
+            if (count == keys.length) {
+                grow();
+            }
+            int i = count;
+            while (i > 0 && keys[i - 1].compareTo(key) > 0) {
+                keys[i] = keys[i - 1];
+                labels[i] = labels[i - 1];
+                types[i] = types[i - 1];
+                longValues[i] = longValues[i - 1];
+                doubleValues[i] = doubleValues[i - 1];
+                textValues[i] = textValues[i - 1];
+                i--;
+            }
+            keys[i] = key;
+            labels[i] = key.substring(key.indexOf('_') + 1);
+            types[i] = type;
+            longValues[i] = 0;
+            doubleValues[i] = 0.0;
+            textValues[i] = null;
+            count++;
+            dirty = true;
+            return i;
+        }
+
+        private void grow() {
+            int size = keys.length * 2;
+            keys = Arrays.copyOf(keys, size);
+            labels = Arrays.copyOf(labels, size);
+            types = Arrays.copyOf(types, size);
+            longValues = Arrays.copyOf(longValues, size);
+            doubleValues = Arrays.copyOf(doubleValues, size);
+            textValues = Arrays.copyOf(textValues, size);
+        }
+
+        public DebugStats set(String key, long value) {
+            int i = slot(key, INTEGER);
+            if (longValues[i] != value) {
+                longValues[i] = value;
+                dirty = true;
+            }
+            return this;
+        }
 
-        private long internalTime = 0;
+        public DebugStats set(String key, double value) {
+            int i = slot(key, DECIMAL);
+            if (doubleValues[i] != value) {
+                doubleValues[i] = value;
+                dirty = true;
+            }
+            return this;
+        }
 
-        private Color dropColor = new Color(0.4f, 0.7f, 0.9f, 0.5f);
+        public DebugStats set(String key, String value) {
+            int i = slot(key, TEXT);
+            if (!Objects.equals(textValues[i], value)) {
+                textValues[i] = value;
+                dirty = true;
+            }
+            return this;
+        }
 
-        public String getName() {
-            return "Rain";
+        public DebugStats set(String key, boolean value) {
+            return set(key, value ? "true" : "false");
         }
 
         /**
-         * Generate batch rain drop every dropTime millisecond.
+         * Set a time value, displayed as <code>hh:mm:ss</code>.
          *
-         * @param world    parent World object to define PLay area
-         * @param batch    number of drop to be generated on the dropTime delay.
-         * @param dropTime the delay in the batch rain drops must be generated.
+         * @param key    the statistic key.
+         * @param millis the time in milliseconds.
+         * @return this DebugStats.
          */
-        public RainBehavior(World world, int batch, int dropTime, double dropSpeed) {
-            this.playArea = world.getPlayArea();
-            this.batch = batch;
-            this.dropTime = dropTime;
-            this.speed = dropSpeed;
+        public DebugStats setTime(String key, long millis) {
+            int i = slot(key, TIME);
+            long seconds = Math.round((double) millis / 1000);
+            if (longValues[i] != seconds) {
+                longValues[i] = seconds;
+                dirty = true;
+            }
+            return this;
         }
 
-        @Override
-        public void update(long elapsed, Particle e) {
-            e.setSize(playArea.width, playArea.height);
-            e.setPhysicType(PhysicType.STATIC);
-            internalTime += elapsed;
-            // add drops to the particles system
-            double i = 0.0;
-            if (run && internalTime > dropTime) {
-                double maxBatch = ((this.batch * 0.5) + (this.batch * Math.random() * 0.5));
-                while (i < maxBatch && nbActive < e.getNbParticles()) {
-                    create(e);
-                    i += 1.0;
+        private void build() {
+            sb.setLength(0);
+            sb.append(start);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    sb.append(" | ");
+                }
+                sb.append(labels[i]).append(':');
+                switch (types[i]) {
+                    case INTEGER -> appendPadded(sb, longValues[i], 5, ' ');
+                    case DECIMAL -> appendFixed(sb, doubleValues[i], 2);
+                    case TIME -> appendTime(sb, longValues[i]);
+                    default -> sb.append(textValues[i]);
                 }
-                nbActive = drops.stream().filter(p -> p.isActive()).count();
-                internalTime = 0;
             }
+            sb.append(end);
+            length = sb.length();
+            if (chars.length < length) {
+                chars = new char[length * 2];
+            }
+            sb.getChars(0, length, chars, 0);
+            dirty = false;
         }
 
-        @Override
-        public Particle create(Particle parent) {
-            Particle pChild = null;
-            if (drops.size() < parent.getNbParticles()) {
-                pChild = (Particle) new Particle(parent.getName() + "_drop_" + parent.getCurrentIndex())
-                        .setType(EntityType.LINE)
-                        .setPhysicType(PhysicType.DYNAMIC)
-                        .setSize(1, 1)
-                        .setPosition(
-                                playArea.width * Math.random(),
-                                0)
-                        .setBorderColor(dropColor)
-                        .setMass(1000.0)
-                        .setVelocity(0.5 - Math.random() * 1.0, speed)
-                        .setRelativeToParent(false)
-                        .add(new RainDropBehavior(playArea))
-                        .setActive(true);
-                parent.addChild(pChild);
-                add(pChild);
-                drops.add(pChild);
-            } else {
-                Optional<Particle> existingParticle = drops.stream().filter(p -> !p.isActive()).findFirst();
-                if (existingParticle.isPresent()) {
-                    pChild = existingParticle.get();
-                    pChild.setActive(true);
-                }
+        /**
+         * @return the characters of the debug line, to be used with {@link #getLength()}.
+         */
+        public char[] getChars() {
+            if (dirty) {
+                build();
             }
-            return pChild;
+            return chars;
         }
 
-        public void start() {
-            this.run = true;
+        public int getLength() {
+            if (dirty) {
+                build();
+            }
+            return length;
         }
 
-        public void stop() {
-            this.run = false;
+        @Override
+        public String toString() {
+            return new String(getChars(), 0, length);
         }
     }
 
     /**
-     * This {@link ParticleBehavior} implements the Falling behavior of a rain drop.
-     * Teh Drop will fall from sky to ground.
-     * As soon this drop reach the ground, it is deactivated.
+     * The {@link DebugInfo} is a reusable set of text lines, filled by an entity with its debug information
+     * (see {@link AbstractEntity#appendDebugInfo(DebugInfo)}).
      *
      * @author Frédéric Delorme
-     * @since 1.0.1
+     * @since 1.0.3
      */
-    public class RainDropBehavior implements Behavior<Particle> {
-        private final Dimension playArea;
+    public class DebugInfo {
+        private final List<StringBuilder> lines = new ArrayList<>();
+        private int count = 0;
+        private char[] chars = new char[64];
 
-        public RainDropBehavior(Dimension playArea) {
-            this.playArea = playArea;
+        public void clear() {
+            count = 0;
         }
 
-        @Override
-        public void update(long elapsed, Particle p) {
-            if (p.position.y >= playArea.height - 1) {
-                p.setPosition(playArea.width * Math.random(),
-                        0);
-                p.setActive(false);
+        /**
+         * @return a new empty line, to be filled.
+         */
+        public StringBuilder line() {
+            if (count == lines.size()) {
+                lines.add(new StringBuilder(32));
+            }
+            StringBuilder line = lines.get(count++);
+            line.setLength(0);
+            return line;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return a new list with the text of the current lines.
+         */
+        public List<String> getLines() {
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(lines.get(i).toString());
+            }
+            return result;
+        }
+
+        /**
+         * Draw the line <code>i</code> at (x,y) without creating any String.
+         */
+        public void drawLine(Graphics2D g, int i, int x, int y) {
+            StringBuilder line = lines.get(i);
+            if (chars.length < line.length()) {
+                chars = new char[line.length() * 2];
             }
+            line.getChars(0, line.length(), chars, 0);
+            g.drawChars(chars, 0, line.length(), x, y);
         }
     }
 
     /**
-     * This {@link ParticleBehavior} implements a Snow simulations.
-     * Snowflakes (DOT) are falling from sky in a continuous way.
+     * The rendering layers an {@link Entity} belongs to, each one drawn with its own {@link RenderQuality} profile:
+     * <ul>
+     * <li><code>SPRITE</code> the images, animations, tile maps and parallax layers,</li>
+     * <li><code>PARTICLE</code> the DOT and LINE entities,</li>
+     * <li><code>SHAPE</code> the RECTANGLE and ELLIPSE entities,</li>
+     * <li><code>TEXT</code> the {@link TextEntity}.</li>
+     * </ul>
      *
      * @author Frédéric Delorme
-     * @since 1.0.1
+     * @since 1.0.3
      */
-    public class SnowBehavior implements ParticleBehavior<Particle> {
-        private int batch = 10;
-        Dimension playArea;
-        List<Particle> drops = new ArrayList<>();
-
-        boolean run = false;
+    public enum RenderLayer {
+        SPRITE,
+        PARTICLE,
+        SHAPE,
+        TEXT
+    }
 
-        public String getName() {
-            return "Snow";
+    /**
+     * The rendering quality profiles, setting the {@link RenderingHints} of the rendering buffer:
+     * <ul>
+     * <li><code>PIXEL</code> no antialiasing and nearest neighbor interpolation, to keep the pixel art sharp,</li>
+     * <li><code>SMOOTH</code> antialiasing and bilinear interpolation.</li>
+     * </ul>
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public enum RenderQuality {
+        PIXEL(RenderingHints.VALUE_ANTIALIAS_OFF,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_OFF,
+                RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR,
+                RenderingHints.VALUE_RENDER_SPEED),
+        SMOOTH(RenderingHints.VALUE_ANTIALIAS_ON,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR,
+                RenderingHints.VALUE_RENDER_QUALITY);
+
+        private final Object antialiasing;
+        private final Object textAntialiasing;
+        private final Object interpolation;
+        private final Object rendering;
+
+        RenderQuality(Object aa, Object textAa, Object interpolation, Object rendering) {
+            this.antialiasing = aa;
+            this.textAntialiasing = textAa;
+            this.interpolation = interpolation;
+            this.rendering = rendering;
         }
 
-        public SnowBehavior(World world, int batch) {
-            this.playArea = world.getPlayArea();
-            this.batch = batch;
+        /**
+         * Set the rendering hints of this profile.
+         *
+         * @param g the Graphics2D API to be set.
+         */
+        public void apply(Graphics2D g) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, textAntialiasing);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, rendering);
         }
 
-        @Override
-        public void update(long elapsed, Particle e) {
-            e.setSize(playArea.width, playArea.height);
-            e.setPhysicType(PhysicType.STATIC);
-            // add drops to the particles system
-            double i = 0.0;
-            double maxBatch = ((this.batch * 0.5) + (this.batch * Math.random() * 0.5));
-            while (i < maxBatch && drops.size() < e.getNbParticles()) {
-                Particle p = create(e);
-                p.setPosition(
-                        playArea.width * Math.random(),
-                        0);
-                drops.add(p);
-                i += 1.0;
-
+        /**
+         * Parse the profiles of the layers from a list of <code>layer:profile</code> pairs, like
+         * <code>"sprite:pixel,text:smooth"</code>. The layers not in the list use the SMOOTH profile.
+         *
+         * @param value the list to be parsed.
+         * @return the profile of each layer.
+         */
+        public static Map<RenderLayer, RenderQuality> parse(String value) {
+            Map<RenderLayer, RenderQuality> profiles = new EnumMap<>(RenderLayer.class);
+            for (RenderLayer layer : RenderLayer.values()) {
+                profiles.put(layer, SMOOTH);
             }
-            drops.stream().forEach(p -> {
-                if (p.position.y >= playArea.height - 1) {
-                    p.setPosition(playArea.width * Math.random(),
-                            0);
-                    p.setActive(run);
+            for (String pair : value.split(",")) {
+                String[] kv = pair.trim().split(":");
+                if (kv.length == 2) {
+                    profiles.put(
+                            RenderLayer.valueOf(kv[0].trim().toUpperCase()),
+                            RenderQuality.valueOf(kv[1].trim().toUpperCase()));
                 }
-            });
-        }
-
-        @Override
-        public Particle create(Particle parent) {
-            Particle pChild = (Particle) new Particle(parent.getName() + "_spark_" + parent.getCurrentIndex())
-                    .setType(EntityType.DOT)
-                    .setPhysicType(PhysicType.DYNAMIC)
-                    .setSize(1, 1)
-                    .setFillColor(Color.WHITE)
-                    .setMass(4000.01)
-                    .setVelocity(0.8 - (Math.random() * 1.6), Math.random() * 0.0009)
-                    .setRelativeToParent(false);
-            parent.addChild(pChild);
-            add(pChild);
-            return pChild;
+            }
+            return profiles;
         }
 
-        @Override
-        public void start() {
-            this.run = true;
+        /**
+         * Copy the profiles of the layers from a map read from the configuration, ignoring the entries which are not
+         * a {@link RenderLayer} and its {@link RenderQuality}.
+         *
+         * @param value the map to be copied.
+         * @return a new map of the profile of each layer.
+         */
+        public static Map<RenderLayer, RenderQuality> copyOf(Map<?, ?> value) {
+            Map<RenderLayer, RenderQuality> profiles = new EnumMap<>(RenderLayer.class);
+            value.forEach((k, v) -> {
+                if (k instanceof RenderLayer layer && v instanceof RenderQuality quality) {
+                    profiles.put(layer, quality);
+                }
+            });
+            return profiles;
         }
 
-        @Override
-        public void stop() {
-            this.run = false;
+        /**
+         * Write the profiles of the layers as a list of <code>layer:profile</code> pairs.
+         *
+         * @param profiles the profile of each layer.
+         * @return the list, to be parsed by {@link RenderQuality#parse(String)}.
+         */
+        public static String write(Map<RenderLayer, RenderQuality> profiles) {
+            StringBuilder sb = new StringBuilder();
+            profiles.forEach((layer, quality) -> sb
+                    .append(sb.length() > 0 ? "," : "")
+                    .append(layer.name().toLowerCase()).append(':').append(quality.name().toLowerCase()));
+            return sb.toString();
         }
     }
 
     /**
-     * {@link PhysicType} for any {@link Entity}. It defines the Physic Computation applied to the
-     * {@link Entity} according to the fact it os static of dynamic.
+     * The {@link Presenter} copies the rendering buffer to the output surface (the window, or an image when running
+     * headless), scaled by the greatest integer factor fitting the output and centered with black bars around it.
+     * <p>
+     * When a {@link GraphicsConfiguration} is set, the buffer is first copied to an accelerated {@link VolatileImage},
+     * then scaled to the output with a nearest neighbor interpolation. Without it, the buffer pixels are replicated in
+     * a cached image at the scaled size, then copied 1:1. A rendering buffer already being a {@link VolatileImage} is
+     * directly scaled to the output. If the output is smaller than the rendering buffer, the buffer is reduced to fit
+     * the output, keeping its aspect ratio.
+     * <p>
+     * The mean time spent in {@link Presenter#present(Graphics2D, Image, int, int, int, int)} is maintained.
      *
      * @author Frédéric Delorme
-     * @see PhysicEngine
-     * @see Entity#physicType
-     * @since 1.0.1
+     * @since 1.0.3
      */
-    public enum PhysicType {
+    public class Presenter {
+        private final Rectangle target = new Rectangle();
+        private int scale = 1;
+        private GraphicsConfiguration gc;
+        private VolatileImage surface;
+        private BufferedImage scaled;
+        private long blitTime = 0;
+        private int blitCount = 0;
+
         /**
-         * A STATIC {@link Entity} will not be updated by the {@link PhysicEngine} computation,
-         * only the entity's behaviors will be updated.
+         * Set the configuration of the output device, to use an accelerated surface, or null to scale the pixels in
+         * memory.
+         *
+         * @param gc the GraphicsConfiguration of the output.
+         * @return this Presenter.
          */
-        STATIC,
+        public Presenter setGraphicsConfiguration(GraphicsConfiguration gc) {
+            this.gc = gc;
+            this.surface = null;
+            return this;
+        }
+
         /**
-         * a DYNAMIC {@link Entity} will be impacted by the simplified Newton's laws
-         * computation performed by the {@link PhysicEngine}.
+         * Compute the scale factor and the area of the output where the rendering buffer is drawn.
+         *
+         * @param srcWidth     width of the rendering buffer.
+         * @param srcHeight    height of the rendering buffer.
+         * @param outputWidth  width of the output surface.
+         * @param outputHeight height of the output surface.
+         * @return the area of the output, relative to its top-left corner.
          */
-        DYNAMIC
+        public Rectangle layout(int srcWidth, int srcHeight, int outputWidth, int outputHeight) {
+            scale = Math.min(outputWidth / srcWidth, outputHeight / srcHeight);
+            int w = srcWidth * scale, h = srcHeight * scale;
+            if (scale < 1) {
+                double ratio = Math.min((double) outputWidth / srcWidth, (double) outputHeight / srcHeight);
+                w = Math.max(1, (int) (srcWidth * ratio));
+                h = Math.max(1, (int) (srcHeight * ratio));
+            }
+            target.setBounds((outputWidth - w) / 2, (outputHeight - h) / 2, w, h);
+            return target;
+        }
+
+        /**
+         * Draw the rendering buffer to the output area at (x,y) of size (width,height).
+         *
+         * @param g      the Graphics2D API of the output.
+         * @param src    the rendering buffer.
+         * @param x      the left of the output area.
+         * @param y      the top of the output area.
+         * @param width  the width of the output area.
+         * @param height the height of the output area.
+         */
+        public void present(Graphics2D g, Image src, int x, int y, int width, int height) {
+            long start = System.nanoTime();
+            int sw = src.getWidth(null), sh = src.getHeight(null);
+            Rectangle r = layout(sw, sh, width, height);
+            drawBars(g, r, x, y, width, height);
+            int dx = x + r.x, dy = y + r.y;
+            if (scale < 1) {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(src, dx, dy, dx + r.width, dy + r.height, 0, 0, sw, sh, null);
+            } else if (scale == 1) {
+                g.drawImage(src, dx, dy, null);
+            } else if (src instanceof BufferedImage bi && Optional.ofNullable(gc).isPresent()) {
+                presentAccelerated(g, bi, dx, dy, r);
+            } else if (src instanceof BufferedImage bi && bi.getRaster().getDataBuffer() instanceof DataBufferInt) {
+                g.drawImage(upscale(bi), dx, dy, null);
+            } else {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                g.drawImage(src, dx, dy, dx + r.width, dy + r.height, 0, 0, sw, sh, null);
+            }
+            blitTime += System.nanoTime() - start;
+            blitCount++;
+        }
+
+        private void drawBars(Graphics2D g, Rectangle r, int x, int y, int width, int height) {
+            g.setColor(Color.BLACK);
+            if (r.x > 0) {
+                g.fillRect(x, y, r.x, height);
+                g.fillRect(x + r.x + r.width, y, width - r.x - r.width, height);
+            }
+            if (r.y > 0) {
+                g.fillRect(x + r.x, y, r.width, r.y);
+                g.fillRect(x + r.x, y + r.y + r.height, r.width, height - r.y - r.height);
+            }
+        }
+
+        private void presentAccelerated(Graphics2D g, BufferedImage src, int dx, int dy, Rectangle r) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            do {
+                if (surface == null
+                        || surface.getWidth() != src.getWidth() || surface.getHeight() != src.getHeight()
+                        || surface.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    surface = gc.createCompatibleVolatileImage(src.getWidth(), src.getHeight());
+                }
+                Graphics2D sg = surface.createGraphics();
+                sg.drawImage(src, 0, 0, null);
+                sg.dispose();
+                g.drawImage(surface, dx, dy, dx + r.width, dy + r.height, 0, 0, src.getWidth(), src.getHeight(), null);
+            } while (surface.contentsLost());
+        }
+
+        /**
+         * Replicate each pixel of the source in a scale x scale square of the cached scaled image.
+         */
+        private BufferedImage upscale(BufferedImage src) {
+            int sw = src.getWidth(), sh = src.getHeight(), w = sw * scale;
+            if (scaled == null || scaled.getWidth() != w || scaled.getHeight() != sh * scale) {
+                scaled = new BufferedImage(w, sh * scale, BufferedImage.TYPE_INT_RGB);
+            }
+            int[] in = ((DataBufferInt) src.getRaster().getDataBuffer()).getData();
+            int[] out = ((DataBufferInt) scaled.getRaster().getDataBuffer()).getData();
+            int o = 0;
+            for (int y = 0; y < sh; y++) {
+                int row = o;
+                for (int i = y * sw, end = i + sw; i < end; i++) {
+                    int p = in[i];
+                    for (int k = 0; k < scale; k++) {
+                        out[o++] = p;
+                    }
+                }
+                for (int k = 1; k < scale; k++) {
+                    System.arraycopy(out, row, out, o, w);
+                    o += w;
+                }
+            }
+            return scaled;
+        }
+
+        /**
+         * @return the current integer scale factor, or 0 if the output is smaller than the rendering buffer.
+         */
+        public int getScale() {
+            return scale;
+        }
+
+        /**
+         * @return the mean presentation time in microseconds since the last call, and reset it.
+         */
+        public double getBlitTime() {
+            double mean = blitCount > 0 ? blitTime / (1000.0 * blitCount) : 0;
+            blitTime = 0;
+            blitCount = 0;
+            return mean;
+        }
+    }
+
+    /**
+     * The capture formats of the {@link FrameRecorder}:
+     * <ul>
+     * <li><code>PNG</code> one <code>frame-00000.png</code> file per captured frame in the capture directory,</li>
+     * <li><code>GIF</code> one looping animated <code>capture.gif</code> file in the capture directory.</li>
+     * </ul>
+     *
+     * @author Frédéric Delorme
+     * @since 1.0.3
+     */
+    public enum CaptureFormat {
+        PNG,
+        GIF
     }
 
     /**
-     * A simple home-grown {@link PhysicEngine} to process all entities and make the
-     * behavior near some realistic physic law (adapted and simplified ones.)
-     * <p>
-     * It is based on the {@link Entity#position} position,
-     * {@link Entity#velocity} velocity attributes and the
-     * {@link Entity#mass} from the
-     * {@link Entity} class.
+     * The {@link FrameRecorder} captures the rendered frames and encodes them into image files on a background thread,
+     * not to slow down the game loop.
      * <p>
-     * It is using a {@link World} object defining {@link World#playArea} and
-     * the internal {@link World#gravity} value.
+     * The frames are copied into a ring of pooled images. When all the images of the ring are waiting to be encoded,
+     * the frame is dropped and counted, in place of waiting for the encoder.
      * <p>
-     * Each Entity has its own {@link Material} characteristics, influencing
-     * elasticity, roughness, density.
+     * Stopping never waits for the encoder: the encoder thread encodes the queued frames, closes the files and stops
+     * by itself.
      *
-     * <blockquote><strong>INFO:</strong> the {@link PhysicEngine#TIME_FACTOR} is an
-     * internal
-     * reduction factor to adapt global speed of all object on screen.</blockquote>
+     * <pre>
+     * recorder.start(Path.of("captures"), CaptureFormat.GIF, 2);
+     * // ... game loop calls recorder.capture(renderingBuffer) on each frame.
+     * recorder.stop();
+     * </pre>
      *
      * @author Frédéric Delorme
-     * @see Entity
-     * @see Material
-     * @see World
-     * @since 1.0.0
+     * @since 1.0.3
      */
-    public class PhysicEngine {
-
-        static final double TIME_FACTOR = 0.045;
-        Game game;
-        World world;
-
+    public class FrameRecorder {
         /**
-         * Initialize the Physic Engine with its parent node.
-         *
-         * @param game
+         * Default number of pooled images.
          */
-        public PhysicEngine(Game game) {
-            this.game = game;
+        static final int RING_SIZE = 16;
+        /**
+         * Delay between two polls of the encoder thread when there is no frame to encode, in nanoseconds.
+         */
+        static final long POLL_DELAY = 8_000_000L;
+
+        private final int ringSize;
+        private BlockingQueue<BufferedImage> free;
+        private final BlockingQueue<BufferedImage> filled;
+        private ExecutorService encoder;
+        private Future<?> encoding;
+        private volatile boolean recording = false;
+        private Path directory;
+        private CaptureFormat format;
+        private int interval = 1;
+        private int delay;
+        private long frameCount;
+        private long capturedCount;
+        private final AtomicInteger encodedCount = new AtomicInteger();
+        private int droppedCount;
+
+        public FrameRecorder() {
+            this(RING_SIZE);
         }
 
         /**
-         * Process all current game entities.
-         * <p>
-         * Entities are filtered on only active ones, ant sorted regarding their priority.
-         * After processing the new position, the entity is constrained to not be out
-         * of the world play area ({@link World#playArea}), and apply a {@link Material#elasticity} factor on it and changes
-         * the velocity on the impacted axis.
-         * </p>
+         * Create a recorder.
          *
-         * @param elapsed the elapsed time since previous update call.
+         * @param ringSize the number of pooled images waiting to be encoded.
          */
-        private void update(long elapsed) {
-            this.game.entities.values().stream()
-                    .filter(e -> !(e instanceof Camera) && e.isActive())
-                    .sorted((e1, e2) -> e1.priority < e2.priority ? 1 : -1)
-                    .forEach(e -> {
-                        updateEntity(e, elapsed);
-                        if (!e.isRelativeToParent() && !e.isFixedToCamera()) {
-                            constraintsEntity(e);
-                        }
-                    });
+        public FrameRecorder(int ringSize) {
+            this.ringSize = ringSize;
+            this.filled = new ArrayBlockingQueue<>(ringSize);
         }
 
         /**
-         * Apply World's play area  ({@link World#playArea}) constrains on the {@link Entity}.
-         * <p>
-         * In case of collision with play area borders, the {@link Material#elasticity} factor is applied onto the
-         * {@link Entity#velocity}, and {@link Entity#position} is corrected.
-         * </p>
+         * Start capturing frames.
          *
-         * @param e the  Entity to be constrained.
+         * @param directory the directory where the files are written, created if needed.
+         * @param format    the capture format.
+         * @param interval  capture one frame every <code>interval</code> frames.
+         * @return this FrameRecorder.
          */
-        private void constraintsEntity(Entity e) {
-            Dimension playArea = (Dimension) config.get(ConfigAttribute.PHYSIC_PLAY_AREA);
-            e.contact = 0;
-            if (e.position.x <= 0) {
-                e.position.x = 0;
-                e.velocity.x = -(e.material.elasticity * e.velocity.x);
-                e.contact += 1;
+        public FrameRecorder start(Path directory, CaptureFormat format, int interval) {
+            if (recording) {
+                return this;
             }
-            if (e.position.y <= 0) {
-                e.position.y = 0;
-                e.velocity.y = -(e.material.elasticity * e.velocity.y);
-                e.contact += 2;
+            if (isEncoding()) {
+                System.err.printf("WARNING : the previous capture into %s is still being encoded%n", this.directory);
+                return this;
             }
-            if (e.position.x + e.width > playArea.width) {
-                e.position.x = playArea.width - e.width;
-                e.velocity.x = -(e.material.elasticity * e.velocity.x);
-                e.contact += 4;
-            }
-            if (e.position.y + e.height > playArea.height) {
-                e.position.y = playArea.height - e.height;
-                e.velocity.y = -(e.material.elasticity * e.velocity.y);
-                e.contact += 8;
+            this.directory = directory;
+            this.format = format;
+            this.interval = Math.max(1, interval);
+            // GIF delays are in 1/100 s, for a 60 frames per second loop.
+            this.delay = Math.max(1, Math.round(this.interval * 100 / 60.0f));
+            this.frameCount = 0;
+            this.capturedCount = 0;
+            this.droppedCount = 0;
+            this.encodedCount.set(0);
+            if (Optional.ofNullable(free).isPresent()) {
+                // a frame may have been queued while a failing encoder was stopping.
+                filled.drainTo(free);
             }
+            this.encoder = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "frame-encoder");
+                t.setDaemon(true);
+                return t;
+            });
+            recording = true;
+            encoding = encoder.submit(this::encode);
+            System.out.printf("INFO : start capturing frames as %s into %s%n", format, directory);
+            return this;
         }
 
         /**
-         * Update of an individual {@link Entity}
+         * Copy a frame into a pooled image to be encoded, if it is one of the captured frames.
          *
-         * @param e       the  Entity to be updated.
-         * @param elapsed the elapsed time since previous update call.
+         * @param frame the rendered frame.
+         * @return true if the frame has been queued, false if it is skipped or dropped.
          */
-        private void updateEntity(Entity e, long elapsed) {
-            double time = elapsed * TIME_FACTOR;
-            if (!e.isFixedToCamera() && e.getPhysicType() == PhysicType.DYNAMIC) {
-                if (!e.relativeToParent) {
-                    if (e.mass != 0) {
-                        e.velocity.y = world.gravity * (elapsed * 0.5) * 10.0 / e.mass;
-                    }
-                    if (e.contact > 0) {
-                        e.velocity.y *= e.material.friction;
-                        e.velocity.y *= e.material.friction;
-                    }
-                    e.position.x += e.velocity.x * time;
-                    e.position.y += e.velocity.y * time;
+        public boolean capture(Image frame) {
+            if (!recording || frameCount++ % interval != 0) {
+                return false;
+            }
+            int w = frame.getWidth(null), h = frame.getHeight(null);
+            if (free == null) {
+                free = new ArrayBlockingQueue<>(ringSize);
+                for (int i = 0; i < ringSize; i++) {
+                    free.add(new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB));
                 }
             }
-            // update animation with next frame (if required)
-            if (!e.currentAnimation.isEmpty()) {
-                e.animations.get(e.currentAnimation).update(elapsed);
+            BufferedImage img = free.poll();
+            if (img == null) {
+                droppedCount++;
+                return false;
             }
-            // process attached behaviors
-            if (!e.getBehaviors().isEmpty()) {
-                e.getBehaviors().forEach(b -> b.update(elapsed, e));
+            if (img.getWidth() != w || img.getHeight() != h) {
+                img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
             }
-
-            e.update(elapsed);
+            if (frame instanceof BufferedImage bi && bi.getRaster().getDataBuffer() instanceof DataBufferInt src) {
+                System.arraycopy(src.getData(), 0,
+                        ((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, w * h);
+            } else {
+                Graphics2D g = img.createGraphics();
+                g.drawImage(frame, 0, 0, null);
+                g.dispose();
+            }
+            filled.add(img);
+            capturedCount++;
+            return true;
         }
 
         /**
-         * Set the {@link PhysicEngine}'s {@link World} instance to define gravity, play area and more.
+         * Stop capturing, without waiting for the queued frames to be encoded.
          *
-         * @param world the {@link World} object defining the Physic limit for the {@link PhysicEngine}.
+         * @return this FrameRecorder.
          */
-        public void setWorld(World world) {
-            this.world = world;
+        public FrameRecorder stop() {
+            recording = false;
+            return this;
         }
 
         /**
-         * Retrieve the current {@link World} instance used by the {@link PhysicEngine} to constrain Entities.
-         *
-         * @return a {@link World} instance used by the PhysicEngine computation system.
+         * @return true while the encoder thread is encoding the captured frames or closing the files.
          */
-        public World getWorld() {
-            return this.world;
+        public boolean isEncoding() {
+            return Optional.ofNullable(encoding).isPresent() && !encoding.isDone();
         }
-    }
 
-    /**
-     * The {@link DrawPlugin} interface define a common way to draw any {@link Entity}.
-     * <p>
-     * It will be used by any implementation to tell how to draw a specific object inheriting from {@link Entity}.
-     *
-     * @param <T> the class inheriting from {@link Entity} this {@link DrawPlugin} implementation is defined for.
-     * @author Frédéric Delorme
-     * @since 1.0.1
-     */
-    public interface DrawPlugin<T extends Entity> {
         /**
-         * Class of the object that can be drawn by that DrawPlugin.
+         * Wait for the encoder thread to stop, after a {@link FrameRecorder#stop()}.
          *
-         * @return a Class specification.
+         * @param timeout the maximum time to wait, in milliseconds.
+         * @return true if the encoder thread is stopped.
          */
-        public Class<T> getClassName();
+        public boolean awaitEncoding(long timeout) {
+            if (Optional.ofNullable(encoder).isEmpty()) {
+                return true;
+            }
+            try {
+                return encoder.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
 
         /**
-         * Implementation of the draw for the defined class
-         *
-         * @param r the parent Renderer
-         * @param g the Graphics2D interface to be used as "pencil"
-         * @param t the T extending {@link Entity} instance to be drawn.
+         * The encoder thread loop: write the captured frames until the recording is stopped and the queue is empty,
+         * then close the files and shut the encoder thread down.
          */
-        public default void draw(Renderer r, Graphics2D g, T t) {
-        }
-    }
-
-    /**
-     * A Default implementation for the {@link DrawPlugin}, to be used on any basic {@link Entity},
-     * and to be extending for any common {@link Entity} processing.
-     *
-     * @author Frédéric Delorme
-     * @since 1.0.1
-     */
-    public abstract class DefaultDrawPlugin<T extends Entity> implements DrawPlugin<T> {
-        @Override
-        public abstract Class<T> getClassName();
-
-        @Override
-        public void draw(Renderer r, Graphics2D g, T e) {
-            double x = e.position.x;
-            double y = e.position.y;
-            if (e.relativeToParent) {
-                x = e.parent.position.x + e.position.x;
-                y = e.parent.position.y + e.position.y;
-            }
-
-            switch (e.type) {
-                // draw a simple rectangle
-                case RECTANGLE -> {
-                    g.setColor(e.fillColor);
-                    g.fillRect((int) x, (int) y, (int) e.width, (int) e.height);
-                    g.setColor(e.borderColor);
-                    g.drawRect((int) x, (int) y, (int) e.width, (int) e.height);
-                }
-                // draw a line
-                case LINE -> {
-                    g.setColor(e.borderColor);
-                    Stroke bs = g.getStroke();
-                    g.setStroke(new BasicStroke((float) e.width));
-                    g.drawLine((int) x, (int) y, (int) (e.position.x + e.velocity.x), (int) (e.position.y + e.velocity.y));
-                    g.setStroke(bs);
-                }
-                // draw an ellipse
-                case ELLIPSE -> {
-                    g.setColor(e.fillColor);
-                    g.fillOval((int) x, (int) y, (int) e.width, (int) e.height);
-                    g.setColor(e.borderColor);
-                    g.drawOval((int) x, (int) y, (int) e.width, (int) e.height);
-                }
-                // draw a Dot (dot is a width x width Ellipse)
-                case DOT -> {
-                    g.setColor(e.fillColor);
-                    g.fillOval((int) x, (int) y, (int) e.width, (int) e.width);
+        private void encode() {
+            ImageWriter writer = null;
+            ImageOutputStream out = null;
+            try {
+                Files.createDirectories(directory);
+                if (format == CaptureFormat.GIF) {
+                    writer = ImageIO.getImageWritersByFormatName("gif").next();
+                    Files.deleteIfExists(directory.resolve("capture.gif"));
+                    out = ImageIO.createImageOutputStream(directory.resolve("capture.gif").toFile());
+                    writer.setOutput(out);
+                    writer.prepareWriteSequence(null);
                 }
-                // draw the entity corresponding image or current animation image frame
-                case IMAGE -> {
-                    BufferedImage img = e.image;
-                    if (!e.currentAnimation.equals("")) {
-                        img = e.animations.get(e.currentAnimation).getFrame();
+                while (recording || !filled.isEmpty()) {
+                    BufferedImage img = filled.poll();
+                    if (img == null) {
+                        // polling, not to be woken up (and to preempt the game thread) on each captured frame.
+                        LockSupport.parkNanos(POLL_DELAY);
+                        continue;
                     }
-                    if (Optional.ofNullable(img).isPresent()) {
-                        if (e.direction >= 0) {
-                            g.drawImage(
-                                    img,
-                                    (int) x, (int) y,
-                                    (int) e.width, (int) e.height,
-                                    null);
-                        } else {
-                            g.drawImage(
-                                    img,
-                                    (int) (x + e.width), (int) y,
-                                    (int) -e.width, (int) e.height,
-                                    null);
-                        }
-                        e.setSize(img.getWidth(), img.getHeight());
-                        e.updateBBox();
+                    if (format == CaptureFormat.GIF) {
+                        writer.writeToSequence(new IIOImage(img, null, getGifMetadata(writer, img)), null);
+                    } else {
+                        ImageIO.write(img, "png",
+                                directory.resolve(String.format("frame-%05d.png", encodedCount.get())).toFile());
                     }
+                    encodedCount.incrementAndGet();
+                    free.offer(img);
                 }
-                case NONE -> {
-                    // Nothing to do
+                if (Optional.ofNullable(writer).isPresent()) {
+                    writer.endWriteSequence();
                 }
-                default -> {
-                    System.err.printf("ERROR: Unable to draw the entity %s%n", e.getName());
+            } catch (IOException e) {
+                System.err.printf("ERROR : dir=%s : unable to encode the captured frames: %s%n",
+                        directory, e.getMessage());
+                recording = false;
+                if (Optional.ofNullable(free).isPresent()) {
+                    filled.drainTo(free);
                 }
+            } finally {
+                if (Optional.ofNullable(writer).isPresent()) {
+                    writer.dispose();
+                }
+                if (Optional.ofNullable(out).isPresent()) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        System.err.printf("ERROR : dir=%s : unable to close the capture file: %s%n",
+                                directory, e.getMessage());
+                    }
+                }
+                encoder.shutdown();
+                System.out.printf("INFO : %d frames captured into %s, %d encoded, %d dropped%n",
+                        capturedCount, directory, encodedCount.get(), droppedCount);
             }
-            // draw debug info if required
-            if (r.isDebugAtLeast(2)) {
-                r.drawDebugEntityInfo(g, e);
-            }
-        }
-    }
-
-    public class EntityDrawPlugin extends DefaultDrawPlugin<Entity> {
-
-        @Override
-        public Class<Entity> getClassName() {
-            return Entity.class;
-        }
-    }
-
-    public class ParticleDrawPlugin extends DefaultDrawPlugin<Particle> {
-
-        @Override
-        public Class<Particle> getClassName() {
-            return Particle.class;
-        }
-    }
-
-    public class TextDrawPlugin implements DrawPlugin<TextEntity> {
-
-        @Override
-        public Class<TextEntity> getClassName() {
-            return TextEntity.class;
         }
 
-        @Override
-        public void draw(Renderer r, Graphics2D g, TextEntity textEntity) {
-
-            if (Optional.ofNullable(r.camera).isPresent() && !textEntity.isFixedToCamera()) {
-                r.camera.preDraw(g);
+        /**
+         * Create the GIF metadata of a frame: its delay, and for the first frame, the infinite loop extension.
+         */
+        private IIOMetadata getGifMetadata(ImageWriter writer, BufferedImage img) throws IIOInvalidTreeException {
+            IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(img), null);
+            String formatName = metadata.getNativeMetadataFormatName();
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+
+            IIOMetadataNode control = getNode(root, "GraphicControlExtension");
+            control.setAttribute("disposalMethod", "none");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("delayTime", Integer.toString(delay));
+            control.setAttribute("transparentColorIndex", "0");
+
+            if (encodedCount.get() == 0) {
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                loop.setUserObject(new byte[]{0x1, 0x0, 0x0});
+                getNode(root, "ApplicationExtensions").appendChild(loop);
             }
+            metadata.setFromTree(formatName, root);
+            return metadata;
+        }
 
-            g.setFont(textEntity.font);
-
-            g.setColor(textEntity.borderColor);
-            for (int xb = 0; xb < textEntity.borderWidth; xb++) {
-                for (int yb = 0; yb < textEntity.borderWidth; yb++) {
-                    g.drawString(
-                            textEntity.text,
-                            (int) textEntity.position.x - xb, (int) textEntity.position.y - yb);
-                    g.drawString(
-                            textEntity.text,
-                            (int) textEntity.position.x + xb, (int) textEntity.position.y - yb);
-                    g.drawString(
-                            textEntity.text,
-                            (int) textEntity.position.x - xb, (int) textEntity.position.y + yb);
-                    g.drawString(
-                            textEntity.text,
-                            (int) textEntity.position.x + xb, (int) textEntity.position.y + yb);
+        private IIOMetadataNode getNode(IIOMetadataNode root, String name) {
+            for (int i = 0; i < root.getLength(); i++) {
+                if (root.item(i).getNodeName().equalsIgnoreCase(name)) {
+                    return (IIOMetadataNode) root.item(i);
                 }
             }
+            IIOMetadataNode node = new IIOMetadataNode(name);
+            root.appendChild(node);
+            return node;
+        }
 
-            g.setColor(textEntity.shadowColor);
-            for (int sw = 0; sw < textEntity.shadowWidth; sw++) {
-                g.drawString(
-                        textEntity.text,
-                        (int) textEntity.position.x + sw, (int) textEntity.position.y + sw);
-            }
-
+        public boolean isRecording() {
+            return recording;
+        }
 
-            g.setColor(textEntity.textColor);
-            g.drawString(
-                    textEntity.text,
-                    (int) textEntity.position.x, (int) textEntity.position.y);
+        /**
+         * @return the number of frames dropped since the capture start, because all the pooled images were waiting
+         * to be encoded.
+         */
+        public int getDroppedCount() {
+            return droppedCount;
+        }
 
-            if (Optional.ofNullable(r.camera).isPresent() && !textEntity.isFixedToCamera()) {
-                r.camera.postDraw(g);
-            }
+        /**
+         * @return the number of captured frames waiting to be encoded.
+         */
+        public int getPendingCount() {
+            return filled.size();
         }
 
+        /**
+         * @return the number of frames encoded since the capture start.
+         */
+        public int getEncodedCount() {
+            return encodedCount.get();
+        }
     }
 
-    public class Renderer {
+    public class Renderer implements ConfigurationListener {
         private final Game game;
+        private ConfigSnapshot cfg;
         private JFrame frame;
         private Camera camera;
         private BufferedImage renderingBuffer;
+        private BufferedImage outputBuffer;
+        private VolatileImage renderTarget;
+        private final Presenter presenter = new Presenter();
+        private RenderQuality currentQuality;
+        /**
+         * Number of the lower bits of a render key used to store the entity index in the render queue. With the 43
+         * bits of {@link Renderer#getRenderKey(Entity)}, the sign bit of the key stays cleared.
+         */
+        private static final int QUEUE_INDEX_BITS = 20;
+        private static final long QUEUE_INDEX_MASK = (1L << QUEUE_INDEX_BITS) - 1;
+        /**
+         * Maximum number of entities drawn in a frame, indexed on {@link Renderer#QUEUE_INDEX_BITS}.
+         */
+        private static final int MAX_QUEUE_SIZE = 1 << QUEUE_INDEX_BITS;
+        private boolean queueOverflow = false;
+        private Entity[] renderQueue = new Entity[256];
+        private long[] renderKeys = new long[256];
+        private final Map<Float, BasicStroke> strokes = new HashMap<>();
+        private int stateChanges;
+        private int lastStateChanges;
+        private int lastDrawCount;
         private Map<Class<? extends Entity>, DrawPlugin<? extends Entity>> plugins = new HashMap<>();
+        /**
+         * The entity classes already drawn, indexed by their draw type id, and the DrawPlugin resolved for each one.
+         */
+        private Class<?>[] drawTypes = new Class<?>[8];
+        private DrawPlugin<?>[] dispatch = new DrawPlugin<?>[8];
+        private int drawTypeCount = 0;
+        private final ParticleRasterizer rasterizer = new ParticleRasterizer();
+        private boolean rasterParticles = true;
+        private long rasterizedCount = 0;
+        private final List<GlyphAtlas> glyphAtlases = new ArrayList<>();
+
+        private final Color debugLineColor = new Color(0.6f, 0.3f, 0.0f, 0.8f);
+        private final Stroke debugStroke = new BasicStroke(0.2f);
+        private final DebugInfo debugInfo = new DebugInfo();
+        private Font debugLineFont;
+        private Font debugEntityFont;
 
         public Renderer(Game game) {
             this.game = game;
-            this.frame = createWindow(
-                    (String) config.get(ConfigAttribute.TITLE),
-                    (Dimension) config.get(ConfigAttribute.WINDOW_SIZE),
-                    (Dimension) config.get(ConfigAttribute.SCREEN_RESOLUTION));
+            this.cfg = config.getSnapshot();
+            renderingBuffer = new BufferedImage(
+                    cfg.screenWidth,
+                    cfg.screenHeight,
+                    BufferedImage.TYPE_INT_ARGB);
+            if (GraphicsEnvironment.isHeadless()) {
+                // no window: the frames are presented into an image of the window size.
+                outputBuffer = new BufferedImage(cfg.windowWidth, cfg.windowHeight, BufferedImage.TYPE_INT_RGB);
+            } else {
+                this.frame = createWindow(
+                        cfg.title,
+                        cfg.getWindowSize());
+                presenter.setGraphicsConfiguration(frame.getGraphicsConfiguration());
+            }
 
             // add default DrawPlugin implementations
-            addPlugin(new EntityDrawPlugin());
-            addPlugin(new TextDrawPlugin());
-            addPlugin(new ParticleDrawPlugin());
+            registerPlugin(new EntityDrawPlugin());
+            registerPlugin(new TextDrawPlugin());
+            registerPlugin(new ParticleDrawPlugin());
+            registerPlugin(new TileMapDrawPlugin());
+            registerPlugin(new ParallaxDrawPlugin());
+
+        }
 
+        /**
+         * Add a {@link DrawPlugin}, used to draw the entities of its class and of its subclasses not having their own
+         * DrawPlugin.
+         *
+         * @param dp the DrawPlugin to be added.
+         * @return this Renderer.
+         */
+        public Renderer addPlugin(DrawPlugin<?> dp) {
+            registerPlugin(dp);
+            return this;
         }
 
-        private void addPlugin(DrawPlugin dp) {
+        private void registerPlugin(DrawPlugin<?> dp) {
             plugins.put(dp.getClassName(), dp);
+            // the new plugin may be closer than the resolved one to some of the already drawn classes.
+            for (int i = 0; i < drawTypeCount; i++) {
+                dispatch[i] = resolvePlugin(drawTypes[i]);
+            }
+        }
+
+        /**
+         * Find the DrawPlugin of the closest class in the hierarchy of an entity class.
+         *
+         * @param type the entity class.
+         * @return the DrawPlugin, or null if there is none.
+         */
+        private DrawPlugin<?> resolvePlugin(Class<?> type) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                DrawPlugin<?> dp = plugins.get(c);
+                if (dp != null) {
+                    return dp;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Retrieve the index of the entity class in the dispatch table, registering the class and resolving its
+         * DrawPlugin the first time it is drawn.
+         *
+         * @param e the entity to be drawn.
+         * @return the draw type id of the entity.
+         */
+        private int getDrawTypeId(Entity e) {
+            int id = e.drawTypeId;
+            Class<?> type = e.getClass();
+            if (id >= 0 && id < drawTypeCount && drawTypes[id] == type) {
+                return id;
+            }
+            id = -1;
+            for (int i = 0; i < drawTypeCount && id < 0; i++) {
+                if (drawTypes[i] == type) {
+                    id = i;
+                }
+            }
+            if (id < 0) {
+                if (drawTypeCount == drawTypes.length) {
+                    drawTypes = Arrays.copyOf(drawTypes, drawTypeCount * 2);
+                    dispatch = Arrays.copyOf(dispatch, drawTypeCount * 2);
+                }
+                id = drawTypeCount++;
+                drawTypes[id] = type;
+                dispatch[id] = resolvePlugin(type);
+            }
+            e.drawTypeId = id;
+            return id;
         }
 
-        private JFrame createWindow(String title, Dimension size, Dimension resolution) {
+        private JFrame createWindow(String title, Dimension size) {
 
             JFrame frame = new JFrame(title);
 
@@ -2232,57 +8600,317 @@ public class Game extends JPanel {
             frame.setVisible(true);
             frame.createBufferStrategy(2);
 
-            renderingBuffer = new BufferedImage(
-                    resolution.width,
-                    resolution.height,
-                    BufferedImage.TYPE_INT_ARGB);
-
             return frame;
         }
 
-        private void draw(Map<String, Object> stats) {
-            Dimension playArea = (Dimension) config.get(ConfigAttribute.PHYSIC_PLAY_AREA);
-            Graphics2D g = (Graphics2D) renderingBuffer.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        @Override
+        public void onConfigurationChange(ConfigSnapshot snapshot) {
+            this.cfg = snapshot;
+        }
+
+        /**
+         * Draw the frame into the rendering buffer, or into the accelerated render target if required by the
+         * configuration, drawing it again while the render target contents are lost, then present it.
+         * <p>
+         * Without a window, the frame is presented into the output image, so a frame can be drawn from a test.
+         */
+        void draw(DebugStats stats) {
+            boolean accelerated = cfg.renderAccelerated && Optional.ofNullable(frame).isPresent();
+            if (!accelerated) {
+                renderTarget = null;
+                drawFrame(renderingBuffer.createGraphics(), true);
+            } else {
+                do {
+                    drawFrame(createTargetGraphics(), false);
+                } while (renderTarget.contentsLost());
+            }
+
+            // capture the frame before the debug line is drawn over it.
+            game.recorder.capture(accelerated ? renderTarget : renderingBuffer);
+
+            // draw buffer to window.
+            drawToWindow(stats, accelerated ? renderTarget : renderingBuffer);
+        }
+
+        /**
+         * Validate the accelerated render target, creating it again if it is missing or not compatible anymore with
+         * the window device.
+         *
+         * @return the Graphics2D API of the render target.
+         */
+        private Graphics2D createTargetGraphics() {
+            GraphicsConfiguration gc = frame.getGraphicsConfiguration();
+            if (renderTarget == null || renderTarget.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                renderTarget = gc.createCompatibleVolatileImage(
+                        renderingBuffer.getWidth(), renderingBuffer.getHeight(),
+                        Transparency.OPAQUE);
+            }
+            return renderTarget.createGraphics();
+        }
+
+        /**
+         * Draw all the visible entities with the {@link RenderQuality} of their {@link RenderLayer}.
+         *
+         * @param g          the Graphics2D API of the render target, disposed at the end.
+         * @param rasterized true if the render target is the rendering buffer, where particles can be rasterized.
+         */
+        private void drawFrame(Graphics2D g, boolean rasterized) {
+            currentQuality = null;
+            setQuality(g, RenderLayer.SHAPE);
 
             // clear rendering buffer
             g.setColor(Color.BLACK);
             g.fillRect(0, 0, renderingBuffer.getWidth(), renderingBuffer.getHeight());
 
             if (this.isDebugAtLeast(1)) {
-                drawDebugInfoOnScreen(playArea, g);
+                drawDebugInfoOnScreen(cfg.getPlayArea(), g);
             }
             // draw something
-            this.game.entities.values().stream()
-                    .filter(e -> !(e instanceof Camera) && e.isActive() && camera.isInFOV(e))
-                    .sorted((e1, e2) -> e1.priority > e2.priority ? 1 : -1)
-                    .forEach(e -> {
+            boolean raster = rasterized && rasterParticles && !isDebugAtLeast(2);
+            if (raster) {
+                rasterizer.begin(renderingBuffer);
+            }
+            int count = fillRenderQueue();
+            boolean cameraApplied = false;
+            for (int i = 0; i < count; i++) {
+                Entity e = renderQueue[(int) (renderKeys[i] & QUEUE_INDEX_MASK)];
+                if (raster && rasterizeEntity(e)) {
+                    continue;
+                }
+                setQuality(g, getLayer(e));
+                // the camera transform is only changed between the world and the camera-fixed groups.
+                boolean worldSpace = Optional.ofNullable(camera).isPresent() && !e.isFixedToCamera();
+                if (worldSpace != cameraApplied) {
+                    if (worldSpace) {
+                        camera.preDraw(g);
+                    } else {
+                        camera.postDraw(g);
+                    }
+                    cameraApplied = worldSpace;
+                    stateChanges++;
+                }
+                drawEntity(g, e);
+            }
+            if (cameraApplied) {
+                camera.postDraw(g);
+            }
+            rasterizedCount = raster ? rasterizer.end() : 0;
+            g.dispose();
+            lastStateChanges = stateChanges;
+            lastDrawCount = count;
+            stateChanges = 0;
+        }
 
-                        if (Optional.ofNullable(camera).isPresent() && !e.isFixedToCamera()) {
-                            camera.preDraw(g);
-                        }
-                        drawEntity(g, e);
+        /**
+         * Fill the render queue with the visible entities, sorted by their render key: priority first, then
+         * camera-fixed flag, {@link RenderLayer}, DrawPlugin, and last image or fill color. The entities sharing the
+         * same Graphics2D state are this way drawn one after the other.
+         * <p>
+         * A key keeps the index of its entity in the queue in its lower bits, so the keys are sorted as primitive
+         * values, without any comparator nor allocation. Over {@link Renderer#MAX_QUEUE_SIZE} visible entities, the
+         * next ones are not drawn, with an error.
+         *
+         * @return the number of entities to be drawn.
+         */
+        private int fillRenderQueue() {
+            int count = 0;
+            for (Entity e : game.entities.values()) {
+                if (e instanceof Camera || !e.isActive()
+                        || (Optional.ofNullable(camera).isPresent() && !camera.isInFOV(e))) {
+                    continue;
+                }
+                if (count == MAX_QUEUE_SIZE) {
+                    if (!queueOverflow) {
+                        System.err.printf("ERROR : more than %d visible entities, the next ones are not drawn%n",
+                                MAX_QUEUE_SIZE);
+                        queueOverflow = true;
+                    }
+                    break;
+                }
+                if (count == renderQueue.length) {
+                    renderQueue = Arrays.copyOf(renderQueue, count * 2);
+                    renderKeys = Arrays.copyOf(renderKeys, count * 2);
+                }
+                renderQueue[count] = e;
+                renderKeys[count] = (getRenderKey(e) << QUEUE_INDEX_BITS) | count;
+                count++;
+            }
+            Arrays.sort(renderKeys, 0, count);
+            return count;
+        }
 
-                        if (Optional.ofNullable(camera).isPresent() && !e.isFixedToCamera()) {
-                            camera.postDraw(g);
-                        }
+        /**
+         * Compute the render key of an entity, on 43 bits: 12 bits of priority (offset from
+         * {@link AbstractEntity#MIN_PRIORITY}), 1 bit for the camera-fixed flag, 2 bits of layer, 6 bits of draw type
+         * and 22 bits of drawing state (image or color).
+         */
+        private long getRenderKey(Entity e) {
+            long priority = Math.max(0, Math.min(0xfff, e.priority - AbstractEntity.MIN_PRIORITY));
+            long fixed = e.isFixedToCamera() ? 1 : 0;
+            long layer = getLayer(e).ordinal();
+            long drawType = Math.min(0x3f, getDrawTypeId(e));
+            Object state = Optional.ofNullable((Object) e.image).orElse(e.fillColor);
+            long stateHash = state instanceof Color c ? c.getRGB() : Objects.hashCode(state);
+            return priority << 31 | fixed << 30 | layer << 28 | drawType << 22 | (stateHash & 0x3fffff);
+        }
+
+        /**
+         * Set the current color, only if it differs from the Graphics2D one.
+         *
+         * @param g the Graphics2D API.
+         * @param c the color to be set.
+         */
+        public void setColor(Graphics2D g, Color c) {
+            if (c != null && !c.equals(g.getColor())) {
+                g.setColor(c);
+                stateChanges++;
+            }
+        }
+
+        /**
+         * Set a {@link BasicStroke} of a line width, only if the Graphics2D stroke has not already this width.
+         *
+         * @param g     the Graphics2D API.
+         * @param width the line width.
+         */
+        public void setStroke(Graphics2D g, float width) {
+            if (!(g.getStroke() instanceof BasicStroke bs) || bs.getLineWidth() != width) {
+                g.setStroke(strokes.computeIfAbsent(width, BasicStroke::new));
+                stateChanges++;
+            }
+        }
+
+        /**
+         * @return the number of Graphics2D state changes (color, stroke, quality and camera transform) on the last
+         * drawn frame.
+         */
+        public int getStateChanges() {
+            return lastStateChanges;
+        }
+
+        /**
+         * @return the number of entities drawn on the last frame, rasterized ones included.
+         */
+        public int getDrawCount() {
+            return lastDrawCount;
+        }
+
+        /**
+         * Retrieve the {@link RenderLayer} of an {@link Entity}, defining the {@link RenderQuality} to draw it.
+         *
+         * @param e the entity to be drawn.
+         * @return the corresponding layer.
+         */
+        public RenderLayer getLayer(Entity e) {
+            if (e instanceof TextEntity) {
+                return RenderLayer.TEXT;
+            } else if (e instanceof TileMap || e instanceof ParallaxLayer) {
+                return RenderLayer.SPRITE;
+            }
+            return switch (e.type) {
+                case IMAGE -> RenderLayer.SPRITE;
+                case DOT, LINE -> RenderLayer.PARTICLE;
+                default -> RenderLayer.SHAPE;
+            };
+        }
+
+        /**
+         * Apply the {@link RenderQuality} configured for a {@link RenderLayer}, only if it differs from the current one.
+         */
+        private void setQuality(Graphics2D g, RenderLayer layer) {
+            RenderQuality quality = cfg.renderQuality.get(layer);
+            if (quality != currentQuality) {
+                quality.apply(g);
+                currentQuality = quality;
+                stateChanges++;
+            }
+        }
+
+        /**
+         * Draw DOT and LINE entities straight into the rendering buffer pixels with the {@link ParticleRasterizer},
+         * when there is no camera rotation to apply.
+         *
+         * @param e the entity to be drawn.
+         * @return true if the entity has been drawn, false if it must go through its {@link DrawPlugin}.
+         */
+        private boolean rasterizeEntity(Entity e) {
+            if (!rasterizer.accept(e)) {
+                return false;
+            }
+            if (Optional.ofNullable(camera).isPresent() && !e.isFixedToCamera()) {
+                if (camera.rotation != 0.0) {
+                    return false;
+                }
+                rasterizer.setOffset((int) Math.round(-camera.position.x), (int) Math.round(-camera.position.y));
+            } else {
+                rasterizer.setOffset(0, 0);
+            }
+            rasterizer.draw(e);
+            return true;
+        }
+
+        /**
+         * Retrieve the {@link GlyphAtlas} for the {@link TextEntity} style, creating it on first request.
+         * The atlas last used is kept by the TextEntity to avoid searching for it on each draw.
+         *
+         * @param g    the Graphics2D used as reference for rendering hints and font metrics.
+         * @param te   the TextEntity to be drawn.
+         * @param font the font to be used to draw the text.
+         * @return the corresponding GlyphAtlas.
+         */
+        public GlyphAtlas getGlyphAtlas(Graphics2D g, TextEntity te, Font font) {
+            if (te.atlas != null && te.atlas.style.matches(te, font)) {
+                return te.atlas;
+            }
+            te.atlas = glyphAtlases.stream()
+                    .filter(ga -> ga.style.matches(te, font))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        GlyphAtlas ga = new GlyphAtlas(g, new TextStyle(te, font), GlyphAtlas.DEFAULT_CHARSET);
+                        glyphAtlases.add(ga);
+                        return ga;
                     });
-            g.dispose();
+            return te.atlas;
+        }
 
-            // draw buffer to window.
-            drawToWindow(stats);
+        /**
+         * Activate or deactivate the direct raster drawing of the DOT and LINE particles.
+         *
+         * @param rp true to draw particles with the {@link ParticleRasterizer}.
+         * @return this Renderer.
+         */
+        public Renderer setRasterParticles(boolean rp) {
+            this.rasterParticles = rp;
+            return this;
+        }
+
+        /**
+         * @return the number of entities drawn by the {@link ParticleRasterizer} on the last frame.
+         */
+        public long getRasterizedCount() {
+            return rasterizedCount;
         }
 
-        private void drawToWindow(Map<String, Object> stats) {
-            Graphics2D g2 = (Graphics2D) frame.getBufferStrategy().getDrawGraphics();
-            g2.drawImage(
-                    renderingBuffer,
-                    0, 0, frame.getWidth(), frame.getHeight(),
-                    0, 0, renderingBuffer.getWidth(), renderingBuffer.getHeight(),
-                    null);
-            drawDebugLine(g2, stats);
-            frame.getBufferStrategy().show();
+        /**
+         * Present the rendering buffer into the window content area, or into the output image when headless, and
+         * draw the debug line over it.
+         */
+        private void drawToWindow(DebugStats stats, Image buffer) {
+            if (Optional.ofNullable(frame).isPresent()) {
+                Insets in = frame.getInsets();
+                int width = frame.getWidth() - in.left - in.right;
+                int height = frame.getHeight() - in.top - in.bottom;
+                Graphics2D g2 = (Graphics2D) frame.getBufferStrategy().getDrawGraphics();
+                presenter.present(g2, buffer, in.left, in.top, width, height);
+                drawDebugLine(g2, stats, in.left, in.top + height);
+                g2.dispose();
+                frame.getBufferStrategy().show();
+            } else {
+                Graphics2D g2 = outputBuffer.createGraphics();
+                presenter.present(g2, buffer, 0, 0, outputBuffer.getWidth(), outputBuffer.getHeight());
+                drawDebugLine(g2, stats, 0, outputBuffer.getHeight());
+                g2.dispose();
+            }
         }
 
         private void drawDebugInfoOnScreen(Dimension playArea, Graphics2D g) {
@@ -2317,35 +8945,15 @@ public class Game extends JPanel {
 
         }
 
-        private void drawDebugLine(Graphics2D g, Map<String, Object> stats) {
-            Dimension windowSize = (Dimension) this.game.config.get(ConfigAttribute.WINDOW_SIZE);
-            g.setColor(new Color(0.6f, 0.3f, 0.0f, 0.8f));
-            g.fillRect(0, frame.getHeight() - 28, frame.getWidth(), 20);
-            g.setFont(g.getFont().deriveFont(12.0f));
+        private void drawDebugLine(Graphics2D g, DebugStats stats, int x, int bottom) {
+            if (debugLineFont == null) {
+                debugLineFont = g.getFont().deriveFont(12.0f);
+            }
+            g.setColor(debugLineColor);
+            g.fillRect(x, bottom - 28, cfg.windowWidth, 20);
+            g.setFont(debugLineFont);
             g.setColor(Color.WHITE);
-            g.drawString(
-                    prepareStatsString(stats, "[", "]"),
-                    12, frame.getHeight() - 14);
-        }
-
-        public String prepareStatsString(Map<String, Object> attributes, String start, String end) {
-            return start + attributes.entrySet().stream().sorted(Map.Entry.comparingByKey()).map(entry -> {
-                String value = "";
-                switch (entry.getValue().getClass().getSimpleName()) {
-                    case "Double", "double", "Float", "float" -> {
-                        value = String.format("%04.2f", entry.getValue());
-                    }
-                    case "Integer", "int" -> {
-                        value = String.format("%5d", entry.getValue());
-                    }
-                    default -> {
-                        value = entry.getValue().toString();
-                    }
-                }
-                return entry.getKey().substring(((String) entry.getKey().toString()).indexOf('_') + 1)
-                        + ":"
-                        + value;
-            }).collect(Collectors.joining(" | ")) + end;
+            g.drawChars(stats.getChars(), 0, stats.getLength(), x + 12, bottom - 14);
         }
 
         private void drawDebugEntityInfo(Graphics2D g, Entity e) {
@@ -2359,19 +8967,22 @@ public class Game extends JPanel {
             // draw box
             g.setColor(Color.ORANGE);
             Stroke b = g.getStroke();
-            g.setStroke(new BasicStroke(0.2f));
+            g.setStroke(debugStroke);
             g.drawRect((int) x, (int) y, (int) e.width, (int) e.height);
             g.setStroke(b);
 
             // draw id and name
             int offsetX = e.width > 100 ? 2 : 2 + (int) e.width;
             g.setColor(Color.ORANGE);
-            g.setFont(g.getFont().deriveFont(9.0f));
+            if (debugEntityFont == null) {
+                debugEntityFont = g.getFont().deriveFont(9.0f);
+            }
+            g.setFont(debugEntityFont);
             int fh = g.getFontMetrics().getHeight();
-            int i = 0;
-            for (String info : e.getDebugInfo()) {
-                g.drawString(info, (int) (x + offsetX), (int) (y + i - 2));
-                i += (fh - 3);
+            debugInfo.clear();
+            e.appendDebugInfo(debugInfo);
+            for (int l = 0, i = 0; l < debugInfo.size(); l++, i += (fh - 3)) {
+                debugInfo.drawLine(g, l, (int) (x + offsetX), (int) (y + i - 2));
             }
         }
 
@@ -2386,15 +8997,30 @@ public class Game extends JPanel {
         }
 
         private void drawEntity(Graphics2D g, Entity e) {
-            if (plugins.containsKey(e.getClass())) {
-                DrawPlugin dp = plugins.get(e.getClass());
-                dp.draw(this, g, e);
+            DrawPlugin<?> dp = dispatch[getDrawTypeId(e)];
+            if (dp != null) {
+                drawWith(dp, g, e);
             }
         }
 
+        /**
+         * Draw the entity with the DrawPlugin resolved for its class, which is the entity class or one of its
+         * superclasses.
+         */
+        private <T extends Entity> void drawWith(DrawPlugin<T> dp, Graphics2D g, Entity e) {
+            dp.draw(this, g, dp.getClassName().cast(e));
+        }
+
         public void dispose() {
-            frame.dispose();
+            if (Optional.ofNullable(frame).isPresent()) {
+                frame.dispose();
+            }
+            if (Optional.ofNullable(renderTarget).isPresent()) {
+                renderTarget.flush();
+                renderTarget = null;
+            }
             renderingBuffer = null;
+            outputBuffer = null;
         }
 
         private Renderer setCamera(Camera cam) {
@@ -2403,7 +9029,9 @@ public class Game extends JPanel {
         }
 
         public Renderer setUserInput(UserInput ui) {
-            frame.addKeyListener(ui);
+            if (Optional.ofNullable(frame).isPresent()) {
+                frame.addKeyListener(ui);
+            }
             return this;
 
         }
@@ -2411,6 +9039,27 @@ public class Game extends JPanel {
         public Camera getCamera() {
             return camera;
         }
+
+        /**
+         * @return the mean time in microseconds spent to present the rendering buffer since the last call.
+         */
+        public double getBlitTime() {
+            return presenter.getBlitTime();
+        }
+
+        /**
+         * @return the image where the entities are drawn, before the frame is presented.
+         */
+        public BufferedImage getRenderingBuffer() {
+            return renderingBuffer;
+        }
+
+        /**
+         * @return the image receiving the presented frames when running headless, or null with a window.
+         */
+        public BufferedImage getOutputBuffer() {
+            return outputBuffer;
+        }
     }
 
     public class PlayerInputBehavior implements Behavior<Entity> {
@@ -2489,9 +9138,19 @@ public class Game extends JPanel {
     protected UserInput userInput;
     protected PhysicEngine physicEngine;
     protected Renderer renderer;
+    protected HotReloader hotReloader;
+    protected EventBus events;
+    protected RewindBuffer rewindBuffer;
+    protected ScriptScheduler scripts;
+    protected WorldStreamer streamer;
+    protected FrameRecorder recorder;
     private boolean exit;
     private boolean pause;
     private Map<String, Entity> entities = new HashMap<>();
+    /**
+     * Incremented on each change of the game entities membership, to be compared by the {@link RewindBuffer}.
+     */
+    private long entitiesGeneration = 0;
 
     private Map<String, Camera> cameras = new HashMap<>();
 
@@ -2499,6 +9158,8 @@ public class Game extends JPanel {
 
     private int debug;
     private int meteoValue = 0;
+    private long tick = 0;
+    private WorldSnapshot quickSave;
 
     public Game(String[] args, String pathToConfigPropsFile) {
         config = new Configuration(pathToConfigPropsFile, args);
@@ -2512,13 +9173,34 @@ public class Game extends JPanel {
 
     public void initialize() {
         resources = new Resources();
+        events = new EventBus()
+                .register(KeyInputEvent.class, KeyInputEvent::new)
+                .register(MeteoEvent.class, MeteoEvent::new);
+        events.subscribe(MeteoEvent.class, e -> meteoValue = e.meteo);
 
         physicEngine = new PhysicEngine(this);
         renderer = new Renderer(this);
         userInput = new UserInput(this);
         renderer.setUserInput(userInput);
+        scripts = new ScriptScheduler();
+        recorder = new FrameRecorder();
+        config.addListener(physicEngine);
+        config.addListener(renderer);
+
+        hotReloader = new HotReloader().start();
+        Path externalConfig = config.getExternalConfigPath();
+        if (Optional.ofNullable(externalConfig).isPresent()) {
+            hotReloader.watch(externalConfig, file -> {
+                Map<ConfigAttribute, Object> changes = config.parseChanges(file);
+                return changes.isEmpty() ? null : () -> config.apply(changes);
+            });
+        }
 
-        this.debug = (int) config.get(ConfigAttribute.DEBUG);
+        this.debug = config.getSnapshot().debug;
+        int rewindMemory = config.getSnapshot().rewindMemory;
+        if (rewindMemory > 0) {
+            rewindBuffer = new RewindBuffer(rewindMemory * 1024 * 1024);
+        }
     }
 
     public void run() {
@@ -2554,20 +9236,37 @@ public class Game extends JPanel {
         int internalTimeFrames = 0;
         long internalTime = 0;
 
-        Map<String, Object> stats = new HashMap<>();
+        DebugStats stats = new DebugStats("[", "]");
 
         while (!exit) {
             startTime = System.currentTimeMillis();
             elapsed = startTime - endTime;
+            // swap in the reloaded configuration and animations
+            hotReloader.applyPending();
+            // dispatch the events published since the last update, like the user key events
+            events.dispatch();
             // detect and process user input
             input();
             // update all entities
             if (!pause) {
+                // resume the scripts waiting for this tick
+                scripts.update(tick);
                 physicEngine.update(elapsed);
                 renderer.update(elapsed);
+                // load and unload the world regions around the camera target
+                if (Optional.ofNullable(streamer).isPresent() && Optional.ofNullable(renderer.getCamera()).isPresent()) {
+                    streamer.update(renderer.getCamera().target);
+                }
+                tick++;
+                // record this tick to be able to rewind it
+                if (Optional.ofNullable(rewindBuffer).isPresent()) {
+                    rewindBuffer.record(entities.values(), entitiesGeneration, tick);
+                }
                 updates++;
                 internalTimeFrames += elapsed;
             }
+            // dispatch the events published during the update
+            events.dispatch();
 
             // prepare statistics
             prepareStats(fps, ups, internalTime, stats);
@@ -2592,17 +9291,36 @@ public class Game extends JPanel {
         }
     }
 
-    private void prepareStats(int fps, int ups, long internalTime, Map<String, Object> stats) {
-        final String[] meteoTitle = new String[]{"none", "Rain", "Snow"};
-        stats.put("dbg", getDebugLevel());
-        stats.put("obj", entities.size());
-        stats.put("cam", renderer.getCamera() != null ? renderer.getCamera().getName() : "none");
-        stats.put("fps", fps);
-        stats.put("ups", ups);
-        stats.put("time", formatTime(internalTime));
-        stats.put("meteo", meteoTitle[meteoValue]);
-
-        stats.put("pause", isPause());
+    private static final String[] METEO_TITLES = new String[]{"none", "Rain", "Snow"};
+
+    private void prepareStats(int fps, int ups, long internalTime, DebugStats stats) {
+        stats.set("dbg", getDebugLevel());
+        stats.set("obj", entities.size());
+        stats.set("col", physicEngine.getCollisionSystem().getContactCount());
+        stats.set("awake", physicEngine.getAwakeCount());
+        stats.set("sleep", physicEngine.getAsleepCount());
+        stats.set("cam", renderer.getCamera() != null ? renderer.getCamera().getName() : "none");
+        stats.set("fps", fps);
+        stats.set("ups", ups);
+        stats.setTime("time", internalTime);
+        stats.set("meteo", METEO_TITLES[meteoValue]);
+        stats.set("scr", scripts.getCount());
+        stats.set("evt", events.getDispatchTime());
+        stats.set("evq", events.getQueueDepth());
+        stats.set("blit", renderer.getBlitTime());
+        stats.set("chg", renderer.getStateChanges());
+        stats.set("cap", recorder.getEncodedCount());
+        stats.set("drop", recorder.getDroppedCount());
+        if (Optional.ofNullable(streamer).isPresent()) {
+            stats.set("reg", streamer.getResidentCount());
+            stats.set("rio", streamer.getPendingIO());
+        }
+        if (Optional.ofNullable(rewindBuffer).isPresent()) {
+            stats.set("rwd", rewindBuffer.getRecordTime());
+            stats.set("rwdt", rewindBuffer.getTickCount());
+        }
+
+        stats.set("pause", isPause());
     }
 
     public static String formatTime(long millis) {
@@ -2616,6 +9334,60 @@ public class Game extends JPanel {
         return String.format("%02d:%02d:%02d", hours, minutes, seconds);
     }
 
+    /**
+     * Append a duration in seconds as <code>hh:mm:ss</code>, like {@link #formatTime(long)} does.
+     */
+    public static StringBuilder appendTime(StringBuilder sb, long seconds) {
+        appendPadded(sb, seconds / 3600, 2, '0').append(':');
+        appendPadded(sb, (seconds % 3600) / 60, 2, '0').append(':');
+        return appendPadded(sb, seconds % 60, 2, '0');
+    }
+
+    /**
+     * Append an integer value right aligned on <code>width</code> characters, padded with <code>pad</code>.
+     */
+    public static StringBuilder appendPadded(StringBuilder sb, long value, int width, char pad) {
+        int digits = value < 0 ? 2 : 1;
+        for (long v = Math.abs(value); v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < width; i++) {
+            sb.append(pad);
+        }
+        return sb.append(value);
+    }
+
+    /**
+     * Append a decimal value with a fixed number of decimals, without going through {@link String#format}.
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return sb.append(value);
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            sb.append('-');
+        }
+        sb.append(scaled / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            appendPadded(sb, scaled % scale, decimals, '0');
+        }
+        return sb;
+    }
+
+    /**
+     * Append a {@link Vector2D} the same way its {@link Vector2D#toString()} does.
+     */
+    public static StringBuilder appendVector(StringBuilder sb, Vector2D v) {
+        appendFixed(sb.append("{x:"), v.x, 2);
+        return appendFixed(sb.append(",y:"), v.y, 2).append('}');
+    }
+
     private void waitForMs(int ms) {
         if (ms < 0) {
             ms = 1;
@@ -2637,6 +9409,12 @@ public class Game extends JPanel {
     }
 
     private void dispose() {
+        scripts.stop();
+        if (Optional.ofNullable(streamer).isPresent()) {
+            streamer.dispose();
+        }
+        recorder.stop().awaitEncoding(5000);
+        hotReloader.stop();
         renderer.dispose();
     }
 
@@ -2644,6 +9422,118 @@ public class Game extends JPanel {
         return pause;
     }
 
+    /**
+     * Capture a full {@link WorldSnapshot} of all the game entities.
+     *
+     * @return a new full WorldSnapshot.
+     */
+    public WorldSnapshot saveSnapshot() {
+        return new WorldSnapshot().capture(entities.values(), tick, null);
+    }
+
+    /**
+     * Capture a delta {@link WorldSnapshot} of the game entities changed since the baseline.
+     *
+     * @param baseline the full snapshot to compare the entities with.
+     * @return a new delta WorldSnapshot.
+     */
+    public WorldSnapshot saveSnapshot(WorldSnapshot baseline) {
+        return new WorldSnapshot().capture(entities.values(), tick, baseline);
+    }
+
+    /**
+     * Restore the game entities state from a {@link WorldSnapshot}.
+     *
+     * @param snapshot the snapshot to be restored.
+     * @return the number of restored entities.
+     */
+    public int loadSnapshot(WorldSnapshot snapshot) {
+        int restored = snapshot.restore(entities);
+        tick = snapshot.getTick();
+        if (Optional.ofNullable(physicEngine.world).isPresent()) {
+            physicEngine.world.invalidateInfluencers();
+        }
+        return restored;
+    }
+
+    /**
+     * Save the current world state into memory and into the <code>quicksave.snapshot</code> file beside the JAR.
+     */
+    public void quickSave() {
+        long start = System.nanoTime();
+        quickSave = saveSnapshot();
+        try {
+            quickSave.writeTo(Configuration.getJarSidePath("quicksave.snapshot"));
+        } catch (URISyntaxException | IOException e) {
+            System.err.printf("ERROR : unable to write quick-save file: %s%n", e.getMessage());
+        }
+        System.out.printf("INFO : quick-save of %d entities (%d bytes) at tick %d in %d µs%n",
+                quickSave.getRecordCount(), quickSave.getSize(), tick,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    /**
+     * Restore the world state from the last quick-save, or from the <code>quicksave.snapshot</code> file.
+     */
+    public void quickLoad() {
+        try {
+            if (quickSave == null) {
+                Path file = Configuration.getJarSidePath("quicksave.snapshot");
+                if (!Files.exists(file)) {
+                    return;
+                }
+                quickSave = new WorldSnapshot().readFrom(file, null);
+            }
+            long start = System.nanoTime();
+            int restored = loadSnapshot(quickSave);
+            System.out.printf("INFO : quick-load of %d entities at tick %d in %d µs%n",
+                    restored, tick, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        } catch (URISyntaxException | IOException e) {
+            System.err.printf("ERROR : unable to read quick-save file: %s%n", e.getMessage());
+        }
+    }
+
+    /**
+     * Start capturing the frames as an animated GIF into the <code>captures</code> directory beside the JAR, or stop
+     * the running capture.
+     */
+    public void switchCapture() {
+        if (recorder.isRecording()) {
+            recorder.stop();
+        } else {
+            try {
+                Path dir = Configuration.getJarSidePath("captures")
+                        .resolve(String.format("capture-%d", System.currentTimeMillis()));
+                recorder.start(dir, CaptureFormat.GIF, 2);
+            } catch (URISyntaxException e) {
+                System.err.printf("ERROR : unable to find the captures directory: %s%n", e.getMessage());
+            }
+        }
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Pause the game and restore the world state recorded some ticks away from the current one.
+     *
+     * @param steps the number of ticks to move forward, or backward with a negative value.
+     */
+    public void rewind(int steps) {
+        if (Optional.ofNullable(rewindBuffer).isEmpty()) {
+            return;
+        }
+        setPause(true);
+        long restored = rewindBuffer.seek(entities, steps);
+        if (restored >= 0) {
+            tick = restored;
+            if (Optional.ofNullable(physicEngine.world).isPresent()) {
+                physicEngine.world.invalidateInfluencers();
+            }
+        }
+    }
+
     public void setPause(boolean p) {
         this.pause = p;
     }
@@ -2666,12 +9556,38 @@ public class Game extends JPanel {
             cameras.put(entity.getName(), (Camera) entity);
         }
         entities.put(entity.getName(), entity);
+        entitiesGeneration++;
     }
 
     public void add(String key, Behavior<?> b) {
         this.behaviors.put(key, b);
     }
 
+    /**
+     * Create the {@link WorldStreamer} of the game, keeping resident the number of regions around the camera target
+     * set by the {@link ConfigAttribute#WORLD_STREAMING_RADIUS} configuration attribute.
+     *
+     * @param regionSize the width and height of a region in world units.
+     * @param factory    the factory recreating a streamed entity from its name.
+     * @return the new WorldStreamer, to add the streamed entities to.
+     */
+    public WorldStreamer createWorldStreamer(int regionSize, Function<String, Entity> factory) {
+        streamer = new WorldStreamer(regionSize, config.getSnapshot().streamingRadius, factory);
+        config.addListener(streamer);
+        return streamer;
+    }
+
+    /**
+     * Attach a {@link Script} to an entity, started at the next tick by the {@link ScriptScheduler}.
+     *
+     * @param entity the entity the script is attached to.
+     * @param script the script to be executed.
+     * @return the task executing the script, to be cancelled if needed.
+     */
+    public ScriptScheduler.ScriptTask addScript(Entity entity, Script script) {
+        return scripts.start(entity, script);
+    }
+
     public Behavior<?> get(String key) {
         return this.behaviors.get(key);
     }
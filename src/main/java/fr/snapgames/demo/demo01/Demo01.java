@@ -25,15 +25,33 @@ public class Demo01 extends Game {
                 (Dimension) config.get(ConfigAttribute.PHYSIC_PLAY_AREA));
         physicEngine.setWorld(world);
 
+        // add a windy area on the right side of the play area.
+        Influencer wind = (Influencer) new Influencer("wind")
+                .setForce(-10.0, 0.0)
+                .setPosition(world.getPlayArea().getWidth() * 0.75, 0)
+                .setSize(world.getPlayArea().getWidth() * 0.25, world.getPlayArea().getHeight());
+        world.add(wind);
+
         Animations animations = (Animations) context.get("animations");
         // defined in the Game inheriting class
-        Entity background = (Entity) new Entity("backImage")
-                .setPosition(0, 0)
-                .setPhysicType(PhysicType.STATIC)
-                .setImage(resources.getImage("/images/backgrounds/forest.jpg"))
-                .setPriority(0);
+        ParallaxLayer background = new ParallaxLayer("backImage",
+                resources.getImage("/images/backgrounds/forest.jpg"), 0.5)
+                .setRepeat(true, false);
+        background.setPriority(0);
         add(background);
 
+        // add the ground and some platforms from the tileset.
+        int cols = world.getPlayArea().width / 16, rows = world.getPlayArea().height / 16;
+        TileMap tiles = new TileMap("tiles", resources.getImage("/images/tiles01.png"), 16, 16, cols, rows)
+                .fill(0, rows - 2, cols, 1, 28)
+                .fill(0, rows - 1, cols, 1, 48)
+                .fill(8, rows - 7, 6, 1, 42)
+                .fill(24, rows - 11, 7, 1, 42)
+                .setSolid(28, 48, 42);
+        tiles.setPriority(1);
+        world.setTileMap(tiles);
+        add(tiles);
+
         // add the main player entity.
         Entity player = new Entity("player",
                 (int) ((world.getPlayArea().getWidth() - 8) * 0.5),
@@ -52,8 +70,34 @@ public class Demo01 extends Game {
                 .add("player_idle", animations.get("player_idle").setSpeed(0.6))
                 .add("player_walk", animations.get("player_walk"))
                 .add("player_fall", animations.get("player_fall"))
-                .add("player_jump", animations.get("player_jump"));
+                .add("player_jump", animations.get("player_jump"))
+                .setCollidable(true);
         add(player);
+
+        // add some crates the player can push.
+        for (int i = 0; i < 3; i++) {
+            Entity crate = new Entity("crate_" + i,
+                    (int) (world.getPlayArea().getWidth() * 0.25) + (i * 40),
+                    (int) (world.getPlayArea().getHeight() * 0.5),
+                    Color.ORANGE,
+                    new Color(0.5f, 0.3f, 0.1f))
+                    .setSize(16.0, 16.0)
+                    .setMass(40.0)
+                    .setPriority(2)
+                    .setMaterial(new Material("wood", 0.7, 0.3, 0.95))
+                    .setCollidable(true);
+            add(crate);
+            // make the crate hop from time to time.
+            int delay = 120 + i * 45;
+            addScript(crate, (ctx, e) -> {
+                while (true) {
+                    ctx.waitTicks(delay);
+                    e.setVelocity(0.0, -1.2);
+                    // wait for the crate to rest on the ground again.
+                    ctx.waitUntil(Entity::isSleeping);
+                }
+            });
+        }
         // add a spinning crystal
         Entity crystal = new Entity("crystal", 30, 30, Color.RED, Color.YELLOW)
                 .setSize(16, 16)
@@ -67,6 +111,14 @@ public class Demo01 extends Game {
         RainBehavior rb = new RainBehavior(world, 20, 100, 20);
         SnowBehavior sb = new SnowBehavior(world, 2);
         add("rainBehavior", (Behavior<?>) rb);
+        // start and stop the particles on meteo switch.
+        events.subscribe(MeteoEvent.class, e -> {
+            if (e.getMeteo() == 1) {
+                rb.start();
+            } else {
+                rb.stop();
+            }
+        });
         //add("snowBehavior", (Behavior<?>) sb);
 
         // add a new particles animation to simulate rain
@@ -84,6 +136,7 @@ public class Demo01 extends Game {
 
         TextEntity score = (TextEntity) new TextEntity("score", vp.width - 80, 30)
                 .setText("00000")
+                .setGlyphAtlas(true)
                 .setFont(getFont().deriveFont(Font.BOLD, 20.0f))
                 .setTextColor(Color.WHITE)
                 .setShadowWidth(2)
@@ -106,6 +159,8 @@ public class Demo01 extends Game {
         userInput.add(new MeteoSwitcher());
         // switch trhogh debug mode levels.
         userInput.add(new DebugSwitcher(this));
+        // scrub through the last recorded ticks.
+        userInput.add(new RewindController(this));
     }
 
     public static void main(String[] args) {
@@ -5,8 +5,13 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,4 +63,58 @@ class ConfigurationTest {
         Assertions.assertEquals(new Dimension(200, 200), config.get(Game.ConfigAttribute.PHYSIC_PLAY_AREA));
     }
 
+    @Test
+    public void testConfigurationRewindMemoryIsClamped() {
+        Configuration config = new Configuration("/test-config.properties", new String[]{"w=4096"});
+        Assertions.assertEquals(Game.ConfigAttribute.MAX_REWIND_MEMORY, config.get(Game.ConfigAttribute.REWIND_MEMORY));
+        config = new Configuration("/test-config.properties", new String[]{"w=-1"});
+        Assertions.assertEquals(0, config.get(Game.ConfigAttribute.REWIND_MEMORY));
+    }
+
+    @Test
+    public void testConfigurationSnapshotHasTypedValues() {
+        Configuration config = new Configuration("/test-config.properties", new String[]{"g=2.0", "p=200x100"});
+        Game.ConfigSnapshot snapshot = config.getSnapshot();
+        Assertions.assertEquals("TestWindowTitle", snapshot.title);
+        Assertions.assertEquals(2, snapshot.debug);
+        Assertions.assertEquals(2.0, snapshot.gravity);
+        Assertions.assertEquals(200, snapshot.playAreaWidth);
+        Assertions.assertEquals(100, snapshot.playAreaHeight);
+        Assertions.assertEquals(new Dimension(320, 200), snapshot.getScreenResolution());
+        Assertions.assertNotSame(config.get(Game.ConfigAttribute.PHYSIC_PLAY_AREA), snapshot.getPlayArea());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> snapshot.renderQuality.put(Game.RenderLayer.TEXT, Game.RenderQuality.PIXEL));
+    }
+
+    @Test
+    public void testConfigurationReloadPublishesNewSnapshot() {
+        Configuration config = new Configuration("/test-config.properties", new String[]{});
+        Game.ConfigSnapshot before = config.getSnapshot();
+        Game.ConfigSnapshot[] received = new Game.ConfigSnapshot[1];
+        config.addListener(s -> received[0] = s);
+
+        config.ifArgumentFoundSetToValue(new String[]{"g", "1.5"});
+        Assertions.assertEquals(0.981, config.getSnapshot().gravity);
+
+        Game.ConfigSnapshot after = config.reload();
+        Assertions.assertSame(after, received[0]);
+        Assertions.assertSame(after, config.getSnapshot());
+        Assertions.assertEquals(1.5, after.gravity);
+        Assertions.assertEquals(0.981, before.gravity);
+    }
+
+    @Test
+    public void testConfigurationFileChangesKeepCLIOverrides(@TempDir Path dir) throws IOException {
+        Configuration config = new Configuration("/test-config.properties", new String[]{"g=2.0"});
+        Path file = dir.resolve("my-test-config.properties");
+        Files.writeString(file, "game.title=TestWindowTitle\ngame.physic.gravity=0.981\n");
+        config.parseChanges(file);
+
+        Files.writeString(file, "game.title=TestWindowTitleChanged\ngame.physic.gravity=0.981\n");
+        Map<Game.ConfigAttribute, Object> changes = config.parseChanges(file);
+        Assertions.assertEquals(Map.of(Game.ConfigAttribute.TITLE, "TestWindowTitleChanged"), changes);
+        config.apply(changes);
+        Assertions.assertEquals(2.0, config.getSnapshot().gravity);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,347 @@
+package fr.snapgames.demo.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Visual regression tests of the {@link Game.Renderer} and its DrawPlugin implementations.
+ * <p>
+ * Each test builds a deterministic scene, draws it headless into the rendering buffer, and compares the buffer to the
+ * golden image <code>/golden/[scene].png</code>. Two pixels are different when their perceived color distance (in
+ * the YIQ color space) is above {@link #COLOR_THRESHOLD}, and a scene fails when the ratio of different pixels is
+ * above its tolerance. The actual and diff images of a failing scene are written into <code>target/golden</code>.
+ * <p>
+ * The rendering cost of each scene is guarded by its draw count and its number of Graphics2D state changes per
+ * frame, which must not be above the values recorded in <code>/golden/[scene].properties</code>. Those counts do not
+ * depend on the machine, unlike the mean render time, which is printed for information only.
+ * <p>
+ * To record the golden images and counts again after an intended change, run the tests with
+ * <code>-Dgolden.update=true</code> from the project root.
+ *
+ * @author Frédéric Delorme
+ * @since 1.0.3
+ */
+class RendererGoldenImageTest {
+    /**
+     * Maximum YIQ distance between two pixels considered the same, from 0 to 1.
+     */
+    private static final double COLOR_THRESHOLD = 0.1;
+    /**
+     * Maximum squared YIQ distance between two colors.
+     */
+    private static final double MAX_YIQ_DELTA = 35215.0;
+    /**
+     * Default ratio of different pixels accepted in a scene.
+     */
+    private static final double DEFAULT_TOLERANCE = 0.001;
+    private static final int WARMUP_FRAMES = 10;
+    private static final int MEASURED_FRAMES = 30;
+
+    private Game game;
+
+    @BeforeEach
+    public void setup() {
+        game = new Game(new String[]{"d=0", "w=0"}, "/test-config.properties");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        game.hotReloader.stop();
+        game.renderer.dispose();
+    }
+
+    @Test
+    public void testRenderShapes() throws IOException {
+        addCamera(0, 0);
+        game.add(game.new Entity("rectangle", 10, 10, Color.RED, Color.WHITE)
+                .setSize(60, 40)
+                .setType(Game.EntityType.RECTANGLE)
+                .setPriority(1));
+        game.add(game.new Entity("ellipse", 90, 10, Color.BLUE, Color.YELLOW)
+                .setSize(50, 50)
+                .setType(Game.EntityType.ELLIPSE)
+                .setPriority(2));
+        game.add(game.new Entity("dot", 160, 20, Color.GREEN, Color.GREEN)
+                .setSize(6, 6)
+                .setType(Game.EntityType.DOT)
+                .setPriority(3));
+        game.add(game.new Entity("line", 200, 10, Color.CYAN, Color.CYAN)
+                .setSize(2, 2)
+                .setVelocity(80, 40)
+                .setType(Game.EntityType.LINE)
+                .setPriority(4));
+        game.add(game.new Entity("hud", 10, 150, Color.DARK_GRAY, Color.LIGHT_GRAY)
+                .setSize(300, 40)
+                .setType(Game.EntityType.RECTANGLE)
+                .setFixedToCamera(true)
+                .setPriority(5));
+        assertMatchesGolden("shapes", DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void testRenderRasterizedParticles() throws IOException {
+        addCamera(0, 0);
+        Random r = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            boolean dot = i % 2 == 0;
+            game.add(game.new Entity("p" + i, r.nextInt(310), r.nextInt(190),
+                    new Color(r.nextInt(0xffffff)), new Color(r.nextInt(0xffffff)))
+                    .setSize(dot ? 2 : 1, dot ? 2 : 1)
+                    .setVelocity(r.nextInt(9) - 4, r.nextInt(9))
+                    .setType(dot ? Game.EntityType.DOT : Game.EntityType.LINE)
+                    .setPriority(1));
+        }
+        assertMatchesGolden("particles", DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void testRenderSprites() throws IOException {
+        addCamera(0, 0);
+        BufferedImage sheet = game.resources.getImage("/images/sprites01.png");
+        Game.Entity right = game.new Entity("right", 40, 40, null, null)
+                .setImage(sheet.getSubimage(0, 32, 32, 32))
+                .setPriority(1);
+        game.add(right);
+        Game.Entity left = game.new Entity("left", 120, 40, null, null)
+                .setImage(sheet.getSubimage(0, 32, 32, 32))
+                .setPriority(2);
+        left.direction = -1;
+        game.add(left);
+        assertMatchesGolden("sprites", DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void testRenderParallaxAndTileMap() throws IOException {
+        addCamera(100, 200);
+        Game.ParallaxLayer back = game.new ParallaxLayer("back",
+                game.resources.getImage("/images/backgrounds/forest.jpg"), 0.5);
+        back.setPriority(0);
+        game.add(back);
+        Game.TileMap tiles = game.new TileMap("tiles", game.resources.getImage("/images/tiles01.png"),
+                16, 16, 40, 25)
+                .fill(0, 23, 40, 1, 28)
+                .fill(0, 24, 40, 1, 48)
+                .fill(8, 18, 6, 1, 42);
+        tiles.setPriority(1);
+        game.add(tiles);
+        assertMatchesGolden("world", DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void testRenderText() throws IOException {
+        // font rasterization depends on the system fonts, the golden image has been recorded on Linux.
+        Assumptions.assumeTrue(System.getProperty("os.name").startsWith("Linux"));
+        addCamera(0, 0);
+        Font font = game.getFont().deriveFont(Font.BOLD, 20.0f);
+        game.add(game.new TextEntity("cached", 20, 40)
+                .setText("Score 01234")
+                .setFont(font)
+                .setTextColor(Color.WHITE)
+                .setShadowWidth(2)
+                .setShadowColor(new Color(0.0f, 0.0f, 0.0f, 0.6f))
+                .setBorderWidth(2)
+                .setBorderColor(new Color(0.6f, 0.6f, 0.6f, 0.6f))
+                .setPriority(1));
+        game.add(game.new TextEntity("atlas", 20, 100)
+                .setText("56789")
+                .setGlyphAtlas(true)
+                .setFont(font)
+                .setTextColor(Color.YELLOW)
+                .setPriority(2));
+        // the border and shadow of a glyph must not cover the previous one, as in the cached image.
+        game.add(game.new TextEntity("styled-atlas", 20, 160)
+                .setText("+01234")
+                .setGlyphAtlas(true)
+                .setFont(font)
+                .setTextColor(Color.WHITE)
+                .setShadowWidth(2)
+                .setShadowColor(new Color(0.0f, 0.0f, 0.0f, 0.6f))
+                .setBorderWidth(2)
+                .setBorderColor(new Color(0.6f, 0.6f, 0.6f, 0.6f))
+                .setPriority(3));
+        assertMatchesGolden("text", 0.01);
+    }
+
+    @Test
+    public void testRenderEntitySubclasses() throws IOException {
+        addCamera(0, 0);
+        // a subclass without its own DrawPlugin is drawn by the DrawPlugin of its closest parent class.
+        game.add(game.new Entity("anonymous", 20, 20, Color.ORANGE, Color.RED) {
+                }
+                .setSize(40, 30)
+                .setPriority(1));
+        // a subclass with its own DrawPlugin, even registered after the first frame.
+        class Marker extends Game.Entity {
+            Marker(Game g, String name) {
+                g.super(name);
+            }
+        }
+        Marker marker = new Marker(game, "marker");
+        marker.setPosition(100, 20).setSize(30, 30).setPriority(2);
+        game.add(marker);
+        game.renderer.draw(game.new DebugStats("[", "]"));
+        game.renderer.addPlugin(new Game.DrawPlugin<Marker>() {
+            @Override
+            public Class<Marker> getClassName() {
+                return Marker.class;
+            }
+
+            @Override
+            public void draw(Game.Renderer r, Graphics2D g, Marker e) {
+                g.setColor(Color.MAGENTA);
+                g.drawLine((int) e.position.x, (int) e.position.y,
+                        (int) (e.position.x + e.width), (int) (e.position.y + e.height));
+                g.drawLine((int) (e.position.x + e.width), (int) e.position.y,
+                        (int) e.position.x, (int) (e.position.y + e.height));
+            }
+        });
+        assertMatchesGolden("subclasses", DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    public void testRenderNegativePriorityBehind() {
+        addCamera(0, 0);
+        game.add(game.new Entity("front", 10, 10, Color.BLUE, Color.BLUE)
+                .setSize(40, 40)
+                .setPriority(0));
+        game.add(game.new Entity("back", 20, 20, Color.RED, Color.RED)
+                .setSize(40, 40)
+                .setPriority(Game.AbstractEntity.MIN_PRIORITY));
+        game.renderer.draw(game.new DebugStats("[", "]"));
+        BufferedImage buffer = game.renderer.getRenderingBuffer();
+        Assertions.assertEquals(Color.BLUE.getRGB(), buffer.getRGB(30, 30), "the front entity is hidden");
+        Assertions.assertEquals(Color.RED.getRGB(), buffer.getRGB(55, 55), "the back entity is not drawn");
+    }
+
+    private void addCamera(double x, double y) {
+        Game.Camera camera = game.new Camera("cam")
+                .setViewport(new Dimension(320, 200));
+        camera.setPosition(x, y);
+        game.add(camera);
+    }
+
+    /**
+     * Draw the scene, measure its render time, check its rendering counts and compare the rendering buffer to the
+     * scene golden image.
+     *
+     * @param scene     name of the scene.
+     * @param tolerance the maximum ratio of different pixels.
+     */
+    private void assertMatchesGolden(String scene, double tolerance) throws IOException {
+        Game.DebugStats stats = game.new DebugStats("[", "]");
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            game.renderer.draw(stats);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            game.renderer.draw(stats);
+        }
+        double renderTime = (System.nanoTime() - start) / (1_000_000.0 * MEASURED_FRAMES);
+        System.out.printf("INFO : scene=%s : render time %.3f ms/frame%n", scene, renderTime);
+
+        BufferedImage actual = game.renderer.getRenderingBuffer();
+        Properties counts = new Properties();
+        counts.setProperty("drawCount", String.valueOf(game.renderer.getDrawCount()));
+        counts.setProperty("stateChanges", String.valueOf(game.renderer.getStateChanges()));
+        if (Boolean.getBoolean("golden.update")) {
+            Path file = Path.of("src", "test", "resources", "golden", scene + ".png");
+            Files.createDirectories(file.getParent());
+            ImageIO.write(actual, "png", file.toFile());
+            try (OutputStream os = Files.newOutputStream(file.resolveSibling(scene + ".properties"))) {
+                counts.store(os, "rendering counts per frame of the " + scene + " scene");
+            }
+            System.out.printf("INFO : scene=%s : golden image and counts written to %s%n", scene, file);
+            return;
+        }
+        assertCounts(scene, counts);
+        BufferedImage expected;
+        try (InputStream is = RendererGoldenImageTest.class.getResourceAsStream("/golden/" + scene + ".png")) {
+            Assertions.assertNotNull(is, "no golden image for scene " + scene + ", run with -Dgolden.update=true");
+            expected = ImageIO.read(is);
+        }
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth(), "scene " + scene + " width");
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight(), "scene " + scene + " height");
+
+        BufferedImage diff = new BufferedImage(actual.getWidth(), actual.getHeight(), BufferedImage.TYPE_INT_RGB);
+        double ratio = compare(expected, actual, diff);
+        if (ratio > tolerance) {
+            Path dir = Path.of("target", "golden");
+            Files.createDirectories(dir);
+            ImageIO.write(actual, "png", dir.resolve(scene + "-actual.png").toFile());
+            ImageIO.write(diff, "png", dir.resolve(scene + "-diff.png").toFile());
+        }
+        Assertions.assertTrue(ratio <= tolerance,
+                String.format("scene %s differs from its golden image on %.2f%% of the pixels (max %.2f%%)",
+                        scene, ratio * 100, tolerance * 100));
+    }
+
+    /**
+     * Check that the rendering counts of the scene are not above the recorded ones.
+     *
+     * @param scene  name of the scene.
+     * @param actual the counts of the last drawn frame.
+     */
+    private void assertCounts(String scene, Properties actual) throws IOException {
+        Properties expected = new Properties();
+        try (InputStream is = RendererGoldenImageTest.class.getResourceAsStream("/golden/" + scene + ".properties")) {
+            Assertions.assertNotNull(is, "no golden counts for scene " + scene + ", run with -Dgolden.update=true");
+            expected.load(is);
+        }
+        for (String key : expected.stringPropertyNames()) {
+            int max = Integer.parseInt(expected.getProperty(key));
+            int value = Integer.parseInt(actual.getProperty(key));
+            Assertions.assertTrue(value <= max,
+                    String.format("scene %s : %s is %d per frame (max %d)", scene, key, value, max));
+        }
+    }
+
+    /**
+     * Compare two images pixel by pixel, marking the different pixels in red in the diff image.
+     *
+     * @return the ratio of different pixels.
+     */
+    private static double compare(BufferedImage expected, BufferedImage actual, BufferedImage diff) {
+        int different = 0;
+        double maxDelta = MAX_YIQ_DELTA * COLOR_THRESHOLD * COLOR_THRESHOLD;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = expected.getRGB(x, y), b = actual.getRGB(x, y);
+                if (a != b && yiqDelta(a, b) > maxDelta) {
+                    different++;
+                    diff.setRGB(x, y, 0xff0000);
+                } else {
+                    // keep a faded copy of the image as a background of the differences.
+                    int gray = (((b >> 16) & 0xff) + ((b >> 8) & 0xff) + (b & 0xff)) / 12;
+                    diff.setRGB(x, y, gray << 16 | gray << 8 | gray);
+                }
+            }
+        }
+        return (double) different / (actual.getWidth() * actual.getHeight());
+    }
+
+    /**
+     * Compute the squared perceived distance of two opaque colors in the YIQ color space.
+     */
+    private static double yiqDelta(int c1, int c2) {
+        int r1 = (c1 >> 16) & 0xff, g1 = (c1 >> 8) & 0xff, b1 = c1 & 0xff;
+        int r2 = (c2 >> 16) & 0xff, g2 = (c2 >> 8) & 0xff, b2 = c2 & 0xff;
+        double y = (r1 - r2) * 0.29889531 + (g1 - g2) * 0.58662247 + (b1 - b2) * 0.11448223;
+        double i = (r1 - r2) * 0.59597799 - (g1 - g2) * 0.27417610 - (b1 - b2) * 0.32180189;
+        double q = (r1 - r2) * 0.21147017 - (g1 - g2) * 0.52261711 + (b1 - b2) * 0.31114694;
+        return 0.5053 * y * y + 0.299 * i * i + 0.1957 * q * q;
+    }
+}
@@ -0,0 +1,103 @@
+package fr.snapgames.demo.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests of the {@link Game.WorldStreamer} on a world of 40x40 regions holding 100k streamed entities.
+ * <p>
+ * The time of the first update, unloading almost all the entities, and the time to load back the regions around a
+ * moved target are printed.
+ *
+ * @author Frédéric Delorme
+ * @since 1.0.3
+ */
+class WorldStreamerTest {
+    private static final int REGION_SIZE = 640;
+    private static final int REGIONS = 40;
+    private static final int ENTITY_COUNT = 100_000;
+    /**
+     * Maximum number of streamed entities expected in memory, for about 62 entities per region.
+     */
+    private static final int MAX_IN_MEMORY = 1000;
+
+    private Game game;
+    private Game.WorldStreamer streamer;
+    private final Map<String, Game.Entity> created = new HashMap<>();
+
+    @BeforeEach
+    public void setup() {
+        game = new Game(new String[]{"d=0", "w=0"}, "/test-config.properties");
+        streamer = game.createWorldStreamer(REGION_SIZE, name -> {
+            Game.Entity e = game.new Entity(name, 0, 0, null, null).setSize(8, 8);
+            created.put(name, e);
+            return e;
+        });
+        Random random = new Random(1);
+        int world = REGION_SIZE * REGIONS;
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            streamer.add(game.new Entity("s" + i, random.nextInt(world), random.nextInt(world), null, null)
+                    .setSize(8, 8)
+                    .setVelocity(i, -i));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        streamer.dispose();
+        game.hotReloader.stop();
+        game.renderer.dispose();
+    }
+
+    @Test
+    public void testOnlyRegionsAroundTargetStayInMemory() throws InterruptedException {
+        Game.Entity target = game.new Entity("target", 320, 320, null, null);
+        long start = System.nanoTime();
+        streamer.update(target);
+        double updateTime = (System.nanoTime() - start) / 1e6;
+        Assertions.assertEquals(9, streamer.getResidentCount());
+        Assertions.assertTrue(streamer.getStreamedCount() <= MAX_IN_MEMORY,
+                "too many streamed entities in memory: " + streamer.getStreamedCount());
+        waitFor(target);
+        System.out.printf("INFO : streamer : first update unloaded %d entities in %.1f ms%n",
+                ENTITY_COUNT - streamer.getStreamedCount(), updateTime);
+    }
+
+    @Test
+    public void testUnloadedEntitiesAreRestoredWhenBack() throws InterruptedException {
+        Game.Entity target = game.new Entity("target", 5000, 5000, null, null);
+        streamer.update(target);
+        waitFor(target);
+        Assertions.assertTrue(created.isEmpty());
+
+        target.setPosition(320, 320);
+        long start = System.nanoTime();
+        waitFor(target);
+        double loadTime = (System.nanoTime() - start) / 1e6;
+        Assertions.assertFalse(created.isEmpty());
+        Assertions.assertTrue(streamer.getStreamedCount() <= MAX_IN_MEMORY);
+        for (Game.Entity e : created.values()) {
+            long i = Long.parseLong(e.getName().substring(1));
+            Assertions.assertEquals(i, e.velocity.x, "wrong velocity for " + e.getName());
+            Assertions.assertEquals(-i, e.velocity.y, "wrong velocity for " + e.getName());
+            Assertions.assertTrue(e.position.x < 2 * REGION_SIZE && e.position.y < 2 * REGION_SIZE,
+                    "wrong position for " + e.getName());
+        }
+        System.out.printf("INFO : streamer : %d entities of the regions around the target loaded in %.1f ms%n",
+                created.size(), loadTime);
+    }
+
+    private void waitFor(Game.Entity target) throws InterruptedException {
+        streamer.update(target);
+        while (streamer.isLoading() || streamer.getPendingIO() > 0) {
+            Thread.sleep(1);
+            streamer.update(target);
+        }
+    }
+}